@@ -0,0 +1,44 @@
+package redis.clients.rejis.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link TemplateBenchmark} once per thread count, with the GC profiler
+ * for the allocation rate.
+ * <p>
+ * Usage : java -jar benchmarks.jar [target] [threads...], e.g.
+ * "java -jar benchmarks.jar stub 1 4 16". Without arguments both targets are
+ * run with 1, 4 and 16 threads. For anything else, use the JMH command line :
+ * java -cp benchmarks.jar org.openjdk.jmh.Main -prof gc -t 8 TemplateBenchmark
+ */
+public class BenchmarkRunner {
+
+    private static final String[] DEFAULT_THREADS = { "1", "4", "16" };
+
+    public static void main(String[] args) throws RunnerException {
+        String target = args.length > 0 ? args[0] : null;
+        String[] threadCounts = DEFAULT_THREADS;
+        if (args.length > 1) {
+            threadCounts = new String[args.length - 1];
+            System.arraycopy(args, 1, threadCounts, 0, threadCounts.length);
+        }
+
+        for (String threads : threadCounts) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(TemplateBenchmark.class.getSimpleName())
+                    .threads(Integer.parseInt(threads))
+                    .addProfiler(GCProfiler.class)
+                    .jvmArgsAppend("-Drejis.host=" + System.getProperty("rejis.host", "localhost"),
+                            "-Drejis.port=" + System.getProperty("rejis.port", "6379"));
+            if (target != null) {
+                options.param("target", target);
+            }
+
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package redis.clients.rejis.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-process server speaking just enough RESP for the benchmarked commands
+ * (GET, SET, SETEX, EXISTS, DEL, EXPIRE, PING, AUTH, SELECT, QUIT), values
+ * kept in a map. It removes the redis-server work from the measures, so what
+ * is left is the client, the pools and the loopback.
+ */
+public class RespStubServer {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte[] OK = "+OK\r\n".getBytes(UTF8);
+    private static final byte[] PONG = "+PONG\r\n".getBytes(UTF8);
+    private static final byte[] NIL = "$-1\r\n".getBytes(UTF8);
+    private static final byte[] ZERO = ":0\r\n".getBytes(UTF8);
+    private static final byte[] ONE = ":1\r\n".getBytes(UTF8);
+
+    private final ConcurrentMap<String, byte[]> values = new ConcurrentHashMap<String, byte[]>();
+    private final ServerSocket serverSocket;
+
+    private volatile boolean running = true;
+
+    public RespStubServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 128, InetAddress.getByName("127.0.0.1"));
+
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptLoop();
+            }
+        }, "rejis-stub-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void stop() throws IOException {
+        running = false;
+        serverSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                final Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread connection = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                }, "rejis-stub-connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                // closed by stop()
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            byte[][] command;
+            while ((command = readCommand(in)) != null) {
+                if (!reply(command, out)) {
+                    break;
+                }
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (SocketException e) {
+            // client went away
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing more to do
+            }
+        }
+    }
+
+    /**
+     * @return false once the connection has to be closed
+     */
+    private boolean reply(byte[][] command, OutputStream out) throws IOException {
+        String name = new String(command[0], UTF8).toUpperCase();
+        if ("GET".equals(name)) {
+            writeBulk(out, values.get(new String(command[1], UTF8)));
+        } else if ("SET".equals(name)) {
+            values.put(new String(command[1], UTF8), command[2]);
+            out.write(OK);
+        } else if ("SETEX".equals(name)) {
+            values.put(new String(command[1], UTF8), command[3]);
+            out.write(OK);
+        } else if ("EXISTS".equals(name) || "EXPIRE".equals(name)) {
+            out.write(values.containsKey(new String(command[1], UTF8)) ? ONE : ZERO);
+        } else if ("DEL".equals(name)) {
+            long deleted = 0;
+            for (int i = 1; i < command.length; i++) {
+                if (values.remove(new String(command[i], UTF8)) != null) {
+                    deleted++;
+                }
+            }
+            out.write((":" + deleted + "\r\n").getBytes(UTF8));
+        } else if ("PING".equals(name)) {
+            out.write(PONG);
+        } else if ("AUTH".equals(name) || "SELECT".equals(name)) {
+            out.write(OK);
+        } else if ("QUIT".equals(name)) {
+            out.write(OK);
+            return false;
+        } else {
+            out.write(("-ERR unknown command '" + name + "'\r\n").getBytes(UTF8));
+        }
+
+        return true;
+    }
+
+    private static void writeBulk(OutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.write(NIL);
+            return;
+        }
+
+        out.write(("$" + value.length + "\r\n").getBytes(UTF8));
+        out.write(value);
+        out.write('\r');
+        out.write('\n');
+    }
+
+    /**
+     * @return arguments of the next multi bulk command, null at the end of
+     *         the stream
+     */
+    private static byte[][] readCommand(InputStream in) throws IOException {
+        int marker = in.read();
+        if (marker == -1) {
+            return null;
+        }
+        if (marker != '*') {
+            throw new IOException("Multi bulk command expected, got " + (char) marker);
+        }
+
+        byte[][] arguments = new byte[(int) readLong(in)][];
+        for (int i = 0; i < arguments.length; i++) {
+            if (in.read() != '$') {
+                throw new IOException("Bulk argument expected");
+            }
+            byte[] argument = new byte[(int) readLong(in)];
+            int read = 0;
+            while (read < argument.length) {
+                int count = in.read(argument, read, argument.length - read);
+                if (count == -1) {
+                    throw new IOException("Unexpected end of stream");
+                }
+                read += count;
+            }
+            in.read();
+            in.read();
+            arguments[i] = argument;
+        }
+
+        return arguments;
+    }
+
+    private static long readLong(InputStream in) throws IOException {
+        long value = 0;
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1) {
+                throw new IOException("Unexpected end of stream");
+            }
+            value = value * 10 + (b - '0');
+        }
+        in.read();
+
+        return value;
+    }
+}
@@ -0,0 +1,160 @@
+package redis.clients.rejis.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.rejis.IRejis;
+import redis.clients.rejis.MixedShardedJedisTemplate;
+import redis.clients.rejis.RoundRobinJedisTemplate;
+import redis.clients.rejis.SimpleJedisTemplate;
+
+/**
+ * Cost per call of the templates for the basic commands.
+ * <p>
+ * With target "stub" the commands go to an in-process {@link RespStubServer},
+ * with target "redis" to the redis-server given by the rejis.host and
+ * rejis.port system properties (localhost:6379 by default). Replicas and
+ * shards of the multi nodes templates all point to the same server, so the
+ * templates are compared on the same work.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateBenchmark {
+
+    private static final int NB_REPLICAS = 2;
+    private static final int TIMEOUT = 3600;
+
+    @State(Scope.Benchmark)
+    public static class TemplateState {
+
+        @Param({ "stub", "redis" })
+        public String target;
+
+        @Param({ "simple", "roundrobin", "sharded" })
+        public String template;
+
+        @Param({ "16", "1024", "16384" })
+        public int valueSize;
+
+        IRejis rejis;
+        String value;
+
+        private RespStubServer stub;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            String host;
+            int port;
+            if ("stub".equals(target)) {
+                stub = new RespStubServer();
+                host = "127.0.0.1";
+                port = stub.getPort();
+            } else {
+                host = System.getProperty("rejis.host", "localhost");
+                port = Integer.getInteger("rejis.port", 6379);
+            }
+
+            rejis = buildTemplate(template, host, port);
+
+            char[] chars = new char[valueSize];
+            Arrays.fill(chars, 'v');
+            value = new String(chars);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            rejis.destroyPools();
+            if (stub != null) {
+                stub.stop();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class KeyState {
+        private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+        String key;
+        String missingKey;
+
+        @Setup(Level.Trial)
+        public void setUp(TemplateState templateState) {
+            int thread = THREAD_COUNTER.incrementAndGet();
+            key = "rejis:bench:" + thread;
+            missingKey = "rejis:bench:missing:" + thread;
+            templateState.rejis.set(key, templateState.value);
+        }
+    }
+
+    @Benchmark
+    public String get(TemplateState state, KeyState keys) {
+        return state.rejis.get(keys.key);
+    }
+
+    @Benchmark
+    public String set(TemplateState state, KeyState keys) {
+        return state.rejis.set(keys.key, state.value);
+    }
+
+    @Benchmark
+    public String setex(TemplateState state, KeyState keys) {
+        return state.rejis.setex(keys.key, TIMEOUT, state.value);
+    }
+
+    @Benchmark
+    public Boolean exists(TemplateState state, KeyState keys) {
+        return state.rejis.exists(keys.key);
+    }
+
+    /**
+     * Deletes a key that is never written, so each call is one round trip
+     * like the other commands and does not depend on the previous one.
+     */
+    @Benchmark
+    public Long del(TemplateState state, KeyState keys) {
+        return state.rejis.del(keys.missingKey);
+    }
+
+    static IRejis buildTemplate(String template, String host, int port) {
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxActive(256);
+        poolConfig.setMaxIdle(256);
+
+        List<JedisShardInfo> shards = new ArrayList<JedisShardInfo>(NB_REPLICAS);
+        for (int i = 0; i < NB_REPLICAS; i++) {
+            shards.add(new JedisShardInfo(host, port, "replica" + i));
+        }
+
+        if ("simple".equals(template)) {
+            return new SimpleJedisTemplate(poolConfig, host, port, null);
+        } else if ("roundrobin".equals(template)) {
+            return new RoundRobinJedisTemplate(poolConfig, host, port, null, shards);
+        } else if ("sharded".equals(template)) {
+            return new MixedShardedJedisTemplate(poolConfig, host, port, null, shards);
+        }
+
+        throw new IllegalArgumentException("Unknown template " + template);
+    }
+}
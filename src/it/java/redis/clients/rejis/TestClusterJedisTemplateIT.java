@@ -0,0 +1,83 @@
+package redis.clients.rejis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.JedisPoolConfig;
+
+/**
+ * Needs the cluster started by startCluster.sh.
+ */
+public class TestClusterJedisTemplateIT {
+
+    private final static int NB_KEYS = 1000;
+    private final static String KEY_RADIC = "KEY_";
+
+    private ClusterJedisTemplate template;
+
+    @Before
+    public void setUp() {
+        template = new ClusterJedisTemplate(new JedisPoolConfig(), Arrays.asList("127.0.0.1:7000"), null);
+    }
+
+    @After
+    public void tearDown() {
+        template.destroyPools();
+    }
+
+    @Test
+    public void testSetGet_AllSlots() throws Exception {
+        for (int i = 0; i < NB_KEYS; i++) {
+            template.set(KEY_RADIC + i, "value" + i);
+        }
+
+        for (int i = 0; i < NB_KEYS; i++) {
+            assertThat(template.get(KEY_RADIC + i), is("value" + i));
+        }
+    }
+
+    @Test
+    public void testMsetMget_SplitByNode() throws Exception {
+        Map<String, String> keyValues = new LinkedHashMap<String, String>();
+        for (int i = 0; i < NB_KEYS; i++) {
+            keyValues.put(KEY_RADIC + i, "value" + i);
+        }
+        template.mset(keyValues);
+
+        Map<String, String> values = template.mget(keyValues.keySet().toArray(new String[NB_KEYS]));
+
+        assertThat(values, is(keyValues));
+        assertThat(template.del(keyValues.keySet().toArray(new String[NB_KEYS])), is((long) NB_KEYS));
+    }
+
+    @Test
+    public void testGet_ReadFromReplicas() throws Exception {
+        template.set("{replica}key", "value");
+        template.setReadFromReplicas(true);
+        Thread.sleep(100);
+
+        assertThat(template.get("{replica}key"), is("value"));
+    }
+
+    @Test
+    public void testGet_MovedRedirectFollowed() throws Exception {
+        int slot = ClusterHashSlots.slotOf("moved");
+        String node = template.getNodeOfSlot(slot);
+        template.set("moved", "value");
+
+        // point the slot to another master : next command gets MOVED
+        long wrongPort = node.endsWith(":7000") ? 7001L : 7000L;
+        template.applySlots(node, Arrays.asList(Arrays.asList((long) slot, (long) slot, Arrays.asList("127.0.0.1".getBytes("UTF-8"), wrongPort))));
+
+        assertThat(template.get("moved"), is("value"));
+        assertThat(template.getNodeOfSlot(slot), is(node));
+    }
+}
@@ -0,0 +1,10 @@
+#! /bin/bash
+
+# 3 masters (7000-7002), each with one replica (7003-7005)
+for port in 7000 7001 7002 7003 7004 7005; do
+    mkdir -p /tmp/rejis-cluster/$port
+    (cd /tmp/rejis-cluster/$port && nohup redis-server --port $port --cluster-enabled yes --cluster-config-file nodes.conf --appendonly no &)
+done
+
+sleep 1
+yes yes | redis-cli --cluster create 127.0.0.1:7000 127.0.0.1:7001 127.0.0.1:7002 127.0.0.1:7003 127.0.0.1:7004 127.0.0.1:7005 --cluster-replicas 1
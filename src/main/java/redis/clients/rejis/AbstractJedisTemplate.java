@@ -1,21 +1,50 @@
 package redis.clients.rejis;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import redis.clients.jedis.BinaryJedisCommands;
+import redis.clients.jedis.BinaryShardedJedis;
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCommands;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.exceptions.JedisException;
 import redis.clients.util.Pool;
 
-public abstract class AbstractJedisTemplate<R extends BinaryJedisCommands & JedisCommands, W extends BinaryJedisCommands & JedisCommands> implements IRejis {
+public abstract class AbstractJedisTemplate<R extends BinaryJedisCommands & JedisCommands, W extends BinaryJedisCommands & JedisCommands> implements IRejis, IBinaryRejis, IRejisScripting {
 
     private static final Logger logger = LoggerFactory.getLogger(AbstractJedisTemplate.class);
 
+    public static final int DEFAULT_PIPELINE_CHUNK_SIZE = 500;
+
+    public static final int DEFAULT_SCAN_COUNT = 1000;
+
     private Pool<W> writePool;
     private Pool<R> readPool;
 
+    // max number of commands sent before reading the replies of a pipeline
+    private int pipelineChunkSize = DEFAULT_PIPELINE_CHUNK_SIZE;
+
+    // null when not instrumented
+    private volatile RejisMetrics metrics;
+
+    private final ScriptRegistry scripts = new ScriptRegistry();
+
+    // true when a ConnectionHealthChecker keeps the idle connections valid
+    private volatile boolean noValidationOnBorrow;
+
     @Override
     public String get(final String key) {
         return doGet(new JedisCallback<R, String>() {
@@ -66,6 +95,301 @@ public abstract class AbstractJedisTemplate<R extends BinaryJedisCommands & Jedi
         });
     }
 
+    @Override
+    public Map<String, String> mget(String... keys) {
+        return doPipelinedGet(Arrays.asList(keys), new PipelineCallback<String>() {
+            @Override
+            public Response<String> doPipelineAction(RejisPipeline pipeline, String key) {
+                return pipeline.commands().get(key);
+            }
+        });
+    }
+
+    @Override
+    public void mset(final Map<String, String> keyValues) {
+        doPipelinedPut(keyValues.keySet(), new PipelineCallback<String>() {
+            @Override
+            public Response<String> doPipelineAction(RejisPipeline pipeline, String key) {
+                return pipeline.commands().set(key, keyValues.get(key));
+            }
+        });
+    }
+
+    @Override
+    public void msetex(final Map<String, String> keyValues, final Map<String, Integer> timeouts) {
+        if (!timeouts.keySet().containsAll(keyValues.keySet())) {
+            throw new IllegalArgumentException("A timeout is required for each key");
+        }
+
+        doPipelinedPut(keyValues.keySet(), new PipelineCallback<String>() {
+            @Override
+            public Response<String> doPipelineAction(RejisPipeline pipeline, String key) {
+                return pipeline.commands().setex(key, timeouts.get(key), keyValues.get(key));
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Boolean> mexists(String... keys) {
+        return doPipelinedGet(Arrays.asList(keys), new PipelineCallback<Boolean>() {
+            @Override
+            public Response<Boolean> doPipelineAction(RejisPipeline pipeline, String key) {
+                return pipeline.commands().exists(key);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Long> mexpire(final Map<String, Integer> timeouts) {
+        return doPipelinedPut(timeouts.keySet(), new PipelineCallback<Long>() {
+            @Override
+            public Response<Long> doPipelineAction(RejisPipeline pipeline, String key) {
+                return pipeline.commands().expire(key, timeouts.get(key));
+            }
+        });
+    }
+
+    @Override
+    public byte[] get(final byte[] key) {
+        return doGet(new JedisCallback<R, byte[]>() {
+            @Override
+            public byte[] doJedisAction(R jedis) {
+                return jedis.get(key);
+            }
+        });
+    }
+
+    @Override
+    public String set(final byte[] key, final byte[] value) {
+        return doPut(new JedisCallback<W, String>() {
+            @Override
+            public String doJedisAction(W jedis) {
+                return jedis.set(key, value);
+            }
+        });
+    }
+
+    @Override
+    public String setex(final byte[] key, final int timeout, final byte[] value) {
+        return doPut(new JedisCallback<W, String>() {
+            @Override
+            public String doJedisAction(W jedis) {
+                return jedis.setex(key, timeout, value);
+            }
+        });
+    }
+
+    /**
+     * One DEL per key on a single connection : templates whose write client
+     * can delete several keys at once override it.
+     */
+    @Override
+    public Long del(final byte[]... keys) {
+        return doPut(new JedisCallback<W, Long>() {
+            @Override
+            public Long doJedisAction(W jedis) {
+                long deleted = 0;
+                for (byte[] key : keys) {
+                    deleted += jedis.del(key);
+                }
+                return deleted;
+            }
+        });
+    }
+
+    @Override
+    public Boolean exists(final byte[] key) {
+        return doGet(new JedisCallback<R, Boolean>() {
+            @Override
+            public Boolean doJedisAction(R jedis) {
+                return jedis.exists(key);
+            }
+        });
+    }
+
+    @Override
+    public Long expire(final byte[] key, final int timeout) {
+        return doPut(new JedisCallback<W, Long>() {
+            @Override
+            public Long doJedisAction(W jedis) {
+                return jedis.expire(key, timeout);
+            }
+        });
+    }
+
+    @Override
+    public byte[] get(ByteBuffer key) {
+        return get(bytesOf(key));
+    }
+
+    @Override
+    public String set(ByteBuffer key, ByteBuffer value) {
+        return set(bytesOf(key), bytesOf(value));
+    }
+
+    @Override
+    public String setex(ByteBuffer key, int timeout, ByteBuffer value) {
+        return setex(bytesOf(key), timeout, bytesOf(value));
+    }
+
+    /**
+     * Jedis only writes arrays : the backing array is used when it holds
+     * exactly the remaining bytes, otherwise they are copied once.
+     */
+    static byte[] bytesOf(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+
+        return bytes;
+    }
+
+    /**
+     * Keys matching the pattern, scanned on the write side (the master, or
+     * each master of a sharded template) with the default COUNT and prefetch.
+     */
+    public Iterator<String> scan(String pattern) {
+        return scan(pattern, DEFAULT_SCAN_COUNT, true);
+    }
+
+    /**
+     * @param count
+     *            COUNT hint of each SCAN page
+     * @param prefetch
+     *            load the next page in the background
+     */
+    public Iterator<String> scan(String pattern, int count, boolean prefetch) {
+        return new KeyScanner(new KeyScanner.PageLoader() {
+            @Override
+            public KeyScanner.Page load(final int node, final String cursor, final String pattern, final int count) {
+                return doPut(new JedisCallback<W, KeyScanner.Page>() {
+                    @Override
+                    public KeyScanner.Page doJedisAction(W jedis) {
+                        List<Jedis> nodes = scanNodesOf(jedis);
+                        return node < nodes.size() ? KeyScanner.scan(nodes.get(node), cursor, pattern, count) : null;
+                    }
+                });
+            }
+        }, pattern, count, prefetch);
+    }
+
+    /**
+     * Delete the keys matching the pattern as they are scanned, in pipelines
+     * of {@link #getPipelineChunkSize()} keys.
+     * 
+     * @return number of deleted keys
+     */
+    public long scanAndDelete(String pattern, int count) {
+        Iterator<String> keys = scan(pattern, count, true);
+        List<String> batch = new ArrayList<String>(pipelineChunkSize);
+        long deleted = 0;
+        while (keys.hasNext()) {
+            batch.add(keys.next());
+            if (batch.size() == pipelineChunkSize || !keys.hasNext()) {
+                for (Long reply : doPipelinedPut(batch, new PipelineCallback<Long>() {
+                    @Override
+                    public Response<Long> doPipelineAction(RejisPipeline pipeline, String key) {
+                        return pipeline.commands().del(key);
+                    }
+                }).values()) {
+                    deleted += reply;
+                }
+                batch.clear();
+            }
+        }
+
+        return deleted;
+    }
+
+    @Override
+    public LuaScript registerScript(String body) {
+        return scripts.register(body);
+    }
+
+    @Override
+    public Object eval(final LuaScript script, final List<String> keys, final List<String> args) {
+        return doPut(new JedisCallback<W, Object>() {
+            @Override
+            public Object doJedisAction(W jedis) {
+                return script.eval(scriptNodeOf(jedis, keys), keys, args);
+            }
+        });
+    }
+
+    @Override
+    public void loadScripts() {
+        final Collection<LuaScript> registered = scripts.getScripts();
+        if (registered.isEmpty()) {
+            return;
+        }
+
+        doPut(new JedisCallback<W, Void>() {
+            @Override
+            public Void doJedisAction(W jedis) {
+                for (Jedis node : scanNodesOf(jedis)) {
+                    for (LuaScript script : registered) {
+                        script.load(node);
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @return the node of a write client owning all the keys of a script
+     */
+    protected Jedis scriptNodeOf(W writeClient, List<String> keys) {
+        if (!(writeClient instanceof BinaryShardedJedis)) {
+            return (Jedis) writeClient;
+        }
+
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("A script needs a key to be routed to a shard");
+        }
+
+        BinaryShardedJedis shardedJedis = (BinaryShardedJedis) writeClient;
+        Jedis node = shardedJedis.getShard(keys.get(0));
+        for (String key : keys) {
+            if (shardedJedis.getShard(key) != node) {
+                throw new JedisDataException("The keys of a script must be on the same shard");
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * @return the nodes of a write client holding the whole keyspace between
+     *         them, in a stable order
+     */
+    protected List<Jedis> scanNodesOf(W writeClient) {
+        if (writeClient instanceof BinaryShardedJedis) {
+            return new ArrayList<Jedis>(((BinaryShardedJedis) writeClient).getAllShards());
+        }
+
+        return Collections.singletonList((Jedis) writeClient);
+    }
+
+    /**
+     * Open connections of the write and read pools ahead of the first
+     * requests, see {@link PoolWarmUp}.
+     */
+    public PoolWarmUp warmUp(WarmUpPolicy policy) {
+        Map<String, Pool<?>> pools = new LinkedHashMap<String, Pool<?>>();
+        if (writePool == readPool) {
+            pools.put("master", writePool);
+        } else {
+            pools.put("write", writePool);
+            pools.put("read", readPool);
+        }
+
+        return PoolWarmUp.start(policy, pools);
+    }
+
     // TODO : manage JedisException ?
     @Override
     public void destroyPools() {
@@ -82,14 +406,17 @@ public abstract class AbstractJedisTemplate<R extends BinaryJedisCommands & Jedi
         boolean isResourceInError = false;
         W jedis = null;
         T result = null;
+        long start = 0;
         try {
             jedis = getJedisFromWritePool(writePool);
+            start = System.nanoTime();
             result = jedisCallback.doJedisAction(jedis);
         } catch (JedisConnectionException e) {
             isResourceInError = true;
             returnBrokenClientToPool(jedis, writePool);
             throw e;
         } finally {
+            recordCommand(jedis, start, isResourceInError);
             if (!isResourceInError) {
                 returnClientToPool(jedis, writePool);
             }
@@ -99,18 +426,28 @@ public abstract class AbstractJedisTemplate<R extends BinaryJedisCommands & Jedi
     }
 
     protected <T> T doGet(JedisCallback<R, T> jedisCallback) {
+        return doGetFrom(jedisCallback, readPool);
+    }
+
+    /**
+     * Same as {@link #doGet(JedisCallback)} on the given pool.
+     */
+    protected <T> T doGetFrom(JedisCallback<R, T> jedisCallback, Pool<R> readPool) {
         T result = null;
         R jedis = null;
         boolean isResourceInError = false;
 
+        long start = 0;
         try {
             jedis = getJedisFromReadPool(readPool);
+            start = System.nanoTime();
             result = jedisCallback.doJedisAction(jedis);
         } catch (JedisConnectionException e) {
             isResourceInError = true;
             returnBrokenClientToPool(jedis, readPool);
             throw e;
         } finally {
+            recordCommand(jedis, start, isResourceInError);
             if (!isResourceInError) {
                 returnClientToPool(jedis, readPool);
             }
@@ -119,10 +456,113 @@ public abstract class AbstractJedisTemplate<R extends BinaryJedisCommands & Jedi
         return result;
     }
 
+    /**
+     * Run the callback for each key in pipelines on a single connection of
+     * the read pool, syncing every {@link #getPipelineChunkSize()} keys.
+     */
+    protected <T> Map<String, T> doPipelinedGet(Collection<String> keys, final PipelineCallback<T> pipelineCallback) {
+        final List<String> keyList = new ArrayList<String>(keys);
+        if (keyList.isEmpty()) {
+            return new LinkedHashMap<String, T>();
+        }
+
+        return doGet(new JedisCallback<R, Map<String, T>>() {
+            @Override
+            public Map<String, T> doJedisAction(R jedis) {
+                Map<String, T> results = new LinkedHashMap<String, T>(keyList.size());
+                for (int from = 0; from < keyList.size(); from += pipelineChunkSize) {
+                    List<String> chunk = keyList.subList(from, Math.min(keyList.size(), from + pipelineChunkSize));
+                    syncChunk(openReadPipeline(jedis), chunk, pipelineCallback, results);
+                }
+
+                return results;
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #doPipelinedGet(Collection, PipelineCallback)} on a
+     * connection of the write pool.
+     */
+    protected <T> Map<String, T> doPipelinedPut(Collection<String> keys, final PipelineCallback<T> pipelineCallback) {
+        final List<String> keyList = new ArrayList<String>(keys);
+        if (keyList.isEmpty()) {
+            return new LinkedHashMap<String, T>();
+        }
+
+        return doPut(new JedisCallback<W, Map<String, T>>() {
+            @Override
+            public Map<String, T> doJedisAction(W jedis) {
+                Map<String, T> results = new LinkedHashMap<String, T>(keyList.size());
+                for (int from = 0; from < keyList.size(); from += pipelineChunkSize) {
+                    List<String> chunk = keyList.subList(from, Math.min(keyList.size(), from + pipelineChunkSize));
+                    syncChunk(openWritePipeline(jedis), chunk, pipelineCallback, results);
+                }
+
+                return results;
+            }
+        });
+    }
+
+    /**
+     * Let the callback queue commands in a pipeline on a connection of the
+     * write pool, then sync it : responses can be read once this method
+     * returns.
+     */
+    protected <T> T doInWritePipeline(final JedisCallback<RejisPipeline, T> pipelineCallback) {
+        return doPut(new JedisCallback<W, T>() {
+            @Override
+            public T doJedisAction(W jedis) {
+                RejisPipeline pipeline = openWritePipeline(jedis);
+                T result = pipelineCallback.doJedisAction(pipeline);
+                pipeline.sync();
+
+                return result;
+            }
+        });
+    }
+
+    private <T> void syncChunk(RejisPipeline pipeline, List<String> chunk, PipelineCallback<T> pipelineCallback, Map<String, T> results) {
+        List<Response<T>> responses = new ArrayList<Response<T>>(chunk.size());
+        for (String key : chunk) {
+            responses.add(pipelineCallback.doPipelineAction(pipeline, key));
+        }
+
+        pipeline.sync();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            results.put(chunk.get(i), responses.get(i).get());
+        }
+    }
+
+    protected abstract RejisPipeline openReadPipeline(R jedis);
+
+    protected abstract RejisPipeline openWritePipeline(W jedis);
+
     protected <J extends BinaryJedisCommands & JedisCommands> J getJedisFromPool(Pool<J> pool) {
-        J jedis = pool.getResource();
+        RejisMetrics currentMetrics = metrics;
+        if (currentMetrics == null) {
+            return pool.getResource();
+        }
 
-        return jedis;
+        long start = System.nanoTime();
+        currentMetrics.onBorrowStart(pool);
+        try {
+            return pool.getResource();
+        } finally {
+            currentMetrics.onBorrowEnd(pool, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Account the command run on the client since start to the metrics, if
+     * any.
+     */
+    protected void recordCommand(Object jedis, long start, boolean isResourceInError) {
+        RejisMetrics currentMetrics = metrics;
+        if (currentMetrics != null && jedis != null) {
+            currentMetrics.recordNode(jedis, System.nanoTime() - start, isResourceInError);
+        }
     }
 
     protected W getJedisFromWritePool(Pool<W> writePool) {
@@ -150,6 +590,11 @@ public abstract class AbstractJedisTemplate<R extends BinaryJedisCommands & Jedi
             return;
         }
 
+        RejisMetrics currentMetrics = metrics;
+        if (currentMetrics != null) {
+            currentMetrics.onBrokenResource();
+        }
+
         try {
             pool.returnBrokenResource(jedis);
         } catch (JedisException e) {
@@ -165,6 +610,52 @@ public abstract class AbstractJedisTemplate<R extends BinaryJedisCommands & Jedi
         this.readPool = readPool;
     }
 
+    public RejisMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Record the latencies of the commands and of the pools of this template.
+     * 
+     * @param metrics
+     *            null to stop recording
+     */
+    public void setMetrics(RejisMetrics metrics) {
+        if (metrics != null) {
+            if (writePool == readPool) {
+                metrics.registerPool("master", writePool);
+            } else {
+                metrics.registerPool("write", writePool);
+                metrics.registerPool("read", readPool);
+            }
+        }
+        this.metrics = metrics;
+    }
+
+    public boolean isValidateOnBorrow() {
+        return !noValidationOnBorrow;
+    }
+
+    /**
+     * @param validateOnBorrow
+     *            false to borrow connections without checking they are
+     *            still connected, see {@link ConnectionHealthChecker}
+     */
+    public void setValidateOnBorrow(boolean validateOnBorrow) {
+        this.noValidationOnBorrow = !validateOnBorrow;
+    }
+
+    public int getPipelineChunkSize() {
+        return pipelineChunkSize;
+    }
+
+    public void setPipelineChunkSize(int pipelineChunkSize) {
+        if (pipelineChunkSize <= 0) {
+            throw new IllegalArgumentException("Pipeline chunk size must be positive");
+        }
+        this.pipelineChunkSize = pipelineChunkSize;
+    }
+
     public Pool<W> getWritePool() {
         return writePool;
     }
@@ -0,0 +1,165 @@
+package redis.clients.rejis;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Asynchronous facade on a template : each operation runs the blocking call
+ * of the template (pool borrow, broken resource handling, retries...) on an
+ * executor and returns immediately.
+ * <p>
+ * By default one virtual thread is started per operation when the JVM
+ * provides them (java 21+), otherwise a fixed pool of daemon threads with a
+ * bounded queue is used : when the queue is full, the operation runs on the
+ * calling thread, which slows the callers down instead of piling up threads
+ * or tasks.
+ */
+public class AsyncJedisTemplate implements IRejisAsync {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncJedisTemplate.class);
+
+    public static final int DEFAULT_THREADS = 32;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private final IRejis template;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+
+    public AsyncJedisTemplate(IRejis template) {
+        this(template, defaultExecutor(), true);
+    }
+
+    /**
+     * @param template
+     * @param executor
+     *            not shut down by {@link #shutdown()}, the caller keeps
+     *            ownership
+     */
+    public AsyncJedisTemplate(IRejis template, ExecutorService executor) {
+        this(template, executor, false);
+    }
+
+    private AsyncJedisTemplate(IRejis template, ExecutorService executor, boolean ownExecutor) {
+        this.template = template;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    @Override
+    public Future<String> getAsync(final String key) {
+        return executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return template.get(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> setAsync(final String key, final String value) {
+        return executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return template.set(key, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> setexAsync(final String key, final int timeout, final String value) {
+        return executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return template.setex(key, timeout, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> delAsync(final String... keys) {
+        return executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return template.del(keys);
+            }
+        });
+    }
+
+    @Override
+    public Future<Boolean> existsAsync(final String key) {
+        return executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return template.exists(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> expireAsync(final String key, final int timeout) {
+        return executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return template.expire(key, timeout);
+            }
+        });
+    }
+
+    /**
+     * Stop the default executor, already submitted operations still
+     * complete. Pools of the template are not destroyed.
+     */
+    public void shutdown() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    public IRejis getTemplate() {
+        return template;
+    }
+
+    static ExecutorService defaultExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (Exception e) {
+            logger.debug("Virtual threads not available, using a bounded thread pool", e);
+        }
+
+        return boundedExecutor(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Daemon threads and a bounded queue, the operations submitted when it
+     * is full run on the calling thread.
+     */
+    static ExecutorService boundedExecutor(int threads, int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+                    private final AtomicInteger counter = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "rejis-async-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        // idle threads stop, as in a cached pool
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,537 @@
+package redis.clients.rejis;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import redis.clients.jedis.BinaryJedisCommands;
+import redis.clients.jedis.BinaryShardedJedis;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCommands;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * Mass insertion of key/value records from a file, in the spirit of
+ * redis-cli --pipe.
+ * <p>
+ * The file is memory mapped and each record is encoded as a RESP SET (or
+ * SETEX) straight from the mapped bytes, then written on a connection of
+ * the write pool of the template, without waiting for the replies : a
+ * thread per node reads them as they come. For a sharded template each
+ * record goes to the master of its key. At most maxInFlight records wait
+ * for their reply on a node.
+ * <p>
+ * One record per line : key TAB value, optionally followed by TAB and a
+ * timeout in seconds. Keys and values may hold any byte but TAB and LF.
+ */
+public class BulkLoader {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 10000;
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    // mapped at once, records never span two regions
+    private static final long MAX_REGION_SIZE = 256L * 1024 * 1024;
+    private static final long END_OF_LOAD = -1;
+
+    private static final byte TAB = '\t';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private static final byte[] SET = { '*', '3', CR, LF, '$', '3', CR, LF, 'S', 'E', 'T', CR, LF };
+    private static final byte[] SETEX = { '*', '4', CR, LF, '$', '5', CR, LF, 'S', 'E', 'T', 'E', 'X', CR, LF };
+
+    private final AbstractJedisTemplate<?, ?> template;
+
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    public BulkLoader(AbstractJedisTemplate<?, ?> template) {
+        this.template = template;
+    }
+
+    /**
+     * Errors on some records do not stop the load, they are reported in the
+     * result.
+     *
+     * @throws JedisConnectionException
+     *             if a connection is lost, records already sent may have
+     *             been written
+     */
+    public BulkLoadResult load(File file) {
+        return doLoad(template, file);
+    }
+
+    private <W extends BinaryJedisCommands & JedisCommands> BulkLoadResult doLoad(final AbstractJedisTemplate<?, W> writeTemplate, final File file) {
+        return writeTemplate.doPut(new JedisCallback<W, BulkLoadResult>() {
+            @Override
+            public BulkLoadResult doJedisAction(W writeClient) {
+                return load(file, writeClient, writeTemplate.scanNodesOf(writeClient));
+            }
+        });
+    }
+
+    private BulkLoadResult load(File file, Object writeClient, List<Jedis> nodes) {
+        final BulkLoadResult result = new BulkLoadResult();
+        final Map<Jedis, NodeWriter> writers = new IdentityHashMap<Jedis, NodeWriter>();
+        final BinaryShardedJedis sharded = writeClient instanceof BinaryShardedJedis ? (BinaryShardedJedis) writeClient : null;
+
+        RuntimeException error = null;
+        try {
+            for (Jedis node : nodes) {
+                writers.put(node, new NodeWriter(node, result));
+            }
+            final NodeWriter single = sharded == null ? writers.get(nodes.get(0)) : null;
+
+            readRecords(file, new RecordHandler() {
+                @Override
+                public void onRecord(long record, ByteBuffer region, int keyFrom, int keyTo, int valueFrom, int valueTo, int timeout) {
+                    NodeWriter writer = single;
+                    if (writer == null) {
+                        byte[] key = new byte[keyTo - keyFrom];
+                        ByteBuffer view = region.duplicate();
+                        view.position(keyFrom);
+                        view.get(key);
+                        writer = writers.get(sharded.getShard(key));
+                    }
+                    writer.write(record, region, keyFrom, keyTo, valueFrom, valueTo, timeout);
+                }
+
+                @Override
+                public void onInvalidRecord(long record, String reason) {
+                    result.onError(record, reason);
+                }
+            });
+        } catch (RuntimeException e) {
+            error = e;
+        }
+
+        for (NodeWriter writer : writers.values()) {
+            try {
+                writer.finish();
+            } catch (RuntimeException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+
+        if (error != null) {
+            throw error;
+        }
+        return result;
+    }
+
+    /**
+     * Receives the records of a file, fields given as bounds in the mapped
+     * region.
+     */
+    interface RecordHandler {
+        /**
+         * @param timeout
+         *            0 for none
+         */
+        void onRecord(long record, ByteBuffer region, int keyFrom, int keyTo, int valueFrom, int valueTo, int timeout);
+
+        void onInvalidRecord(long record, String reason);
+    }
+
+    /**
+     * Parse the records of the file, numbered from 1, region by region.
+     */
+    static void readRecords(File file, RecordHandler handler) {
+        RandomAccessFile input = null;
+        try {
+            input = new RandomAccessFile(file, "r");
+            FileChannel channel = input.getChannel();
+            long size = channel.size();
+            long regionStart = 0;
+            long record = 0;
+            while (regionStart < size) {
+                long regionSize = Math.min(MAX_REGION_SIZE, size - regionStart);
+                boolean lastRegion = regionStart + regionSize == size;
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionSize);
+
+                int limit = (int) regionSize;
+                int lineStart = 0;
+                while (lineStart < limit) {
+                    int lineEnd = indexOf(region, LF, lineStart, limit);
+                    if (lineEnd < 0) {
+                        if (!lastRegion) {
+                            break;
+                        }
+                        lineEnd = limit;
+                    }
+
+                    if (lineEnd > lineStart) {
+                        record++;
+                        parseRecord(record, region, lineStart, lineEnd, handler);
+                    }
+                    lineStart = lineEnd + 1;
+                }
+
+                if (lineStart == 0) {
+                    throw new JedisException("Record longer than " + MAX_REGION_SIZE + " bytes after record " + record);
+                }
+                regionStart += Math.min(lineStart, limit);
+            }
+        } catch (IOException e) {
+            throw new JedisException("Cannot read " + file, e);
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    // nothing more to read
+                }
+            }
+        }
+    }
+
+    private static void parseRecord(long record, ByteBuffer region, int from, int to, RecordHandler handler) {
+        int lineEnd = region.get(to - 1) == CR ? to - 1 : to;
+        int keyEnd = indexOf(region, TAB, from, lineEnd);
+        if (keyEnd <= from) {
+            handler.onInvalidRecord(record, "Missing key or value");
+            return;
+        }
+
+        int valueEnd = indexOf(region, TAB, keyEnd + 1, lineEnd);
+        int timeout = 0;
+        if (valueEnd < 0) {
+            valueEnd = lineEnd;
+        } else {
+            for (int i = valueEnd + 1; i < lineEnd; i++) {
+                byte digit = region.get(i);
+                if (digit < '0' || digit > '9' || timeout > (Integer.MAX_VALUE - 9) / 10) {
+                    handler.onInvalidRecord(record, "Invalid timeout");
+                    return;
+                }
+                timeout = timeout * 10 + (digit - '0');
+            }
+            if (timeout == 0) {
+                handler.onInvalidRecord(record, "Invalid timeout");
+                return;
+            }
+        }
+
+        handler.onRecord(record, region, from, keyEnd, keyEnd + 1, valueEnd, timeout);
+    }
+
+    private static int indexOf(ByteBuffer region, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (region.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Encode a SET, or a SETEX when timeout is positive, in the buffer.
+     *
+     * @return position after the command
+     */
+    static int encode(byte[] buffer, int position, ByteBuffer region, int keyFrom, int keyTo, int valueFrom, int valueTo, int timeout) {
+        int pos = position;
+        byte[] header = timeout > 0 ? SETEX : SET;
+        System.arraycopy(header, 0, buffer, pos, header.length);
+        pos += header.length;
+        pos = encodeBulk(buffer, pos, region, keyFrom, keyTo);
+        if (timeout > 0) {
+            byte[] digits = SafeEncoder.encode(Integer.toString(timeout));
+            pos = encodeLength(buffer, pos, digits.length);
+            System.arraycopy(digits, 0, buffer, pos, digits.length);
+            pos += digits.length;
+            buffer[pos++] = CR;
+            buffer[pos++] = LF;
+        }
+        return encodeBulk(buffer, pos, region, valueFrom, valueTo);
+    }
+
+    /**
+     * @return maximum size of the encoded command
+     */
+    static int encodedSize(int keyLength, int valueLength) {
+        // header, 3 bulk lengths of at most 10 digits, timeout and CRLFs
+        return SETEX.length + 3 * 13 + 10 + 2 + keyLength + 2 + valueLength + 2;
+    }
+
+    private static int encodeBulk(byte[] buffer, int position, ByteBuffer region, int from, int to) {
+        int pos = encodeLength(buffer, position, to - from);
+        ByteBuffer view = region.duplicate();
+        view.limit(to);
+        view.position(from);
+        view.get(buffer, pos, to - from);
+        pos += to - from;
+        buffer[pos++] = CR;
+        buffer[pos++] = LF;
+        return pos;
+    }
+
+    private static int encodeLength(byte[] buffer, int position, int length) {
+        int pos = position;
+        buffer[pos++] = '$';
+        byte[] digits = SafeEncoder.encode(Integer.toString(length));
+        System.arraycopy(digits, 0, buffer, pos, digits.length);
+        pos += digits.length;
+        buffer[pos++] = CR;
+        buffer[pos++] = LF;
+        return pos;
+    }
+
+    /**
+     * Pipelined writes to one node, with the thread reading their replies.
+     */
+    private class NodeWriter {
+        private final BulkLoadResult result;
+        private final OutputStream out;
+        private final InputStream in;
+        // records sent, waiting for their reply
+        private final BlockingQueue<Long> inFlight = new ArrayBlockingQueue<Long>(maxInFlight + 1);
+        private final Thread replyReader;
+
+        private byte[] buffer = new byte[bufferSize];
+        private int position;
+        // records in the buffer, not sent yet : the reader must not wait for them
+        private final long[] buffered = new long[maxInFlight];
+        private int nbBuffered;
+        private volatile RuntimeException readError;
+
+        NodeWriter(Jedis node, BulkLoadResult result) {
+            this.result = result;
+            if (!node.getClient().isConnected()) {
+                node.getClient().connect();
+            }
+            try {
+                this.out = node.getClient().getSocket().getOutputStream();
+                this.in = new BufferedInputStream(node.getClient().getSocket().getInputStream(), bufferSize);
+            } catch (IOException e) {
+                throw new JedisConnectionException(e);
+            }
+
+            this.replyReader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    readReplies();
+                }
+            }, "rejis-bulk-" + node.getClient().getHost() + ":" + node.getClient().getPort());
+            this.replyReader.setDaemon(true);
+            this.replyReader.start();
+        }
+
+        void write(long record, ByteBuffer region, int keyFrom, int keyTo, int valueFrom, int valueTo, int timeout) {
+            checkReader();
+            int size = encodedSize(keyTo - keyFrom, valueTo - valueFrom);
+            if (position + size > buffer.length) {
+                flush();
+                if (size > buffer.length) {
+                    buffer = new byte[size];
+                }
+            }
+            position = encode(buffer, position, region, keyFrom, keyTo, valueFrom, valueTo, timeout);
+            buffered[nbBuffered++] = record;
+
+            if (nbBuffered == buffered.length) {
+                flush();
+            }
+        }
+
+        void finish() {
+            try {
+                flush();
+            } finally {
+                put(END_OF_LOAD);
+                try {
+                    replyReader.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new JedisException("Interrupted while waiting for the replies", e);
+                }
+            }
+            checkReader();
+        }
+
+        private void flush() {
+            if (position == 0) {
+                return;
+            }
+
+            try {
+                out.write(buffer, 0, position);
+                out.flush();
+            } catch (IOException e) {
+                throw new JedisConnectionException(e);
+            }
+            position = 0;
+
+            for (int i = 0; i < nbBuffered; i++) {
+                put(buffered[i]);
+            }
+            nbBuffered = 0;
+        }
+
+        private void put(long record) {
+            try {
+                while (!inFlight.offer(record, 100, TimeUnit.MILLISECONDS)) {
+                    checkReader();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JedisException("Interrupted while loading", e);
+            }
+        }
+
+        private void checkReader() {
+            if (readError != null) {
+                throw readError;
+            }
+        }
+
+        private void readReplies() {
+            try {
+                while (true) {
+                    long record = inFlight.take();
+                    if (record == END_OF_LOAD) {
+                        return;
+                    }
+
+                    String error = readReply(in);
+                    if (error == null) {
+                        result.onSuccess();
+                    } else {
+                        result.onError(record, error);
+                    }
+                }
+            } catch (IOException e) {
+                readError = new JedisConnectionException(e);
+            } catch (InterruptedException e) {
+                readError = new JedisException("Interrupted while reading the replies", e);
+            }
+        }
+    }
+
+    /**
+     * @return the error message, null for any other reply
+     */
+    static String readReply(InputStream in) throws IOException {
+        int type = in.read();
+        String line = readLine(in);
+        switch (type) {
+        case '-':
+            return line;
+        case '$':
+            int length = Integer.parseInt(line);
+            for (long skipped = 0; length >= 0 && skipped < length + 2;) {
+                long count = in.skip(length + 2 - skipped);
+                if (count <= 0) {
+                    if (in.read() < 0) {
+                        throw new IOException("Connection closed");
+                    }
+                    count = 1;
+                }
+                skipped += count;
+            }
+            return null;
+        case -1:
+            throw new IOException("Connection closed");
+        default:
+            return null;
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != CR) {
+            if (b < 0) {
+                throw new IOException("Connection closed");
+            }
+            line.append((char) b);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * @param maxInFlight
+     *            records sent on a node whose reply is not read yet
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in flight must be positive");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @param bufferSize
+     *            bytes of commands written to a node at once
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Outcome of a load : records written and first errors.
+     */
+    public static class BulkLoadResult {
+        public static final int MAX_REPORTED_ERRORS = 1000;
+
+        private long successCount;
+        private long errorCount;
+        private final List<String> errors = new ArrayList<String>();
+
+        synchronized void onSuccess() {
+            successCount++;
+        }
+
+        synchronized void onError(long record, String error) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Record " + record + " : " + error);
+            }
+        }
+
+        public synchronized long getSuccessCount() {
+            return successCount;
+        }
+
+        public synchronized long getErrorCount() {
+            return errorCount;
+        }
+
+        /**
+         * @return the first {@link #MAX_REPORTED_ERRORS} errors, with their
+         *         record number
+         */
+        public synchronized List<String> getErrors() {
+            return new ArrayList<String>(errors);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package redis.clients.rejis;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Cache-aside over a template : {@link #getOrLoad(String, CacheLoader, int)}
+ * returns the cached value, or loads it, caches it and returns it.
+ * <p>
+ * A key is loaded once at a time per JVM, the other threads wait for the
+ * result. With a distributed lock, once at a time across all the clients :
+ * the others poll the cache until the value shows up, or load it themselves
+ * when the lock expires first.
+ * <p>
+ * A hot key is refreshed before it expires, in the background, following
+ * XFetch : each read refreshes it early with a probability growing as the
+ * expiry gets closer, and with the time it took to load. So one read
+ * refreshes it, instead of all the readers after the expiry.
+ * <p>
+ * Loaded values are stored with their expiry and loading time in front of
+ * them : they are removed by {@link #get(String)} and {@link #mget(String...)}
+ * of this template, but other clients see them.
+ */
+public class CacheAsideJedisTemplate implements IRejis {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheAsideJedisTemplate.class);
+
+    public static final double DEFAULT_BETA = 1.0;
+
+    static final String ENVELOPE = "\u0001xf:";
+
+    private static final String LOCK_SUFFIX = ":lock";
+    private static final long LOCK_POLL_MILLIS = 20;
+
+    private static final String LOCK_SCRIPT = "return redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2])";
+    private static final String UNLOCK_SCRIPT = "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0";
+
+    private final IRejis delegate;
+    private final ExecutorService executor;
+
+    private final ConcurrentMap<String, FutureTask<String>> inFlightLoads = new ConcurrentHashMap<String, FutureTask<String>>();
+    // a refresh may give up, loads must not wait for it
+    private final ConcurrentMap<String, FutureTask<String>> inFlightRefreshes = new ConcurrentHashMap<String, FutureTask<String>>();
+
+    private volatile double beta = DEFAULT_BETA;
+
+    // no distributed lock when null
+    private volatile IRejisScripting lockScripting;
+    private volatile LuaScript lockScript;
+    private volatile LuaScript unlockScript;
+    private volatile long lockTimeoutMillis;
+
+    public CacheAsideJedisTemplate(IRejis delegate) {
+        this(delegate, AsyncJedisTemplate.defaultExecutor());
+    }
+
+    /**
+     * @param executor
+     *            runs the early refreshes
+     */
+    public CacheAsideJedisTemplate(IRejis delegate, ExecutorService executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    /**
+     * @param timeout
+     *            in seconds, of the cached value
+     * @throws JedisException
+     *             wrapping the exception of the loader
+     */
+    public String getOrLoad(final String key, final CacheLoader loader, final int timeout) {
+        String cached = delegate.get(key);
+        if (cached != null) {
+            if (shouldRefreshEarly(cached)) {
+                refreshInBackground(key, loader, timeout);
+            }
+            return valueOf(cached);
+        }
+
+        FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                // a load may have ended between the miss and this task
+                String loaded = delegate.get(key);
+                if (loaded != null) {
+                    return valueOf(loaded);
+                }
+                return load(key, loader, timeout, true);
+            }
+        });
+        FutureTask<String> leader = inFlightLoads.putIfAbsent(key, task);
+        if (leader == null) {
+            try {
+                task.run();
+            } finally {
+                inFlightLoads.remove(key, task);
+            }
+            leader = task;
+        }
+
+        return waitFor(leader);
+    }
+
+    private void refreshInBackground(final String key, final CacheLoader loader, final int timeout) {
+        final FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return load(key, loader, timeout, false);
+            }
+        });
+        if (inFlightRefreshes.putIfAbsent(key, task) != null) {
+            return;
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                    task.get();
+                } catch (Exception e) {
+                    logger.warn("Early refresh of " + key + " failed", e);
+                } finally {
+                    inFlightRefreshes.remove(key, task);
+                }
+            }
+        });
+    }
+
+    /**
+     * @param waitForOthers
+     *            false to give up when another client holds the lock
+     */
+    private String load(String key, CacheLoader loader, int timeout, boolean waitForOthers) throws Exception {
+        String token = null;
+        if (lockScripting != null) {
+            token = tryLock(key);
+            if (token == null) {
+                if (!waitForOthers) {
+                    return null;
+                }
+
+                String loaded = waitForOtherLoader(key);
+                if (loaded != null) {
+                    return valueOf(loaded);
+                }
+                logger.debug("Lock of " + key + " expired before its value was loaded, loading it");
+            }
+        }
+
+        try {
+            long start = now();
+            String value = loader.load(key);
+            if (value != null) {
+                long end = now();
+                delegate.setex(key, timeout, wrap(value, end + TimeUnit.SECONDS.toMillis(timeout), end - start));
+            }
+            return value;
+        } finally {
+            if (token != null) {
+                unlock(key, token);
+            }
+        }
+    }
+
+    private String tryLock(String key) {
+        String token = UUID.randomUUID().toString();
+        Object locked = lockScripting.eval(lockScript, Arrays.asList(key + LOCK_SUFFIX), Arrays.asList(token, Long.toString(lockTimeoutMillis)));
+        return locked != null ? token : null;
+    }
+
+    private void unlock(String key, String token) {
+        try {
+            lockScripting.eval(unlockScript, Arrays.asList(key + LOCK_SUFFIX), Arrays.asList(token));
+        } catch (JedisException e) {
+            // expires by itself
+            logger.debug("Cannot release the lock of " + key, e);
+        }
+    }
+
+    private String waitForOtherLoader(String key) throws InterruptedException {
+        long deadline = now() + lockTimeoutMillis;
+        while (now() < deadline) {
+            Thread.sleep(LOCK_POLL_MILLIS);
+            String cached = delegate.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * XFetch : now - delta * beta * log(random) >= expiry.
+     */
+    boolean shouldRefreshEarly(String cached) {
+        if (!cached.startsWith(ENVELOPE)) {
+            return false;
+        }
+
+        int expiryEnd = cached.indexOf(':', ENVELOPE.length());
+        int deltaEnd = cached.indexOf(':', expiryEnd + 1);
+        long expiry = Long.parseLong(cached.substring(ENVELOPE.length(), expiryEnd));
+        long delta = Long.parseLong(cached.substring(expiryEnd + 1, deltaEnd));
+
+        return now() - delta * beta * Math.log(random()) >= expiry;
+    }
+
+    static String wrap(String value, long expiryMillis, long deltaMillis) {
+        return ENVELOPE + expiryMillis + ':' + deltaMillis + ':' + value;
+    }
+
+    /**
+     * @return the cached value without its envelope, if any
+     */
+    static String valueOf(String cached) {
+        if (cached == null || !cached.startsWith(ENVELOPE)) {
+            return cached;
+        }
+
+        int expiryEnd = cached.indexOf(':', ENVELOPE.length());
+        return cached.substring(cached.indexOf(':', expiryEnd + 1) + 1);
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    double random() {
+        return Math.random();
+    }
+
+    private static String waitFor(FutureTask<String> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException("Interrupted while waiting for a load in flight", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new JedisException(e.getCause());
+        }
+    }
+
+    /* IRejis */
+
+    @Override
+    public String get(String key) {
+        return valueOf(delegate.get(key));
+    }
+
+    @Override
+    public Map<String, String> mget(String... keys) {
+        Map<String, String> values = new LinkedHashMap<String, String>(delegate.mget(keys));
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            value.setValue(valueOf(value.getValue()));
+        }
+        return values;
+    }
+
+    @Override
+    public String set(String key, String value) {
+        return delegate.set(key, value);
+    }
+
+    @Override
+    public String setex(String key, int timeout, String value) {
+        return delegate.setex(key, timeout, value);
+    }
+
+    @Override
+    public Long del(String... keys) {
+        return delegate.del(keys);
+    }
+
+    @Override
+    public Boolean exists(String key) {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public Long expire(String key, int timeout) {
+        return delegate.expire(key, timeout);
+    }
+
+    @Override
+    public void mset(Map<String, String> keyValues) {
+        delegate.mset(keyValues);
+    }
+
+    @Override
+    public void msetex(Map<String, String> keyValues, Map<String, Integer> timeouts) {
+        delegate.msetex(keyValues, timeouts);
+    }
+
+    @Override
+    public Map<String, Boolean> mexists(String... keys) {
+        return delegate.mexists(keys);
+    }
+
+    @Override
+    public Map<String, Long> mexpire(Map<String, Integer> timeouts) {
+        return delegate.mexpire(timeouts);
+    }
+
+    @Override
+    public void destroyPools() {
+        delegate.destroyPools();
+    }
+
+    /* settings */
+
+    public double getBeta() {
+        return beta;
+    }
+
+    /**
+     * @param beta
+     *            above 1 to refresh earlier, below 1 later, 0 never
+     */
+    public void setBeta(double beta) {
+        if (beta < 0) {
+            throw new IllegalArgumentException("Beta must not be negative");
+        }
+        this.beta = beta;
+    }
+
+    /**
+     * Load a key once at a time across all the clients, with a lock in
+     * Redis next to the key.
+     *
+     * @param scripting
+     *            runs the lock scripts, typically the template given to the
+     *            constructor
+     * @param timeout
+     *            of the lock, should exceed the loading time
+     * @param unit
+     */
+    public void setDistributedLock(IRejisScripting scripting, long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Lock timeout must be positive");
+        }
+
+        this.lockScript = scripting.registerScript(LOCK_SCRIPT);
+        this.unlockScript = scripting.registerScript(UNLOCK_SCRIPT);
+        this.lockTimeoutMillis = unit.toMillis(timeout);
+        this.lockScripting = scripting;
+    }
+}
@@ -0,0 +1,13 @@
+package redis.clients.rejis;
+
+/**
+ * Computes the value of a key missing from the cache, see
+ * {@link CacheAsideJedisTemplate}.
+ */
+public interface CacheLoader {
+
+    /**
+     * @return the value, null to cache nothing
+     */
+    String load(String key) throws Exception;
+}
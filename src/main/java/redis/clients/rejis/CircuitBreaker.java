@@ -0,0 +1,106 @@
+package redis.clients.rejis;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Circuit breaker of one redis node.
+ * <p>
+ * CLOSED : requests go through, failureThreshold consecutive failures open
+ * the circuit. OPEN : requests are refused without touching the node until
+ * openDuration has elapsed. HALF_OPEN : a single probe request goes through,
+ * its success closes the circuit and its failure opens it again. A probe
+ * nobody reported about is replaced after openDuration. Successes reported
+ * while OPEN are ignored.
+ * <p>
+ * The closed state, the usual one, takes no lock.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private long probeStartedAt;
+
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive");
+        }
+
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = unit.toNanos(openDuration);
+    }
+
+    /**
+     * @return true if a request can be sent to the node
+     */
+    public boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+
+            if (state == State.OPEN && now - openedAt >= openDurationNanos) {
+                state = State.HALF_OPEN;
+                probeStartedAt = now;
+                return true;
+            }
+
+            if (state == State.HALF_OPEN && now - probeStartedAt >= openDurationNanos) {
+                probeStartedAt = now;
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Ignored while OPEN : the request started before the circuit opened,
+     * only a probe closes it.
+     */
+    public void onSuccess() {
+        State current = state;
+        if (current == State.OPEN) {
+            return;
+        }
+
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+
+        if (current == State.HALF_OPEN) {
+            synchronized (this) {
+                if (state == State.HALF_OPEN) {
+                    state = State.CLOSED;
+                }
+            }
+        }
+    }
+
+    public void onFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            synchronized (this) {
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+            }
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+}
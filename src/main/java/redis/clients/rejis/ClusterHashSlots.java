@@ -0,0 +1,62 @@
+package redis.clients.rejis;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * Hash slot of a key in a Redis Cluster : CRC16 (XMODEM) of the key, or of
+ * its hash tag (the part between the first '{' and the next '}', when not
+ * empty), modulo 16384.
+ */
+public final class ClusterHashSlots {
+
+    public static final int SLOT_COUNT = 16384;
+
+    private static final int[] CRC16_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC16_TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    private ClusterHashSlots() {
+    }
+
+    public static int slotOf(String key) {
+        return slotOf(SafeEncoder.encode(key));
+    }
+
+    public static int slotOf(byte[] key) {
+        int start = 0;
+        int end = key.length;
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] == '{') {
+                for (int j = i + 1; j < key.length; j++) {
+                    if (key[j] == '}') {
+                        if (j > i + 1) {
+                            start = i + 1;
+                            end = j;
+                        }
+                        break;
+                    }
+                }
+                break;
+            }
+        }
+
+        return crc16(key, start, end) & (SLOT_COUNT - 1);
+    }
+
+    static int crc16(byte[] bytes, int from, int to) {
+        int crc = 0;
+        for (int i = from; i < to; i++) {
+            crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ bytes[i]) & 0xFF]) & 0xFFFF;
+        }
+
+        return crc;
+    }
+}
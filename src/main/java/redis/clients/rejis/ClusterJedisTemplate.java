@@ -0,0 +1,830 @@
+package redis.clients.rejis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.pool.BasePoolableObjectFactory;
+import org.apache.commons.pool.impl.GenericObjectPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * Template for a Redis Cluster.
+ * <p>
+ * Each key goes to the master of its hash slot, from a slot map loaded with
+ * CLUSTER SLOTS. A MOVED redirect updates the slot and reloads the map, an
+ * ASK redirect is followed once with ASKING. Each node has its own pool.
+ * Reads may go to the replicas of the slot (READONLY connections), see
+ * {@link #setReadFromReplicas(boolean)}.
+ * <p>
+ * Multi-key operations are split by node, each part pipelined on one
+ * connection of its node, the parts run in parallel.
+ */
+public class ClusterJedisTemplate implements IRejis, IRejisScripting {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterJedisTemplate.class);
+
+    public static final int DEFAULT_MAX_REDIRECTIONS = 5;
+
+    private final GenericObjectPool.Config poolConfig;
+    private final int timeout;
+    private final String password;
+    private final Set<String> seeds;
+
+    private final ConcurrentMap<String, Pool<Jedis>> masterPools = new ConcurrentHashMap<String, Pool<Jedis>>();
+    private final ConcurrentMap<String, Pool<Jedis>> replicaPools = new ConcurrentHashMap<String, Pool<Jedis>>();
+
+    // node (host:port) serving each slot
+    private final AtomicReferenceArray<String> slotMasters = new AtomicReferenceArray<String>(ClusterHashSlots.SLOT_COUNT);
+    private final AtomicReferenceArray<String[]> slotReplicas = new AtomicReferenceArray<String[]>(ClusterHashSlots.SLOT_COUNT);
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final AtomicInteger replicaCounter = new AtomicInteger();
+    private final ScriptRegistry scripts = new ScriptRegistry();
+
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+
+    private volatile boolean readFromReplicas;
+    private volatile int maxRedirections = DEFAULT_MAX_REDIRECTIONS;
+
+    /**
+     * @param seeds
+     *            host:port of some nodes of the cluster, the others are found
+     *            from their slot map
+     */
+    public ClusterJedisTemplate(JedisPoolConfig jedisPoolConfig, Collection<String> seeds, String password) {
+        this(jedisPoolConfig, seeds, Protocol.DEFAULT_TIMEOUT, password, AsyncJedisTemplate.defaultExecutor(), true);
+    }
+
+    /**
+     * @param executor
+     *            runs the parts of the multi-key operations; not shut down
+     *            by {@link #destroyPools()}, the caller keeps ownership
+     */
+    public ClusterJedisTemplate(JedisPoolConfig jedisPoolConfig, Collection<String> seeds, int timeout, String password, ExecutorService executor) {
+        this(jedisPoolConfig, seeds, timeout, password, executor, false);
+    }
+
+    private ClusterJedisTemplate(JedisPoolConfig jedisPoolConfig, Collection<String> seeds, int timeout, String password, ExecutorService executor,
+            boolean ownExecutor) {
+        if (seeds.isEmpty()) {
+            throw new IllegalArgumentException("At least one seed node is required");
+        }
+
+        this.poolConfig = jedisPoolConfig;
+        this.seeds = new LinkedHashSet<String>(seeds);
+        this.timeout = timeout;
+        this.password = StringUtils.isEmpty(password) ? null : password;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+
+        refreshSlots();
+    }
+
+    /* single key */
+
+    @Override
+    public String get(final String key) {
+        return execute(key, true, new JedisCallback<Jedis, String>() {
+            @Override
+            public String doJedisAction(Jedis jedis) {
+                return jedis.get(key);
+            }
+        });
+    }
+
+    @Override
+    public String set(final String key, final String value) {
+        return execute(key, false, new JedisCallback<Jedis, String>() {
+            @Override
+            public String doJedisAction(Jedis jedis) {
+                return jedis.set(key, value);
+            }
+        });
+    }
+
+    @Override
+    public String setex(final String key, final int timeout, final String value) {
+        return execute(key, false, new JedisCallback<Jedis, String>() {
+            @Override
+            public String doJedisAction(Jedis jedis) {
+                return jedis.setex(key, timeout, value);
+            }
+        });
+    }
+
+    @Override
+    public Boolean exists(final String key) {
+        return execute(key, true, new JedisCallback<Jedis, Boolean>() {
+            @Override
+            public Boolean doJedisAction(Jedis jedis) {
+                return jedis.exists(key);
+            }
+        });
+    }
+
+    @Override
+    public Long expire(final String key, final int timeout) {
+        return execute(key, false, new JedisCallback<Jedis, Long>() {
+            @Override
+            public Long doJedisAction(Jedis jedis) {
+                return jedis.expire(key, timeout);
+            }
+        });
+    }
+
+    /* multi keys */
+
+    @Override
+    public Long del(String... keys) {
+        Map<String, Long> deleted = executeMulti(Arrays.asList(keys), false, new PipelineCallback<Long>() {
+            @Override
+            public Response<Long> doPipelineAction(RejisPipeline pipeline, String key) {
+                return pipeline.commands().del(key);
+            }
+        });
+
+        long total = 0;
+        for (Long count : deleted.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, String> mget(String... keys) {
+        return executeMulti(Arrays.asList(keys), true, new PipelineCallback<String>() {
+            @Override
+            public Response<String> doPipelineAction(RejisPipeline pipeline, String key) {
+                return pipeline.commands().get(key);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Boolean> mexists(String... keys) {
+        return executeMulti(Arrays.asList(keys), true, new PipelineCallback<Boolean>() {
+            @Override
+            public Response<Boolean> doPipelineAction(RejisPipeline pipeline, String key) {
+                return pipeline.commands().exists(key);
+            }
+        });
+    }
+
+    @Override
+    public void mset(final Map<String, String> keyValues) {
+        executeMulti(keyValues.keySet(), false, new PipelineCallback<String>() {
+            @Override
+            public Response<String> doPipelineAction(RejisPipeline pipeline, String key) {
+                return pipeline.commands().set(key, keyValues.get(key));
+            }
+        });
+    }
+
+    @Override
+    public void msetex(final Map<String, String> keyValues, final Map<String, Integer> timeouts) {
+        if (!timeouts.keySet().containsAll(keyValues.keySet())) {
+            throw new IllegalArgumentException("A timeout is required for each key");
+        }
+
+        executeMulti(keyValues.keySet(), false, new PipelineCallback<String>() {
+            @Override
+            public Response<String> doPipelineAction(RejisPipeline pipeline, String key) {
+                return pipeline.commands().setex(key, timeouts.get(key), keyValues.get(key));
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Long> mexpire(final Map<String, Integer> timeouts) {
+        return executeMulti(timeouts.keySet(), false, new PipelineCallback<Long>() {
+            @Override
+            public Response<Long> doPipelineAction(RejisPipeline pipeline, String key) {
+                return pipeline.commands().expire(key, timeouts.get(key));
+            }
+        });
+    }
+
+    @Override
+    public void destroyPools() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+
+        for (Pool<Jedis> pool : masterPools.values()) {
+            destroyQuietly(pool);
+        }
+        for (Pool<Jedis> pool : replicaPools.values()) {
+            destroyQuietly(pool);
+        }
+        masterPools.clear();
+        replicaPools.clear();
+    }
+
+    /* scan */
+
+    /**
+     * Keys matching the pattern, scanned on each master in turn.
+     */
+    public Iterator<String> scan(String pattern, int count, boolean prefetch) {
+        final List<String> masters = new ArrayList<String>(distinctMasters());
+
+        return new KeyScanner(new KeyScanner.PageLoader() {
+            @Override
+            public KeyScanner.Page load(int node, final String cursor, final String pattern, final int count) {
+                if (node >= masters.size()) {
+                    return null;
+                }
+
+                Pool<Jedis> pool = masterPool(masters.get(node));
+                Jedis jedis = pool.getResource();
+                try {
+                    KeyScanner.Page page = KeyScanner.scan(jedis, cursor, pattern, count);
+                    pool.returnResource(jedis);
+                    return page;
+                } catch (JedisConnectionException e) {
+                    returnBrokenQuietly(pool, jedis);
+                    throw e;
+                }
+            }
+        }, pattern, count, prefetch);
+    }
+
+    /**
+     * Delete the keys matching the pattern as they are scanned, in batches
+     * of count keys split by node.
+     * 
+     * @return number of deleted keys
+     */
+    public long scanAndDelete(String pattern, int count) {
+        Iterator<String> keys = scan(pattern, count, true);
+        List<String> batch = new ArrayList<String>(count);
+        long deleted = 0;
+        while (keys.hasNext()) {
+            batch.add(keys.next());
+            if (batch.size() == count || !keys.hasNext()) {
+                deleted += del(batch.toArray(new String[batch.size()]));
+                batch.clear();
+            }
+        }
+
+        return deleted;
+    }
+
+    /* scripts */
+
+    @Override
+    public LuaScript registerScript(String body) {
+        return scripts.register(body);
+    }
+
+    /**
+     * The keys must be in the same slot, see hash tags.
+     */
+    @Override
+    public Object eval(final LuaScript script, final List<String> keys, final List<String> args) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("A script needs a key to be routed to a slot");
+        }
+
+        return execute(keys.get(0), false, new JedisCallback<Jedis, Object>() {
+            @Override
+            public Object doJedisAction(Jedis jedis) {
+                return script.eval(jedis, keys, args);
+            }
+        });
+    }
+
+    /**
+     * Load the scripts on the masters known at the time; a master elected
+     * later loads them on their first run.
+     */
+    @Override
+    public void loadScripts() {
+        Collection<LuaScript> registered = scripts.getScripts();
+        if (registered.isEmpty()) {
+            return;
+        }
+
+        for (String master : distinctMasters()) {
+            Pool<Jedis> pool = masterPool(master);
+            Jedis jedis = pool.getResource();
+            boolean broken = false;
+            try {
+                for (LuaScript script : registered) {
+                    script.load(jedis);
+                }
+            } catch (JedisConnectionException e) {
+                broken = true;
+                returnBrokenQuietly(pool, jedis);
+                throw e;
+            } finally {
+                if (!broken) {
+                    pool.returnResource(jedis);
+                }
+            }
+        }
+    }
+
+    /* routing */
+
+    /**
+     * Run the callback on the node serving the slot of the key, following
+     * the redirects.
+     */
+    protected <T> T execute(String key, boolean read, JedisCallback<Jedis, T> jedisCallback) {
+        int slot = ClusterHashSlots.slotOf(key);
+        String node = read && readFromReplicas ? replicaOf(slot) : null;
+        boolean replica = node != null;
+        if (node == null) {
+            node = masterOf(slot);
+        }
+
+        boolean asking = false;
+        JedisException lastError = null;
+        for (int attempt = 0; attempt <= maxRedirections; attempt++) {
+            Pool<Jedis> pool = replica ? replicaPool(node) : masterPool(node);
+            Jedis jedis = null;
+            boolean isResourceInError = false;
+            try {
+                jedis = pool.getResource();
+                if (asking) {
+                    Resp.sendCommand(jedis, "ASKING");
+                }
+
+                return jedisCallback.doJedisAction(jedis);
+            } catch (JedisConnectionException e) {
+                isResourceInError = true;
+                returnBrokenQuietly(pool, jedis);
+                lastError = e;
+                refreshSlotsQuietly();
+                node = masterOf(slot);
+                asking = false;
+            } catch (JedisDataException e) {
+                Redirect redirect = Redirect.of(e);
+                if (redirect == null) {
+                    throw e;
+                }
+
+                lastError = e;
+                node = redirect.node;
+                asking = !redirect.moved;
+                if (redirect.moved) {
+                    slotMasters.set(redirect.slot, redirect.node);
+                    refreshSlotsQuietly();
+                }
+            } finally {
+                if (!isResourceInError && jedis != null) {
+                    pool.returnResource(jedis);
+                }
+            }
+            replica = false;
+        }
+
+        throw new JedisConnectionException("Cannot run the command on key " + key + " after " + maxRedirections + " redirects", lastError);
+    }
+
+    /**
+     * Run the callback for each key, pipelined by node, the nodes in
+     * parallel. Keys whose reply is a redirect or whose node fails are then
+     * run one by one with {@link #execute(String, boolean, JedisCallback)}.
+     */
+    protected <T> Map<String, T> executeMulti(Collection<String> keys, final boolean read, final PipelineCallback<T> pipelineCallback) {
+        Map<String, List<String>> keysByNode = new LinkedHashMap<String, List<String>>();
+        for (String key : keys) {
+            int slot = ClusterHashSlots.slotOf(key);
+            String node = read && readFromReplicas ? replicaOf(slot) : null;
+            String group = node != null ? "r:" + node : "m:" + masterOf(slot);
+            List<String> nodeKeys = keysByNode.get(group);
+            if (nodeKeys == null) {
+                nodeKeys = new ArrayList<String>();
+                keysByNode.put(group, nodeKeys);
+            }
+            nodeKeys.add(key);
+        }
+
+        List<Future<Map<String, T>>> parts = new ArrayList<Future<Map<String, T>>>(keysByNode.size());
+        Map<String, T> lastPart = null;
+        int remaining = keysByNode.size();
+        for (Map.Entry<String, List<String>> entry : keysByNode.entrySet()) {
+            final String group = entry.getKey();
+            final List<String> nodeKeys = entry.getValue();
+            Callable<Map<String, T>> part = new Callable<Map<String, T>>() {
+                @Override
+                public Map<String, T> call() {
+                    return executeOnNode(group, nodeKeys, read, pipelineCallback);
+                }
+            };
+
+            if (--remaining == 0) {
+                // last part runs in the caller thread
+                lastPart = executeOnNode(group, nodeKeys, read, pipelineCallback);
+            } else {
+                parts.add(executor.submit(part));
+            }
+        }
+
+        Map<String, T> partResults = new LinkedHashMap<String, T>(keys.size());
+        for (Future<Map<String, T>> part : parts) {
+            partResults.putAll(waitFor(part));
+        }
+        if (lastPart != null) {
+            partResults.putAll(lastPart);
+        }
+
+        Map<String, T> results = new LinkedHashMap<String, T>(keys.size());
+        for (String key : keys) {
+            results.put(key, partResults.get(key));
+        }
+        return results;
+    }
+
+    private <T> Map<String, T> executeOnNode(String group, List<String> keys, boolean read, final PipelineCallback<T> pipelineCallback) {
+        String node = group.substring(2);
+        Pool<Jedis> pool = group.startsWith("r:") ? replicaPool(node) : masterPool(node);
+        Map<String, T> results = new LinkedHashMap<String, T>(keys.size());
+        List<String> redirectedKeys = new ArrayList<String>();
+
+        Jedis jedis = null;
+        boolean isResourceInError = false;
+        try {
+            jedis = pool.getResource();
+            RejisPipeline pipeline = RejisPipeline.of(jedis);
+            List<Response<T>> responses = new ArrayList<Response<T>>(keys.size());
+            for (String key : keys) {
+                responses.add(pipelineCallback.doPipelineAction(pipeline, key));
+            }
+            pipeline.sync();
+
+            for (int i = 0; i < keys.size(); i++) {
+                try {
+                    results.put(keys.get(i), responses.get(i).get());
+                } catch (JedisDataException e) {
+                    if (Redirect.of(e) == null) {
+                        throw e;
+                    }
+                    redirectedKeys.add(keys.get(i));
+                }
+            }
+        } catch (JedisConnectionException e) {
+            isResourceInError = true;
+            returnBrokenQuietly(pool, jedis);
+            logger.debug("Cannot pipeline " + keys.size() + " keys on " + node + ", running them one by one", e);
+            refreshSlotsQuietly();
+            redirectedKeys.clear();
+            redirectedKeys.addAll(keys);
+            results.clear();
+        } finally {
+            if (!isResourceInError && jedis != null) {
+                pool.returnResource(jedis);
+            }
+        }
+
+        for (final String key : redirectedKeys) {
+            results.put(key, execute(key, read, new JedisCallback<Jedis, T>() {
+                @Override
+                public T doJedisAction(Jedis jedis) {
+                    RejisPipeline pipeline = RejisPipeline.of(jedis);
+                    Response<T> response = pipelineCallback.doPipelineAction(pipeline, key);
+                    pipeline.sync();
+
+                    return response.get();
+                }
+            }));
+        }
+
+        return results;
+    }
+
+    private Set<String> distinctMasters() {
+        Set<String> masters = new LinkedHashSet<String>();
+        for (int slot = 0; slot < ClusterHashSlots.SLOT_COUNT; slot++) {
+            String master = slotMasters.get(slot);
+            if (master != null) {
+                masters.add(master);
+            }
+        }
+        return masters;
+    }
+
+    private String masterOf(int slot) {
+        String node = slotMasters.get(slot);
+        if (node == null) {
+            // slot not covered yet : any node will redirect
+            node = seeds.iterator().next();
+        }
+
+        return node;
+    }
+
+    /**
+     * @return a replica of the slot, null if it has none
+     */
+    private String replicaOf(int slot) {
+        String[] replicas = slotReplicas.get(slot);
+        if (replicas == null || replicas.length == 0) {
+            return null;
+        }
+
+        return replicas[(replicaCounter.getAndIncrement() & Integer.MAX_VALUE) % replicas.length];
+    }
+
+    /* slot map */
+
+    /**
+     * Reload the slot map from the first node that answers CLUSTER SLOTS.
+     */
+    public void refreshSlots() {
+        Set<String> nodes = new LinkedHashSet<String>(seeds);
+        nodes.addAll(masterPools.keySet());
+
+        JedisException lastError = null;
+        for (String node : nodes) {
+            Pool<Jedis> pool = masterPool(node);
+            Jedis jedis = null;
+            boolean isResourceInError = false;
+            try {
+                jedis = pool.getResource();
+                applySlots(node, (List<?>) Resp.sendCommand(jedis, "CLUSTER", "SLOTS"));
+
+                return;
+            } catch (JedisConnectionException e) {
+                isResourceInError = true;
+                returnBrokenQuietly(pool, jedis);
+                lastError = e;
+            } catch (JedisDataException e) {
+                lastError = e;
+            } finally {
+                if (!isResourceInError && jedis != null) {
+                    pool.returnResource(jedis);
+                }
+            }
+        }
+
+        throw new JedisConnectionException("Cannot load the slots of the cluster from " + nodes, lastError);
+    }
+
+    private void refreshSlotsQuietly() {
+        // a single refresh at a time, the other threads go on with the map
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            refreshSlots();
+        } catch (JedisException e) {
+            logger.debug("Cannot refresh the slots of the cluster", e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    /**
+     * @param slots
+     *            reply of CLUSTER SLOTS : [start, end, [host, port, ...],
+     *            replicas...] for each range
+     */
+    void applySlots(String askedNode, List<?> slots) {
+        for (Object range : slots) {
+            List<?> fields = (List<?>) range;
+            int start = ((Long) fields.get(0)).intValue();
+            int end = ((Long) fields.get(1)).intValue();
+            String master = nodeName(askedNode, (List<?>) fields.get(2));
+            String[] replicas = new String[fields.size() - 3];
+            for (int i = 3; i < fields.size(); i++) {
+                replicas[i - 3] = nodeName(askedNode, (List<?>) fields.get(i));
+            }
+
+            for (int slot = start; slot <= end; slot++) {
+                slotMasters.set(slot, master);
+                slotReplicas.set(slot, replicas);
+            }
+        }
+    }
+
+    private static String nodeName(String askedNode, List<?> node) {
+        String host = SafeEncoder.encode((byte[]) node.get(0));
+        if (host.isEmpty()) {
+            // the node we asked, which does not know its own address
+            host = askedNode.substring(0, askedNode.lastIndexOf(':'));
+        }
+
+        return host + ":" + node.get(1);
+    }
+
+    /* pools */
+
+    private Pool<Jedis> masterPool(String node) {
+        return poolOf(masterPools, node, false);
+    }
+
+    private Pool<Jedis> replicaPool(String node) {
+        return poolOf(replicaPools, node, true);
+    }
+
+    private Pool<Jedis> poolOf(ConcurrentMap<String, Pool<Jedis>> pools, String node, boolean readOnly) {
+        Pool<Jedis> pool = pools.get(node);
+        if (pool != null) {
+            return pool;
+        }
+
+        int separator = node.lastIndexOf(':');
+        Pool<Jedis> created = new ClusterNodePool(poolConfig, new ClusterNodeFactory(node.substring(0, separator), Integer.parseInt(node
+                .substring(separator + 1)), timeout, password, readOnly));
+        pool = pools.putIfAbsent(node, created);
+        if (pool == null) {
+            return created;
+        }
+
+        destroyQuietly(created);
+        return pool;
+    }
+
+    private static void returnBrokenQuietly(Pool<Jedis> pool, Jedis jedis) {
+        if (jedis == null) {
+            return;
+        }
+
+        try {
+            pool.returnBrokenResource(jedis);
+        } catch (JedisException e) {
+            logger.debug("Cannot return broken resource", e);
+        }
+    }
+
+    private static void destroyQuietly(Pool<Jedis> pool) {
+        try {
+            pool.destroy();
+        } catch (JedisException e) {
+            logger.debug("Cannot destroy pool", e);
+        }
+    }
+
+    private static <T> T waitFor(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException("Interrupted while waiting for a cluster node", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new JedisException(e.getCause());
+        }
+    }
+
+    /* configuration */
+
+    public boolean isReadFromReplicas() {
+        return readFromReplicas;
+    }
+
+    /**
+     * @param readFromReplicas
+     *            true to send get and exists to the replicas of the slot,
+     *            which may lag behind their master
+     */
+    public void setReadFromReplicas(boolean readFromReplicas) {
+        this.readFromReplicas = readFromReplicas;
+    }
+
+    public int getMaxRedirections() {
+        return maxRedirections;
+    }
+
+    public void setMaxRedirections(int maxRedirections) {
+        this.maxRedirections = maxRedirections;
+    }
+
+    /**
+     * @return node serving the slot, null if unknown
+     */
+    public String getNodeOfSlot(int slot) {
+        return slotMasters.get(slot);
+    }
+
+    /**
+     * MOVED or ASK error reply.
+     */
+    static final class Redirect {
+        final boolean moved;
+        final int slot;
+        final String node;
+
+        private Redirect(boolean moved, int slot, String node) {
+            this.moved = moved;
+            this.slot = slot;
+            this.node = node;
+        }
+
+        /**
+         * @return null if the error is not a redirect
+         */
+        static Redirect of(JedisDataException e) {
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+
+            String message = cause.getMessage();
+            if (message == null) {
+                return null;
+            }
+
+            String[] parts = message.split(" ");
+            if (parts.length != 3 || !("MOVED".equals(parts[0]) || "ASK".equals(parts[0]))) {
+                return null;
+            }
+
+            return new Redirect("MOVED".equals(parts[0]), Integer.parseInt(parts[1]), parts[2]);
+        }
+    }
+
+    private static class ClusterNodePool extends Pool<Jedis> {
+        ClusterNodePool(GenericObjectPool.Config poolConfig, ClusterNodeFactory factory) {
+            super(poolConfig, factory);
+        }
+    }
+
+    /**
+     * Connections to one node, READONLY for the replica pools.
+     */
+    private static class ClusterNodeFactory extends BasePoolableObjectFactory<Jedis> {
+        private final String host;
+        private final int port;
+        private final int timeout;
+        private final String password;
+        private final boolean readOnly;
+
+        ClusterNodeFactory(String host, int port, int timeout, String password, boolean readOnly) {
+            this.host = host;
+            this.port = port;
+            this.timeout = timeout;
+            this.password = password;
+            this.readOnly = readOnly;
+        }
+
+        @Override
+        public Jedis makeObject() {
+            Jedis jedis = new Jedis(host, port, timeout);
+            jedis.connect();
+            if (password != null) {
+                jedis.auth(password);
+            }
+            if (readOnly) {
+                Resp.sendCommand(jedis, "READONLY");
+            }
+
+            return jedis;
+        }
+
+        @Override
+        public void destroyObject(Jedis jedis) {
+            if (jedis.isConnected()) {
+                try {
+                    jedis.quit();
+                } catch (JedisException e) {
+                    // disconnected anyway
+                }
+                jedis.disconnect();
+            }
+        }
+
+        @Override
+        public boolean validateObject(Jedis jedis) {
+            try {
+                return jedis.isConnected() && "PONG".equals(jedis.ping());
+            } catch (JedisException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package redis.clients.rejis;
+
+/**
+ * Turns the values of an {@link ObjectJedisTemplate} into bytes and back.
+ */
+public interface Codec<T> {
+
+    byte[] encode(T value);
+
+    /**
+     * @param bytes
+     *            may be a buffer reused once this method returns : it must
+     *            not be kept by the decoded value
+     */
+    T decode(byte[] bytes, int offset, int length);
+}
@@ -0,0 +1,194 @@
+package redis.clients.rejis;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Deflates the values encoded by another codec once they reach a size
+ * threshold.
+ * <p>
+ * A compressed payload starts with a header (3 magic bytes, then the length
+ * of the uncompressed value), any other payload is given as is to the
+ * wrapped codec : values written before compression was enabled, or below
+ * the threshold, stay readable. A value is stored uncompressed when deflate
+ * does not make it smaller. An uncompressed value that starts with the magic
+ * bytes is escaped, with a header of length -1.
+ * <p>
+ * Deflaters, inflaters and work buffers are kept per thread and reused.
+ */
+public class CompressingCodec<T> implements Codec<T> {
+
+    public static final int DEFAULT_THRESHOLD = 4096;
+
+    static final byte[] MAGIC = { (byte) 0xF1, 'R', 'Z' };
+    static final int HEADER_LENGTH = MAGIC.length + 4;
+    static final int ESCAPED = -1;
+
+    // deflate cannot do better, longer lengths come from corrupted headers
+    private static final long MAX_DEFLATE_RATIO = 1032;
+
+    private final Codec<T> codec;
+    private final int threshold;
+    private final int level;
+
+    private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return new Workspace(level);
+        }
+    };
+
+    public CompressingCodec(Codec<T> codec) {
+        this(codec, DEFAULT_THRESHOLD, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param threshold
+     *            size in bytes from which encoded values are compressed
+     * @param level
+     *            deflate level, from {@link Deflater#BEST_SPEED} to
+     *            {@link Deflater#BEST_COMPRESSION}
+     */
+    public CompressingCodec(Codec<T> codec, int threshold, int level) {
+        if (threshold < HEADER_LENGTH) {
+            throw new IllegalArgumentException("Compression threshold must be at least " + HEADER_LENGTH);
+        }
+
+        this.codec = codec;
+        this.threshold = threshold;
+        this.level = level;
+    }
+
+    @Override
+    public byte[] encode(T value) {
+        byte[] raw = codec.encode(value);
+        if (raw.length < threshold) {
+            return escape(raw);
+        }
+
+        Workspace workspace = workspaces.get();
+        byte[] buffer = workspace.buffer(raw.length);
+        Deflater deflater = workspace.deflater;
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int compressedLength = HEADER_LENGTH;
+        while (!deflater.finished() && compressedLength < raw.length) {
+            compressedLength += deflater.deflate(buffer, compressedLength, raw.length - compressedLength);
+        }
+        if (!deflater.finished()) {
+            // not worth it
+            return escape(raw);
+        }
+
+        System.arraycopy(MAGIC, 0, buffer, 0, MAGIC.length);
+        writeInt(buffer, MAGIC.length, raw.length);
+
+        byte[] compressed = new byte[compressedLength];
+        System.arraycopy(buffer, 0, compressed, 0, compressedLength);
+
+        return compressed;
+    }
+
+    @Override
+    public T decode(byte[] bytes, int offset, int length) {
+        if (!hasHeader(bytes, offset, length)) {
+            return codec.decode(bytes, offset, length);
+        }
+
+        int rawLength = readInt(bytes, offset + MAGIC.length);
+        if (rawLength == ESCAPED) {
+            return codec.decode(bytes, offset + HEADER_LENGTH, length - HEADER_LENGTH);
+        }
+        if (rawLength < 0 || rawLength > (length - HEADER_LENGTH) * MAX_DEFLATE_RATIO) {
+            throw new JedisException("Corrupted compressed value : length " + rawLength + " for " + length + " bytes");
+        }
+
+        Workspace workspace = workspaces.get();
+        byte[] buffer = workspace.buffer(rawLength);
+        Inflater inflater = workspace.inflater;
+        inflater.reset();
+        inflater.setInput(bytes, offset + HEADER_LENGTH, length - HEADER_LENGTH);
+        try {
+            int inflated = 0;
+            while (inflated < rawLength && !inflater.finished()) {
+                int count = inflater.inflate(buffer, inflated, rawLength - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != rawLength) {
+                throw new JedisException("Truncated compressed value : " + inflated + " bytes of " + rawLength);
+            }
+        } catch (DataFormatException e) {
+            throw new JedisException("Corrupted compressed value", e);
+        }
+
+        return codec.decode(buffer, 0, rawLength);
+    }
+
+    static boolean isCompressed(byte[] bytes, int offset, int length) {
+        return hasHeader(bytes, offset, length) && readInt(bytes, offset + MAGIC.length) != ESCAPED;
+    }
+
+    /**
+     * @return the value itself, or escaped when it starts with the magic bytes
+     */
+    private static byte[] escape(byte[] raw) {
+        if (!hasHeader(raw, 0, raw.length)) {
+            return raw;
+        }
+
+        byte[] escaped = new byte[HEADER_LENGTH + raw.length];
+        System.arraycopy(MAGIC, 0, escaped, 0, MAGIC.length);
+        writeInt(escaped, MAGIC.length, ESCAPED);
+        System.arraycopy(raw, 0, escaped, HEADER_LENGTH, raw.length);
+
+        return escaped;
+    }
+
+    private static boolean hasHeader(byte[] bytes, int offset, int length) {
+        if (length < HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[offset + i] != MAGIC[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static class Workspace {
+        final Deflater deflater;
+        final Inflater inflater = new Inflater();
+        byte[] buffer = new byte[DEFAULT_THRESHOLD];
+
+        Workspace(int level) {
+            deflater = new Deflater(level);
+        }
+
+        byte[] buffer(int minLength) {
+            if (buffer.length < minLength) {
+                buffer = new byte[Math.max(minLength, buffer.length * 2)];
+            }
+            return buffer;
+        }
+    }
+}
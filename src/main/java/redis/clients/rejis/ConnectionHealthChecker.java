@@ -0,0 +1,251 @@
+package redis.clients.rejis;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.pool.impl.GenericObjectPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.BinaryShardedJedis;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+
+/**
+ * Keeps the idle connections of pools valid in the background, so that
+ * borrows need no check : templates registered here stop validating the
+ * connections they borrow.
+ * <p>
+ * Every period, the idle connections of each pool are PINGed one at a time,
+ * the others stay available to the requests, and the dead ones are closed.
+ * Commons-pool pools get new idle connections in place of the closed ones,
+ * so that requests do not have to open them.
+ * Pools built on commons-pool (JedisPool, RoundRobinPool...) are checked by
+ * their own eviction, with testWhileIdle switched on when registered; other
+ * pools, such as {@link SemaphorePool}, are checked by borrowing and
+ * returning one connection at a time, which goes over all of them when idle
+ * connections are reused in FIFO order.
+ * <p>
+ * The test on borrow of the pools should be left off.
+ */
+public class ConnectionHealthChecker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionHealthChecker.class);
+
+    private final ConcurrentMap<String, Pool<?>> pools = new ConcurrentHashMap<String, Pool<?>>();
+
+    private final AtomicLong checkedCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> task;
+
+    /**
+     * Check the pools of the template, which then borrows without checking.
+     */
+    public void register(AbstractJedisTemplate<?, ?> template, String name) {
+        if (template.getWritePool() == template.getReadPool()) {
+            register(name, template.getWritePool());
+        } else {
+            register(name + "-write", template.getWritePool());
+            register(name + "-read", template.getReadPool());
+        }
+        template.setValidateOnBorrow(false);
+    }
+
+    public void register(String name, Pool<?> pool) {
+        if (pool instanceof ReplicaPool) {
+            ReplicaPool replicaPool = (ReplicaPool) pool;
+            for (int i = 0; i < replicaPool.getNbReplicas(); i++) {
+                add(name + "-" + replicaPool.getShard(i).getHost() + ":" + replicaPool.getShard(i).getPort(), replicaPool.getPool(i));
+            }
+        } else if (pool instanceof ShardedReplicaPool) {
+            ShardedReplicaPool shardedPool = (ShardedReplicaPool) pool;
+            for (int rank = 0; rank < shardedPool.getNbRanks(); rank++) {
+                add(name + "-" + rank, shardedPool.getRank(rank));
+            }
+        } else {
+            add(name, pool);
+        }
+    }
+
+    private void add(String name, Pool<?> pool) {
+        GenericObjectPool<?> objectPool = objectPoolOf(pool);
+        if (objectPool != null) {
+            objectPool.setTestWhileIdle(true);
+        }
+        pools.put(name, pool);
+    }
+
+    /**
+     * Check the pools every period, on a daemon thread.
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (task != null) {
+            throw new IllegalStateException("Health checker already started");
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "rejis-health-check");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        task = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                check();
+            }
+        }, period, period, unit);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            scheduler.shutdown();
+            task = null;
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Check the idle connections of every pool once.
+     */
+    public void check() {
+        for (Map.Entry<String, Pool<?>> pool : pools.entrySet()) {
+            try {
+                check(pool.getValue());
+            } catch (RuntimeException e) {
+                logger.warn("Health check of pool " + pool.getKey() + " failed", e);
+            }
+        }
+    }
+
+    private void check(Pool<?> pool) {
+        int idle = RejisMetrics.numIdle(pool);
+        if (idle <= 0) {
+            return;
+        }
+
+        GenericObjectPool<?> objectPool = objectPoolOf(pool);
+        if (objectPool != null) {
+            evict(objectPool, idle);
+        } else {
+            checkOneByOne(pool, idle);
+        }
+    }
+
+    /**
+     * commons-pool takes each idle connection out of the pool only while it
+     * is tested. A direct call to evict does not open connections up to
+     * minIdle, so the connections lost are opened here.
+     */
+    private void evict(GenericObjectPool<?> objectPool, int idle) {
+        int testsPerRun = objectPool.getNumTestsPerEvictionRun();
+        if (testsPerRun == 0) {
+            return;
+        }
+        int perRun = testsPerRun > 0 ? testsPerRun : (idle - testsPerRun - 1) / -testsPerRun;
+
+        for (int tested = 0; tested < idle; tested += perRun) {
+            try {
+                objectPool.evict();
+            } catch (Exception e) {
+                throw new JedisException("Eviction of idle connections failed", e);
+            }
+        }
+
+        checkedCount.addAndGet(idle);
+        // estimated, borrows meanwhile count as evictions
+        int lost = Math.max(0, idle - objectPool.getNumIdle());
+        evictedCount.addAndGet(lost);
+
+        for (int i = 0; i < lost && objectPool.getNumIdle() < idle; i++) {
+            try {
+                objectPool.addObject();
+            } catch (Exception e) {
+                logger.warn("Cannot open a connection in place of an evicted one : " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void checkOneByOne(Pool<?> pool, int idle) {
+        Pool<Object> typedPool = (Pool<Object>) pool;
+        for (int i = 0; i < idle; i++) {
+            Object resource = typedPool.getResource();
+            checkedCount.incrementAndGet();
+            if (isAlive(resource)) {
+                typedPool.returnResource(resource);
+            } else {
+                evictedCount.incrementAndGet();
+                typedPool.returnBrokenResource(resource);
+            }
+        }
+    }
+
+    /**
+     * @return the commons-pool pool behind the pool, null for other pools
+     */
+    private static GenericObjectPool<?> objectPoolOf(Pool<?> pool) {
+        if (pool instanceof RoundRobinPool) {
+            return ((RoundRobinPool) pool).getObjectPool();
+        }
+        if (pool instanceof PoolStatistics) {
+            return null;
+        }
+
+        return RejisMetrics.internalPoolOf(pool);
+    }
+
+    static boolean isAlive(Object resource) {
+        try {
+            if (resource instanceof Jedis) {
+                return isAlive((Jedis) resource);
+            }
+
+            if (resource instanceof BinaryShardedJedis) {
+                for (Jedis shard : ((BinaryShardedJedis) resource).getAllShards()) {
+                    // shards connect lazily
+                    if (shard.isConnected() && !isAlive(shard)) {
+                        return false;
+                    }
+                }
+            }
+
+            return true;
+        } catch (JedisException e) {
+            return false;
+        }
+    }
+
+    private static boolean isAlive(Jedis jedis) {
+        return jedis.isConnected() && "PONG".equals(jedis.ping());
+    }
+
+    /**
+     * @return connections checked since creation
+     */
+    public long getCheckedCount() {
+        return checkedCount.get();
+    }
+
+    /**
+     * @return dead connections evicted since creation, estimated for the
+     *         pools built on commons-pool
+     */
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+}
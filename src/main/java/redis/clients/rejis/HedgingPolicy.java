@@ -0,0 +1,88 @@
+package redis.clients.rejis;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Settings of the hedged reads of {@link RoundRobinJedisTemplate} : a second
+ * read is sent to another replica when the first has not answered after the
+ * delay, within a budget of extra load.
+ * <p>
+ * The budget is a token bucket : each read earns maxExtraLoad token, each
+ * hedge costs one, and at most maxBurst tokens are saved. So hedges never
+ * exceed maxExtraLoad of the reads, even when all the reads are slow during
+ * an incident.
+ */
+public class HedgingPolicy {
+
+    public static final int DEFAULT_MAX_BURST = 10;
+
+    private static final long TOKEN = 1000;
+
+    private final long delayNanos;
+    private final long tokensPerRead;
+    private final long maxTokens;
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong tokens = new AtomicLong();
+
+    /**
+     * @param delay
+     *            time to wait for the first read before hedging, typically
+     *            its observed p95
+     * @param unit
+     * @param maxExtraLoad
+     *            max ratio of hedges over reads, e.g. 0.05 for 5%
+     * @param executor
+     *            runs the hedges after the delay, the first read runs on the
+     *            caller thread
+     */
+    public HedgingPolicy(long delay, TimeUnit unit, double maxExtraLoad, ScheduledExecutorService executor) {
+        this(delay, unit, maxExtraLoad, DEFAULT_MAX_BURST, executor);
+    }
+
+    public HedgingPolicy(long delay, TimeUnit unit, double maxExtraLoad, int maxBurst, ScheduledExecutorService executor) {
+        if (maxExtraLoad < 0 || maxExtraLoad > 1) {
+            throw new IllegalArgumentException("Max extra load must be in [0, 1]");
+        }
+
+        this.delayNanos = unit.toNanos(delay);
+        this.tokensPerRead = Math.round(maxExtraLoad * TOKEN);
+        this.maxTokens = maxBurst * TOKEN;
+        this.executor = executor;
+    }
+
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    void onRead() {
+        while (true) {
+            long current = tokens.get();
+            long next = Math.min(maxTokens, current + tokensPerRead);
+            if (current == next || tokens.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true when the budget allows one more hedge, and consume it
+     */
+    boolean tryAcquireHedge() {
+        while (true) {
+            long current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+}
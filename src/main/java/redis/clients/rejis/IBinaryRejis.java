@@ -0,0 +1,32 @@
+package redis.clients.rejis;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary keys and values, passed as is to Jedis : no encoding on the client
+ * side.
+ */
+public interface IBinaryRejis {
+
+    byte[] get(byte[] key);
+
+    String set(byte[] key, byte[] value);
+
+    String setex(byte[] key, int timeout, byte[] value);
+
+    Long del(byte[]... keys);
+
+    Boolean exists(byte[] key);
+
+    Long expire(byte[] key, int timeout);
+
+    /**
+     * The remaining bytes of the buffers are sent, their positions are left
+     * unchanged.
+     */
+    byte[] get(ByteBuffer key);
+
+    String set(ByteBuffer key, ByteBuffer value);
+
+    String setex(ByteBuffer key, int timeout, ByteBuffer value);
+}
@@ -1,5 +1,7 @@
 package redis.clients.rejis;
 
+import java.util.Map;
+
 public interface IRejis {
 
     String get(String key);
@@ -15,4 +17,30 @@ public interface IRejis {
     void destroyPools();
 
     Long expire(String key, int timeout);
+
+    /**
+     * Pipelined GET of all the keys on a single connection.
+     * 
+     * @return values by key, in the order of the keys (null for a missing key)
+     */
+    Map<String, String> mget(String... keys);
+
+    /**
+     * Pipelined SET of all the entries on a single connection.
+     */
+    void mset(Map<String, String> keyValues);
+
+    /**
+     * Pipelined SETEX of all the entries on a single connection, each key
+     * with its own timeout.
+     * 
+     * @param keyValues
+     * @param timeouts
+     *            timeout by key, every key of keyValues must have one
+     */
+    void msetex(Map<String, String> keyValues, Map<String, Integer> timeouts);
+
+    Map<String, Boolean> mexists(String... keys);
+
+    Map<String, Long> mexpire(Map<String, Integer> timeouts);
 }
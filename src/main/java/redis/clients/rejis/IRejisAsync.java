@@ -0,0 +1,18 @@
+package redis.clients.rejis;
+
+import java.util.concurrent.Future;
+
+public interface IRejisAsync {
+
+    Future<String> getAsync(String key);
+
+    Future<String> setAsync(String key, String value);
+
+    Future<String> setexAsync(String key, int timeout, String value);
+
+    Future<Long> delAsync(String... keys);
+
+    Future<Boolean> existsAsync(String key);
+
+    Future<Long> expireAsync(String key, int timeout);
+}
@@ -0,0 +1,27 @@
+package redis.clients.rejis;
+
+import java.util.List;
+
+/**
+ * Lua scripts run on the write nodes, by SHA1.
+ */
+public interface IRejisScripting {
+
+    /**
+     * Register a script once, typically at startup, and keep the returned
+     * script to run it.
+     */
+    LuaScript registerScript(String body);
+
+    /**
+     * Run the script on the node owning the keys, all of them on the same
+     * node.
+     */
+    Object eval(LuaScript script, List<String> keys, List<String> args);
+
+    /**
+     * SCRIPT LOAD of every registered script on every write node, so that
+     * the first runs need no EVAL.
+     */
+    void loadScripts();
+}
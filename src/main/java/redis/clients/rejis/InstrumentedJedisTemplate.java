@@ -0,0 +1,169 @@
+package redis.clients.rejis;
+
+import java.util.Map;
+
+/**
+ * Records the latency and the errors of each operation of another template
+ * in a {@link RejisMetrics}, seen from the caller : retries, fallbacks and
+ * caches of the template are included.
+ */
+public class InstrumentedJedisTemplate implements IRejis {
+
+    private final IRejis delegate;
+    private final RejisMetrics metrics;
+
+    public InstrumentedJedisTemplate(IRejis delegate, RejisMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String get(String key) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            String value = delegate.get(key);
+            failed = false;
+            return value;
+        } finally {
+            metrics.recordOperation("get", System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public Boolean exists(String key) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Boolean exists = delegate.exists(key);
+            failed = false;
+            return exists;
+        } finally {
+            metrics.recordOperation("exists", System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public String set(String key, String value) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            String reply = delegate.set(key, value);
+            failed = false;
+            return reply;
+        } finally {
+            metrics.recordOperation("set", System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public String setex(String key, int timeout, String value) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            String reply = delegate.setex(key, timeout, value);
+            failed = false;
+            return reply;
+        } finally {
+            metrics.recordOperation("setex", System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public Long del(String... keys) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Long deleted = delegate.del(keys);
+            failed = false;
+            return deleted;
+        } finally {
+            metrics.recordOperation("del", System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public Long expire(String key, int timeout) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Long reply = delegate.expire(key, timeout);
+            failed = false;
+            return reply;
+        } finally {
+            metrics.recordOperation("expire", System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public Map<String, String> mget(String... keys) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Map<String, String> values = delegate.mget(keys);
+            failed = false;
+            return values;
+        } finally {
+            metrics.recordOperation("mget", System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public Map<String, Boolean> mexists(String... keys) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Map<String, Boolean> exists = delegate.mexists(keys);
+            failed = false;
+            return exists;
+        } finally {
+            metrics.recordOperation("mexists", System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public void mset(Map<String, String> keyValues) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.mset(keyValues);
+            failed = false;
+        } finally {
+            metrics.recordOperation("mset", System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public void msetex(Map<String, String> keyValues, Map<String, Integer> timeouts) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.msetex(keyValues, timeouts);
+            failed = false;
+        } finally {
+            metrics.recordOperation("msetex", System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public Map<String, Long> mexpire(Map<String, Integer> timeouts) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Map<String, Long> replies = delegate.mexpire(timeouts);
+            failed = false;
+            return replies;
+        } finally {
+            metrics.recordOperation("mexpire", System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public void destroyPools() {
+        delegate.destroyPools();
+    }
+
+    public RejisMetrics getMetrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,164 @@
+package redis.clients.rejis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * Lazy iteration over the keys matching a pattern, one SCAN page at a time,
+ * node after node. With prefetch, the next page is loaded in the background
+ * while the current one is consumed.
+ * <p>
+ * SCAN guarantees : a key present during the whole iteration is returned at
+ * least once (maybe more), keys added or removed meanwhile may or may not be.
+ */
+public class KeyScanner implements Iterator<String> {
+
+    private static final ExecutorService PREFETCH_EXECUTOR = AsyncJedisTemplate.defaultExecutor();
+
+    private static final String START_CURSOR = "0";
+
+    /**
+     * Runs a SCAN command on a node.
+     */
+    interface PageLoader {
+        /**
+         * @return null when there is no such node
+         */
+        Page load(int node, String cursor, String pattern, int count);
+    }
+
+    static final class Page {
+        final String cursor;
+        final List<String> keys;
+
+        Page(String cursor, List<String> keys) {
+            this.cursor = cursor;
+            this.keys = keys;
+        }
+    }
+
+    private final PageLoader loader;
+    private final String pattern;
+    private final int count;
+    private final boolean prefetch;
+
+    private Iterator<String> current = Collections.<String> emptyList().iterator();
+    private int node;
+    private String cursor = START_CURSOR;
+    private boolean finished;
+    private Future<Page> nextPage;
+
+    KeyScanner(PageLoader loader, String pattern, int count, boolean prefetch) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Scan count must be positive");
+        }
+
+        this.loader = loader;
+        this.pattern = pattern;
+        this.count = count;
+        this.prefetch = prefetch;
+        this.nextPage = load(node, cursor);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext() && !finished) {
+            advance();
+        }
+
+        return current.hasNext();
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Use scanAndDelete to delete the scanned keys");
+    }
+
+    private void advance() {
+        Page page = waitFor(nextPage);
+        if (page == null) {
+            finished = true;
+            return;
+        }
+
+        current = page.keys.iterator();
+        if (START_CURSOR.equals(page.cursor)) {
+            node++;
+            cursor = START_CURSOR;
+        } else {
+            cursor = page.cursor;
+        }
+        nextPage = load(node, cursor);
+    }
+
+    private Future<Page> load(final int nodeToLoad, final String cursorToLoad) {
+        Callable<Page> task = new Callable<Page>() {
+            @Override
+            public Page call() {
+                return loader.load(nodeToLoad, cursorToLoad, pattern, count);
+            }
+        };
+
+        if (prefetch) {
+            return PREFETCH_EXECUTOR.submit(task);
+        }
+
+        // loaded when waited for
+        return new FutureTask<Page>(task) {
+            @Override
+            public Page get() throws InterruptedException, ExecutionException {
+                run();
+                return super.get();
+            }
+        };
+    }
+
+    private static Page waitFor(Future<Page> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException("Interrupted while scanning keys", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new JedisException(e.getCause());
+        }
+    }
+
+    /**
+     * SCAN cursor MATCH pattern COUNT count on the connection.
+     */
+    static Page scan(Jedis jedis, String cursor, String pattern, int count) {
+        List<?> reply = (List<?>) Resp.sendCommand(jedis, "SCAN", cursor, "MATCH", pattern, "COUNT", Integer.toString(count));
+        List<?> rawKeys = (List<?>) reply.get(1);
+        List<String> keys = new ArrayList<String>(rawKeys.size());
+        for (Object rawKey : rawKeys) {
+            keys.add(SafeEncoder.encode((byte[]) rawKey));
+        }
+
+        return new Page(SafeEncoder.encode((byte[]) reply.get(0)), keys);
+    }
+}
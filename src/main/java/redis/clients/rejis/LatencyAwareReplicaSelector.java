@@ -0,0 +1,116 @@
+package redis.clients.rejis;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prefer the fastest replicas : each replica is scored by its exponentially
+ * weighted latency times its number of outstanding reads plus one, and the
+ * best of two replicas picked at random serves the read (power of two
+ * choices). A small share of the reads goes to a random replica, so that a
+ * slow replica keeps being measured and can win its share back once it
+ * recovers.
+ */
+public class LatencyAwareReplicaSelector implements ReplicaSelector {
+
+    public static final double DEFAULT_DECAY = 0.2;
+    public static final double DEFAULT_PROBE_RATIO = 0.02;
+    public static final long DEFAULT_FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong[] ewmaLatencies;
+    private final AtomicInteger[] outstandings;
+    private final double decay;
+    private final double probeRatio;
+    private final long failurePenaltyNanos;
+
+    private final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    public LatencyAwareReplicaSelector(int nbReplicas) {
+        this(nbReplicas, DEFAULT_DECAY, DEFAULT_PROBE_RATIO, DEFAULT_FAILURE_PENALTY_NANOS);
+    }
+
+    /**
+     * @param nbReplicas
+     * @param decay
+     *            weight of the last latency in the average, between 0 and 1
+     * @param probeRatio
+     *            share of the reads sent to a random replica
+     * @param failurePenaltyNanos
+     *            latency accounted for a failed read
+     */
+    public LatencyAwareReplicaSelector(int nbReplicas, double decay, double probeRatio, long failurePenaltyNanos) {
+        if (decay <= 0 || decay > 1) {
+            throw new IllegalArgumentException("Decay must be in ]0, 1]");
+        }
+
+        this.ewmaLatencies = new AtomicLong[nbReplicas];
+        this.outstandings = new AtomicInteger[nbReplicas];
+        for (int i = 0; i < nbReplicas; i++) {
+            ewmaLatencies[i] = new AtomicLong(Double.doubleToLongBits(0));
+            outstandings[i] = new AtomicInteger();
+        }
+        this.decay = decay;
+        this.probeRatio = probeRatio;
+        this.failurePenaltyNanos = failurePenaltyNanos;
+    }
+
+    @Override
+    public int select(int nbReplicas) {
+        Random rnd = random.get();
+        if (nbReplicas == 1) {
+            return 0;
+        }
+
+        int first = rnd.nextInt(nbReplicas);
+        if (rnd.nextDouble() < probeRatio) {
+            return first;
+        }
+
+        int second = rnd.nextInt(nbReplicas - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        return score(first) <= score(second) ? first : second;
+    }
+
+    @Override
+    public void onReadStart(int replica) {
+        outstandings[replica].incrementAndGet();
+    }
+
+    @Override
+    public void onReadEnd(int replica, long latencyNanos, boolean failed) {
+        outstandings[replica].decrementAndGet();
+
+        double sample = failed ? Math.max(latencyNanos, failurePenaltyNanos) : latencyNanos;
+        AtomicLong ewma = ewmaLatencies[replica];
+        while (true) {
+            long currentBits = ewma.get();
+            double current = Double.longBitsToDouble(currentBits);
+            double next = current == 0 ? sample : current + decay * (sample - current);
+            if (ewma.compareAndSet(currentBits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    public double getLatencyNanos(int replica) {
+        return Double.longBitsToDouble(ewmaLatencies[replica].get());
+    }
+
+    public int getOutstanding(int replica) {
+        return outstandings[replica].get();
+    }
+
+    private double score(int replica) {
+        return getLatencyNanos(replica) * (outstandings[replica].get() + 1);
+    }
+}
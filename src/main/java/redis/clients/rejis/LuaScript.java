@@ -0,0 +1,76 @@
+package redis.clients.rejis;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * A Lua script and its SHA1, computed once : it is sent by EVALSHA, and by
+ * EVAL only when the node does not know it yet (after a restart, a SCRIPT
+ * FLUSH or a failover), which also loads it on the node.
+ */
+public class LuaScript {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String body;
+    private final String sha1;
+
+    public LuaScript(String body) {
+        this.body = body;
+        this.sha1 = sha1(body);
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public String getSha1() {
+        return sha1;
+    }
+
+    /**
+     * EVALSHA on the node, EVAL on NOSCRIPT.
+     */
+    public Object eval(Jedis jedis, List<String> keys, List<String> args) {
+        try {
+            return jedis.evalsha(sha1, keys, args);
+        } catch (JedisDataException e) {
+            if (e.getMessage() == null || !e.getMessage().startsWith("NOSCRIPT")) {
+                throw e;
+            }
+        }
+
+        return jedis.eval(body, keys, args);
+    }
+
+    /**
+     * SCRIPT LOAD on the node.
+     */
+    public void load(Jedis jedis) {
+        jedis.scriptLoad(body);
+    }
+
+    static String sha1(String body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(SafeEncoder.encode(body));
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[2 * i] = HEX[(digest[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LuaScript[" + sha1 + "]";
+    }
+}
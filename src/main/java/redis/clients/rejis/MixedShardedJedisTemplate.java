@@ -26,6 +26,26 @@ public class MixedShardedJedisTemplate extends AbstractJedisTemplate<ShardedJedi
         });
     }
 
+    @Override
+    public Long del(final byte[]... keys) {
+        return doPut(new JedisCallback<Jedis, Long>() {
+            @Override
+            public Long doJedisAction(Jedis jedis) {
+                return jedis.del(keys);
+            }
+        });
+    }
+
+    @Override
+    protected RejisPipeline openReadPipeline(ShardedJedis shardedJedis) {
+        return RejisPipeline.of(shardedJedis);
+    }
+
+    @Override
+    protected RejisPipeline openWritePipeline(Jedis jedis) {
+        return RejisPipeline.of(jedis);
+    }
+
     @Override
     protected Jedis getJedisFromWritePool(Pool<Jedis> writePool) {
         Jedis jedis = super.getJedisFromWritePool(writePool);
@@ -35,7 +55,7 @@ public class MixedShardedJedisTemplate extends AbstractJedisTemplate<ShardedJedi
     }
 
     protected void validClientConnection(Pool<Jedis> pool, Jedis jedis) {
-        if (null != jedis) { // utile ?
+        if (null != jedis && isValidateOnBorrow()) { // utile ?
             if (!jedis.isConnected()) {
                 try {
                     jedis.connect();
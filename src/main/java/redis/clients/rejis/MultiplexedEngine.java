@@ -0,0 +1,381 @@
+package redis.clients.rejis;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * A few non-blocking connections to one Redis node, shared by all the
+ * callers and driven by a single I/O thread.
+ * <p>
+ * Commands submitted by the callers are queued on a connection, round
+ * robin. The I/O thread copies as many of them as fit in the output buffer
+ * of the connection and writes them at once, then matches the replies with
+ * the commands in the order they were written.
+ * <p>
+ * A connection is opened on its first command. On an I/O error, the
+ * commands waiting on the connection fail with a
+ * {@link JedisConnectionException} and the connection is opened again on
+ * the next command.
+ */
+class MultiplexedEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(MultiplexedEngine.class);
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    // also the granularity of the connect timeout
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+
+    private final InetSocketAddress address;
+    private final int connectTimeout;
+    private final byte[] authCommand;
+
+    private final Connection[] connections;
+    private final AtomicInteger nextConnection = new AtomicInteger();
+
+    private final Selector selector;
+    private final Thread ioThread;
+    private final AtomicBoolean wakeupRequested = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * @param connectTimeout
+     *            in milliseconds
+     * @param password
+     *            null or empty without AUTH
+     */
+    MultiplexedEngine(String host, int port, int nbConnections, int connectTimeout, String password) {
+        if (nbConnections < 1) {
+            throw new IllegalArgumentException("At least one connection is required");
+        }
+
+        this.address = new InetSocketAddress(host, port);
+        this.connectTimeout = connectTimeout;
+        this.authCommand = StringUtils.isEmpty(password) ? null : Resp.encodeCommand(SafeEncoder.encode("AUTH"), SafeEncoder.encode(password));
+
+        this.connections = new Connection[nbConnections];
+        for (int i = 0; i < nbConnections; i++) {
+            connections[i] = new Connection();
+        }
+
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new JedisConnectionException(e);
+        }
+
+        this.ioThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "rejis-nio-" + host + ":" + port);
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    /**
+     * Queue the command, its reply completes the future.
+     *
+     * @param command
+     *            RESP encoded
+     */
+    void submit(byte[] command, ReplyFuture<?> reply) {
+        if (closed) {
+            reply.fail(new JedisConnectionException("Connections to " + address + " are closed"));
+            return;
+        }
+
+        Connection connection = connections[(nextConnection.getAndIncrement() & Integer.MAX_VALUE) % connections.length];
+        connection.outgoing.add(new Command(command, reply));
+        if (closed) {
+            // the I/O thread may be gone already
+            connection.failOutgoing(new JedisConnectionException("Connections to " + address + " are closed"));
+            return;
+        }
+
+        if (wakeupRequested.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Close the connections, the commands waiting for their reply fail.
+     */
+    void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            ioThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    private void loop() {
+        try {
+            while (!closed) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                // commands submitted from now on wake the next select up
+                wakeupRequested.set(false);
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    ((Connection) key.attachment()).onReady(key);
+                }
+
+                for (Connection connection : connections) {
+                    connection.flush();
+                }
+            }
+        } catch (IOException e) {
+            logger.error("I/O thread of " + address + " stopped", e);
+        } finally {
+            closed = true;
+            for (Connection connection : connections) {
+                connection.fail(new JedisConnectionException("Connections to " + address + " are closed"));
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                logger.debug("Cannot close the selector of " + address, e);
+            }
+        }
+    }
+
+    private static final class Command {
+
+        final byte[] bytes;
+        final ReplyFuture<?> reply;
+
+        Command(byte[] bytes, ReplyFuture<?> reply) {
+            this.bytes = bytes;
+            this.reply = reply;
+        }
+    }
+
+    /**
+     * Only outgoing is touched by the callers, everything else by the I/O
+     * thread.
+     */
+    private final class Connection {
+
+        final Queue<Command> outgoing = new ConcurrentLinkedQueue<Command>();
+
+        // written, in order, waiting for their reply
+        private final Queue<ReplyFuture<?>> pending = new ArrayDeque<ReplyFuture<?>>();
+
+        private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private SocketChannel channel;
+        private SelectionKey key;
+        // 0 once connected
+        private long connectDeadline;
+
+        // partly copied in the write buffer
+        private Command current;
+        private int currentOffset;
+
+        void flush() {
+            if (channel == null) {
+                if (!outgoing.isEmpty()) {
+                    connect();
+                }
+                return;
+            }
+
+            if (connectDeadline != 0) {
+                if (System.currentTimeMillis() > connectDeadline) {
+                    fail(new JedisConnectionException("Connect timed out to " + address));
+                }
+                return;
+            }
+
+            try {
+                write();
+            } catch (IOException e) {
+                fail(new JedisConnectionException(e));
+            }
+        }
+
+        void onReady(SelectionKey readyKey) {
+            try {
+                if (readyKey.isConnectable() && channel.finishConnect()) {
+                    onConnected();
+                }
+                if (readyKey.isValid() && readyKey.isReadable()) {
+                    read();
+                }
+                if (readyKey.isValid() && readyKey.isWritable()) {
+                    write();
+                }
+            } catch (IOException e) {
+                fail(new JedisConnectionException(e));
+            } catch (JedisConnectionException e) {
+                fail(e);
+            }
+        }
+
+        private void connect() {
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                channel.socket().setKeepAlive(true);
+                connectDeadline = System.currentTimeMillis() + connectTimeout;
+                if (channel.connect(address)) {
+                    onConnected();
+                } else {
+                    key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+                }
+            } catch (IOException e) {
+                fail(new JedisConnectionException(e));
+            }
+        }
+
+        private void onConnected() throws IOException {
+            connectDeadline = 0;
+            if (key == null) {
+                key = channel.register(selector, SelectionKey.OP_READ, this);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+
+            if (authCommand != null) {
+                // before any other command, an error shows up on the next
+                // commands as NOAUTH
+                current = new Command(authCommand, new ReplyFuture<Object>() {
+                    @Override
+                    protected Object convert(Object reply) {
+                        return reply;
+                    }
+                });
+                currentOffset = 0;
+                pending.add(current.reply);
+            }
+            write();
+        }
+
+        private void write() throws IOException {
+            while (true) {
+                fill();
+                if (writeBuffer.position() == 0) {
+                    break;
+                }
+
+                writeBuffer.flip();
+                int written = channel.write(writeBuffer);
+                writeBuffer.compact();
+                if (written == 0) {
+                    break;
+                }
+            }
+
+            key.interestOps(writeBuffer.position() > 0 || current != null ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        /**
+         * Write combining : copy the queued commands until the buffer is
+         * full.
+         */
+        private void fill() {
+            while (writeBuffer.hasRemaining()) {
+                if (current == null) {
+                    current = outgoing.poll();
+                    if (current == null) {
+                        return;
+                    }
+                    currentOffset = 0;
+                    pending.add(current.reply);
+                }
+
+                int length = Math.min(writeBuffer.remaining(), current.bytes.length - currentOffset);
+                writeBuffer.put(current.bytes, currentOffset, length);
+                currentOffset += length;
+                if (currentOffset == current.bytes.length) {
+                    current = null;
+                }
+            }
+        }
+
+        private void read() throws IOException {
+            if (channel.read(readBuffer) < 0) {
+                throw new EOFException("Connection closed by " + address);
+            }
+
+            readBuffer.flip();
+            Object reply;
+            while ((reply = Resp.readReply(readBuffer)) != Resp.INCOMPLETE) {
+                ReplyFuture<?> future = pending.poll();
+                if (future == null) {
+                    throw new IOException("Reply without command from " + address);
+                }
+                future.complete(reply);
+            }
+            readBuffer.compact();
+
+            if (!readBuffer.hasRemaining()) {
+                // a reply larger than the buffer
+                ByteBuffer larger = ByteBuffer.allocate(readBuffer.capacity() * 2);
+                readBuffer.flip();
+                larger.put(readBuffer);
+                readBuffer = larger;
+            }
+        }
+
+        void fail(RuntimeException e) {
+            if (channel != null) {
+                logger.warn("Connection to " + address + " failed, " + pending.size() + " commands lost", e);
+                try {
+                    channel.close();
+                } catch (IOException closeFailure) {
+                    logger.debug("Cannot close the connection to " + address, closeFailure);
+                }
+            }
+            channel = null;
+            key = null;
+            connectDeadline = 0;
+            current = null;
+            writeBuffer.clear();
+            readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+            ReplyFuture<?> future;
+            while ((future = pending.poll()) != null) {
+                future.fail(e);
+            }
+            failOutgoing(e);
+        }
+
+        void failOutgoing(RuntimeException e) {
+            Command command;
+            while ((command = outgoing.poll()) != null) {
+                command.reply.fail(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package redis.clients.rejis;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * Client Redis mono-instance on a few multiplexed connections instead of a
+ * pool : see {@link MultiplexedEngine}. Every caller shares the same
+ * connections, a blocking call waits for its reply, an asynchronous call
+ * returns as soon as its command is queued.
+ * <p>
+ * The multi-key operations send all their commands before waiting for the
+ * first reply, as a pipeline would.
+ */
+public class MultiplexedJedisTemplate implements IRejis, IRejisAsync {
+
+    public static final int DEFAULT_NB_CONNECTIONS = 2;
+
+    private static final ReplyConverter<String> STRING = new ReplyConverter<String>() {
+        @Override
+        public String convert(Object reply) {
+            if (reply instanceof byte[]) {
+                return SafeEncoder.encode((byte[]) reply);
+            }
+            return (String) reply;
+        }
+    };
+
+    private static final ReplyConverter<Long> LONG = new ReplyConverter<Long>() {
+        @Override
+        public Long convert(Object reply) {
+            return (Long) reply;
+        }
+    };
+
+    private static final ReplyConverter<Boolean> BOOLEAN = new ReplyConverter<Boolean>() {
+        @Override
+        public Boolean convert(Object reply) {
+            return Long.valueOf(1).equals(reply);
+        }
+    };
+
+    private final MultiplexedEngine engine;
+    private final int timeout;
+
+    public MultiplexedJedisTemplate(String host, int port) {
+        this(host, port, DEFAULT_NB_CONNECTIONS, Protocol.DEFAULT_TIMEOUT, null);
+    }
+
+    /**
+     * @param nbConnections
+     *            to the node, a few are enough for most loads
+     * @param timeout
+     *            in milliseconds, to connect and to wait for a reply
+     * @param password
+     *            null or empty without AUTH
+     */
+    public MultiplexedJedisTemplate(String host, int port, int nbConnections, int timeout, String password) {
+        this(new MultiplexedEngine(host, port, nbConnections, timeout, password), timeout);
+    }
+
+    MultiplexedJedisTemplate(MultiplexedEngine engine, int timeout) {
+        this.engine = engine;
+        this.timeout = timeout;
+    }
+
+    /* IRejis */
+
+    @Override
+    public String get(String key) {
+        return await(getAsync(key));
+    }
+
+    @Override
+    public String set(String key, String value) {
+        return await(setAsync(key, value));
+    }
+
+    @Override
+    public String setex(String key, int timeout, String value) {
+        return await(setexAsync(key, timeout, value));
+    }
+
+    @Override
+    public Long del(String... keys) {
+        return await(delAsync(keys));
+    }
+
+    @Override
+    public Boolean exists(String key) {
+        return await(existsAsync(key));
+    }
+
+    @Override
+    public Long expire(String key, int timeout) {
+        return await(expireAsync(key, timeout));
+    }
+
+    @Override
+    public Map<String, String> mget(final String... keys) {
+        if (keys.length == 0) {
+            return new LinkedHashMap<String, String>();
+        }
+
+        String[] args = new String[keys.length + 1];
+        args[0] = "MGET";
+        System.arraycopy(keys, 0, args, 1, keys.length);
+
+        return await(submit(new ReplyConverter<Map<String, String>>() {
+            @Override
+            public Map<String, String> convert(Object reply) {
+                List<?> values = (List<?>) reply;
+                Map<String, String> results = new LinkedHashMap<String, String>(keys.length);
+                for (int i = 0; i < keys.length; i++) {
+                    results.put(keys[i], STRING.convert(values.get(i)));
+                }
+                return results;
+            }
+        }, args));
+    }
+
+    @Override
+    public void mset(Map<String, String> keyValues) {
+        if (keyValues.isEmpty()) {
+            return;
+        }
+
+        String[] args = new String[keyValues.size() * 2 + 1];
+        args[0] = "MSET";
+        int i = 1;
+        for (Map.Entry<String, String> keyValue : keyValues.entrySet()) {
+            args[i++] = keyValue.getKey();
+            args[i++] = keyValue.getValue();
+        }
+
+        await(submit(STRING, args));
+    }
+
+    @Override
+    public void msetex(Map<String, String> keyValues, Map<String, Integer> timeouts) {
+        if (!timeouts.keySet().containsAll(keyValues.keySet())) {
+            throw new IllegalArgumentException("A timeout is required for each key");
+        }
+
+        List<String> keys = new ArrayList<String>(keyValues.size());
+        List<Future<String>> replies = new ArrayList<Future<String>>(keyValues.size());
+        for (Map.Entry<String, String> keyValue : keyValues.entrySet()) {
+            keys.add(keyValue.getKey());
+            replies.add(setexAsync(keyValue.getKey(), timeouts.get(keyValue.getKey()), keyValue.getValue()));
+        }
+
+        awaitAll(keys, replies);
+    }
+
+    @Override
+    public Map<String, Boolean> mexists(String... keys) {
+        List<String> keyList = new ArrayList<String>(keys.length);
+        List<Future<Boolean>> replies = new ArrayList<Future<Boolean>>(keys.length);
+        for (String key : keys) {
+            keyList.add(key);
+            replies.add(existsAsync(key));
+        }
+
+        return awaitAll(keyList, replies);
+    }
+
+    @Override
+    public Map<String, Long> mexpire(Map<String, Integer> timeouts) {
+        List<String> keys = new ArrayList<String>(timeouts.size());
+        List<Future<Long>> replies = new ArrayList<Future<Long>>(timeouts.size());
+        for (Map.Entry<String, Integer> timeout : timeouts.entrySet()) {
+            keys.add(timeout.getKey());
+            replies.add(expireAsync(timeout.getKey(), timeout.getValue()));
+        }
+
+        return awaitAll(keys, replies);
+    }
+
+    /**
+     * Close the connections.
+     */
+    @Override
+    public void destroyPools() {
+        engine.close();
+    }
+
+    /* IRejisAsync */
+
+    @Override
+    public Future<String> getAsync(String key) {
+        return submit(STRING, "GET", key);
+    }
+
+    @Override
+    public Future<String> setAsync(String key, String value) {
+        return submit(STRING, "SET", key, value);
+    }
+
+    @Override
+    public Future<String> setexAsync(String key, int timeout, String value) {
+        return submit(STRING, "SETEX", key, Integer.toString(timeout), value);
+    }
+
+    @Override
+    public Future<Long> delAsync(String... keys) {
+        String[] args = new String[keys.length + 1];
+        args[0] = "DEL";
+        System.arraycopy(keys, 0, args, 1, keys.length);
+
+        return submit(LONG, args);
+    }
+
+    @Override
+    public Future<Boolean> existsAsync(String key) {
+        return submit(BOOLEAN, "EXISTS", key);
+    }
+
+    @Override
+    public Future<Long> expireAsync(String key, int timeout) {
+        return submit(LONG, "EXPIRE", key, Integer.toString(timeout));
+    }
+
+    private <T> Future<T> submit(final ReplyConverter<T> converter, String... args) {
+        byte[][] rawArgs = new byte[args.length][];
+        for (int i = 0; i < args.length; i++) {
+            rawArgs[i] = SafeEncoder.encode(args[i]);
+        }
+
+        ReplyFuture<T> reply = new ReplyFuture<T>() {
+            @Override
+            protected T convert(Object reply) {
+                return converter.convert(reply);
+            }
+        };
+        engine.submit(Resp.encodeCommand(rawArgs), reply);
+
+        return reply;
+    }
+
+    private <T> Map<String, T> awaitAll(List<String> keys, List<Future<T>> replies) {
+        Map<String, T> results = new LinkedHashMap<String, T>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            results.put(keys.get(i), await(replies.get(i)));
+        }
+
+        return results;
+    }
+
+    private <T> T await(Future<T> reply) {
+        try {
+            return reply.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException("Interrupted while waiting for a reply", e);
+        } catch (TimeoutException e) {
+            throw new JedisConnectionException("No reply after " + timeout + " ms", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new JedisException(e.getCause());
+        }
+    }
+
+    private interface ReplyConverter<T> {
+
+        T convert(Object reply);
+    }
+}
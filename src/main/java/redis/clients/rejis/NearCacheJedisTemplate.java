@@ -0,0 +1,450 @@
+package redis.clients.rejis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache (L1) in front of another template.
+ * <p>
+ * Values read with get/exists are kept at most maxStaleness, and never
+ * beyond the timeout given to a setex issued through this template. Writes
+ * issued through this template update or invalidate the local entry, writes
+ * from other clients are only seen once the local entry is stale. A value
+ * read while a local write of the same key was in progress is not kept.
+ * <p>
+ * The cache is split in segments, each one an LRU map with its own lock, so
+ * that reads of different keys seldom contend.
+ */
+public class NearCacheJedisTemplate implements IRejis {
+
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    private final IRejis delegate;
+    private final long maxStalenessNanos;
+    private final Segment[] segments;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public NearCacheJedisTemplate(IRejis delegate, int maxSize, long maxStaleness, TimeUnit unit) {
+        this(delegate, maxSize, maxStaleness, unit, DEFAULT_SEGMENTS);
+    }
+
+    public NearCacheJedisTemplate(IRejis delegate, int maxSize, long maxStaleness, TimeUnit unit, int nbSegments) {
+        if (maxSize < nbSegments) {
+            throw new IllegalArgumentException("Near cache size must be at least the number of segments");
+        }
+
+        this.delegate = delegate;
+        this.maxStalenessNanos = unit.toNanos(maxStaleness);
+        this.segments = new Segment[nbSegments];
+        for (int i = 0; i < nbSegments; i++) {
+            segments[i] = new Segment(maxSize / nbSegments);
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        CacheEntry entry = lookup(key);
+        if (entry != null && entry.valueKnown) {
+            hitCount.incrementAndGet();
+            return entry.value;
+        }
+
+        missCount.incrementAndGet();
+        CacheEntry loading = startLoad(key);
+        String value;
+        try {
+            value = delegate.get(key);
+        } catch (RuntimeException e) {
+            endLoad(key, loading, null);
+            throw e;
+        }
+        endLoad(key, loading, CacheEntry.forValue(value, loading.deadline));
+
+        return value;
+    }
+
+    @Override
+    public Boolean exists(String key) {
+        CacheEntry entry = lookup(key);
+        if (entry != null) {
+            hitCount.incrementAndGet();
+            return entry.exists;
+        }
+
+        missCount.incrementAndGet();
+        CacheEntry loading = startLoad(key);
+        Boolean exists;
+        try {
+            exists = delegate.exists(key);
+        } catch (RuntimeException e) {
+            endLoad(key, loading, null);
+            throw e;
+        }
+        endLoad(key, loading, exists != null ? CacheEntry.forExists(exists, loading.deadline) : null);
+
+        return exists;
+    }
+
+    @Override
+    public String set(String key, String value) {
+        invalidate(key);
+        String reply = delegate.set(key, value);
+        store(key, CacheEntry.forValue(value, deadline(maxStalenessNanos)));
+
+        return reply;
+    }
+
+    @Override
+    public String setex(String key, int timeout, String value) {
+        invalidate(key);
+        String reply = delegate.setex(key, timeout, value);
+        store(key, CacheEntry.forValue(value, deadline(Math.min(maxStalenessNanos, TimeUnit.SECONDS.toNanos(timeout)))));
+
+        return reply;
+    }
+
+    @Override
+    public Long del(String... keys) {
+        invalidateAll(Arrays.asList(keys));
+        try {
+            return delegate.del(keys);
+        } finally {
+            invalidateAll(Arrays.asList(keys));
+        }
+    }
+
+    @Override
+    public Long expire(String key, int timeout) {
+        invalidate(key);
+        try {
+            return delegate.expire(key, timeout);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Map<String, String> mget(String... keys) {
+        Map<String, String> results = new LinkedHashMap<String, String>(keys.length);
+        List<String> missingKeys = new ArrayList<String>();
+        for (String key : keys) {
+            CacheEntry entry = lookup(key);
+            if (entry != null && entry.valueKnown) {
+                hitCount.incrementAndGet();
+                results.put(key, entry.value);
+            } else {
+                missCount.incrementAndGet();
+                results.put(key, null);
+                missingKeys.add(key);
+            }
+        }
+
+        if (!missingKeys.isEmpty()) {
+            Map<String, CacheEntry> loadings = startLoads(missingKeys);
+            Map<String, String> loaded;
+            try {
+                loaded = delegate.mget(missingKeys.toArray(new String[missingKeys.size()]));
+            } catch (RuntimeException e) {
+                endLoads(loadings);
+                throw e;
+            }
+            for (Map.Entry<String, String> loadedEntry : loaded.entrySet()) {
+                results.put(loadedEntry.getKey(), loadedEntry.getValue());
+                CacheEntry loading = loadings.remove(loadedEntry.getKey());
+                if (loading != null) {
+                    endLoad(loadedEntry.getKey(), loading, CacheEntry.forValue(loadedEntry.getValue(), loading.deadline));
+                }
+            }
+            endLoads(loadings);
+        }
+
+        return results;
+    }
+
+    @Override
+    public Map<String, Boolean> mexists(String... keys) {
+        Map<String, Boolean> results = new LinkedHashMap<String, Boolean>(keys.length);
+        List<String> missingKeys = new ArrayList<String>();
+        for (String key : keys) {
+            CacheEntry entry = lookup(key);
+            if (entry != null) {
+                hitCount.incrementAndGet();
+                results.put(key, entry.exists);
+            } else {
+                missCount.incrementAndGet();
+                results.put(key, null);
+                missingKeys.add(key);
+            }
+        }
+
+        if (!missingKeys.isEmpty()) {
+            Map<String, CacheEntry> loadings = startLoads(missingKeys);
+            Map<String, Boolean> loaded;
+            try {
+                loaded = delegate.mexists(missingKeys.toArray(new String[missingKeys.size()]));
+            } catch (RuntimeException e) {
+                endLoads(loadings);
+                throw e;
+            }
+            for (Map.Entry<String, Boolean> loadedEntry : loaded.entrySet()) {
+                results.put(loadedEntry.getKey(), loadedEntry.getValue());
+                CacheEntry loading = loadings.remove(loadedEntry.getKey());
+                if (loading != null) {
+                    endLoad(loadedEntry.getKey(), loading,
+                            loadedEntry.getValue() != null ? CacheEntry.forExists(loadedEntry.getValue(), loading.deadline) : null);
+                }
+            }
+            endLoads(loadings);
+        }
+
+        return results;
+    }
+
+    @Override
+    public void mset(Map<String, String> keyValues) {
+        invalidateAll(keyValues.keySet());
+        try {
+            delegate.mset(keyValues);
+        } finally {
+            invalidateAll(keyValues.keySet());
+        }
+    }
+
+    @Override
+    public void msetex(Map<String, String> keyValues, Map<String, Integer> timeouts) {
+        invalidateAll(keyValues.keySet());
+        try {
+            delegate.msetex(keyValues, timeouts);
+        } finally {
+            invalidateAll(keyValues.keySet());
+        }
+    }
+
+    @Override
+    public Map<String, Long> mexpire(Map<String, Integer> timeouts) {
+        invalidateAll(timeouts.keySet());
+        try {
+            return delegate.mexpire(timeouts);
+        } finally {
+            invalidateAll(timeouts.keySet());
+        }
+    }
+
+    @Override
+    public void destroyPools() {
+        clear();
+        delegate.destroyPools();
+    }
+
+    public void invalidate(String key) {
+        segmentFor(key).remove(key);
+    }
+
+    /**
+     * Called before a write, and after it to drop the values read meanwhile.
+     */
+    private void invalidateAll(Collection<String> keys) {
+        for (String key : keys) {
+            invalidate(key);
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+
+        return size;
+    }
+
+    private CacheEntry lookup(String key) {
+        Segment segment = segmentFor(key);
+        CacheEntry entry = segment.get(key);
+        if (entry != null && entry.isStale(System.nanoTime())) {
+            segment.remove(key);
+            return null;
+        }
+
+        return entry != null && entry.loading ? null : entry;
+    }
+
+    private void store(String key, CacheEntry entry) {
+        segmentFor(key).put(key, entry);
+    }
+
+    /**
+     * Mark the key as being read : a write or another read of the key
+     * replaces the mark, and the value read is then dropped.
+     *
+     * @return the mark to give to endLoad
+     */
+    private CacheEntry startLoad(String key) {
+        CacheEntry loading = CacheEntry.loading(deadline(maxStalenessNanos));
+        store(key, loading);
+
+        return loading;
+    }
+
+    /**
+     * @param entry
+     *            read, null to drop the mark
+     */
+    private void endLoad(String key, CacheEntry loading, CacheEntry entry) {
+        segmentFor(key).replaceIf(key, loading, entry);
+    }
+
+    private Map<String, CacheEntry> startLoads(List<String> keys) {
+        Map<String, CacheEntry> loadings = new LinkedHashMap<String, CacheEntry>(keys.size());
+        for (String key : keys) {
+            loadings.put(key, startLoad(key));
+        }
+
+        return loadings;
+    }
+
+    private void endLoads(Map<String, CacheEntry> loadings) {
+        for (Map.Entry<String, CacheEntry> loading : loadings.entrySet()) {
+            endLoad(loading.getKey(), loading.getValue(), null);
+        }
+    }
+
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+
+        return segments[(hash & 0x7fffffff) % segments.length];
+    }
+
+    private static long deadline(long ttlNanos) {
+        return System.nanoTime() + ttlNanos;
+    }
+
+    private static class CacheEntry {
+        final boolean loading;
+        final boolean valueKnown;
+        final String value;
+        final Boolean exists;
+        final long deadline;
+
+        private CacheEntry(boolean loading, boolean valueKnown, String value, Boolean exists, long deadline) {
+            this.loading = loading;
+            this.valueKnown = valueKnown;
+            this.value = value;
+            this.exists = exists;
+            this.deadline = deadline;
+        }
+
+        static CacheEntry forValue(String value, long deadline) {
+            return new CacheEntry(false, true, value, value != null, deadline);
+        }
+
+        static CacheEntry forExists(boolean exists, long deadline) {
+            return new CacheEntry(false, false, null, exists, deadline);
+        }
+
+        /**
+         * Each read gets its own mark, compared by identity.
+         */
+        static CacheEntry loading(long deadline) {
+            return new CacheEntry(true, false, null, null, deadline);
+        }
+
+        boolean isStale(long now) {
+            return now - deadline >= 0;
+        }
+    }
+
+    /**
+     * LRU map guarded by its own monitor.
+     */
+    @SuppressWarnings("serial")
+    private class Segment extends LinkedHashMap<String, CacheEntry> {
+        private final int maxSize;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            if (size() > maxSize) {
+                evictionCount.incrementAndGet();
+                return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        public synchronized CacheEntry get(Object key) {
+            return super.get(key);
+        }
+
+        @Override
+        public synchronized CacheEntry put(String key, CacheEntry value) {
+            return super.put(key, value);
+        }
+
+        @Override
+        public synchronized CacheEntry remove(Object key) {
+            return super.remove(key);
+        }
+
+        /**
+         * Replace the entry only if it is still the expected one.
+         *
+         * @param value
+         *            null to remove the entry
+         */
+        synchronized void replaceIf(String key, CacheEntry expected, CacheEntry value) {
+            if (super.get(key) != expected) {
+                return;
+            }
+
+            if (value == null) {
+                super.remove(key);
+            } else {
+                super.put(key, value);
+            }
+        }
+
+        @Override
+        public synchronized void clear() {
+            super.clear();
+        }
+
+        @Override
+        public synchronized int size() {
+            return super.size();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package redis.clients.rejis;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * Typed values on top of the binary API of a template : values are encoded
+ * by the codec, keys stay strings.
+ *
+ * <pre>
+ * ObjectJedisTemplate&lt;Order&gt; orders = new ObjectJedisTemplate&lt;Order&gt;(template, new CompressingCodec&lt;Order&gt;(new SerializableCodec&lt;Order&gt;()));
+ * </pre>
+ */
+public class ObjectJedisTemplate<T> {
+
+    private final IBinaryRejis template;
+    private final Codec<T> codec;
+
+    public ObjectJedisTemplate(IBinaryRejis template, Codec<T> codec) {
+        this.template = template;
+        this.codec = codec;
+    }
+
+    /**
+     * @return null for a missing key
+     */
+    public T getObject(String key) {
+        byte[] bytes = template.get(SafeEncoder.encode(key));
+
+        return bytes == null ? null : codec.decode(bytes, 0, bytes.length);
+    }
+
+    public String setObject(String key, T value) {
+        return template.set(SafeEncoder.encode(key), codec.encode(value));
+    }
+
+    public String setexObject(String key, int timeout, T value) {
+        return template.setex(SafeEncoder.encode(key), timeout, codec.encode(value));
+    }
+
+    public Codec<T> getCodec() {
+        return codec;
+    }
+}
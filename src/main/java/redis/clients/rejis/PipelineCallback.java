@@ -0,0 +1,9 @@
+package redis.clients.rejis;
+
+import redis.clients.jedis.Response;
+
+public interface PipelineCallback<T> {
+
+    Response<T> doPipelineAction(RejisPipeline pipeline, String key);
+
+}
@@ -0,0 +1,12 @@
+package redis.clients.rejis;
+
+/**
+ * Pool able to tell how many of its connections are in use and idle.
+ */
+public interface PoolStatistics {
+
+    int getNumActive();
+
+    int getNumIdle();
+
+}
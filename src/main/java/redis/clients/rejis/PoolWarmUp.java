@@ -0,0 +1,239 @@
+package redis.clients.rejis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.BinaryShardedJedis;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.util.Pool;
+
+/**
+ * Opens connections of pools ahead of the first requests, all nodes in
+ * parallel, and tells when it is done.
+ * <p>
+ * An unreachable node does not fail the warm-up : it is reported in
+ * {@link #getDownNodes()} and, for a {@link ReplicaPool} with circuit
+ * breakers, its failures are accounted to its breaker. Reads then go to the
+ * other nodes as usual.
+ * <p>
+ * Any pool is warmed up by borrowing connections at the same time, so that
+ * the pool has to open them, then returning them. A {@link ReplicaPool}, a
+ * {@link ShardedReplicaPool} and a {@link RoundRobinPool} are warmed up node
+ * by node.
+ */
+public class PoolWarmUp {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolWarmUp.class);
+
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private final Set<String> downNodes = new LinkedHashSet<String>();
+    private final AtomicInteger openedConnections = new AtomicInteger();
+
+    private volatile boolean timedOut;
+
+    private PoolWarmUp() {
+    }
+
+    /**
+     * @param pools
+     *            pools by name, the name stands for the node when a
+     *            connection of the pool cannot tell it
+     */
+    public static PoolWarmUp start(final WarmUpPolicy policy, final Map<String, ? extends Pool<?>> pools) {
+        final PoolWarmUp warmUp = new PoolWarmUp();
+        if (!policy.isBackground()) {
+            warmUp.run(policy, pools);
+            return warmUp;
+        }
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                warmUp.run(policy, pools);
+            }
+        }, "rejis-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+        return warmUp;
+    }
+
+    private void run(WarmUpPolicy policy, Map<String, ? extends Pool<?>> pools) {
+        long deadline = System.nanoTime() + policy.getTimeoutNanos();
+        ExecutorService executor = AsyncJedisTemplate.defaultExecutor();
+        try {
+            List<Future<?>> tasks = new ArrayList<Future<?>>();
+            for (Map.Entry<String, ? extends Pool<?>> pool : pools.entrySet()) {
+                submit(pool.getKey(), pool.getValue(), policy.getConnectionsPerNode(), deadline, executor, tasks);
+            }
+
+            for (Future<?> task : tasks) {
+                task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            timedOut = true;
+            logger.warn("Pool warm-up not finished after " + TimeUnit.NANOSECONDS.toMillis(policy.getTimeoutNanos()) + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // tasks report their own failures
+            logger.warn("Pool warm-up failed", e.getCause());
+        } finally {
+            // shards found down so far, whether the warm-up is over or not
+            for (Pool<?> pool : pools.values()) {
+                if (pool instanceof RoundRobinPool) {
+                    addDownNodes(((RoundRobinPool) pool).getDownShards());
+                }
+            }
+
+            executor.shutdown();
+            ready.countDown();
+        }
+    }
+
+    private void submit(String name, Pool<?> pool, int connectionsPerNode, long deadline, ExecutorService executor, List<Future<?>> tasks) {
+        if (pool instanceof ReplicaPool) {
+            ReplicaPool replicaPool = (ReplicaPool) pool;
+            for (int i = 0; i < replicaPool.getNbReplicas(); i++) {
+                JedisShardInfo shard = replicaPool.getShard(i);
+                submitBorrows(shard.getHost() + ":" + shard.getPort(), replicaPool.getPool(i), replicaPool.getCircuitBreaker(i), connectionsPerNode, deadline, executor, tasks);
+            }
+        } else if (pool instanceof ShardedReplicaPool) {
+            ShardedReplicaPool shardedPool = (ShardedReplicaPool) pool;
+            for (int rank = 0; rank < shardedPool.getNbRanks(); rank++) {
+                submitBorrows(name + "-" + rank, shardedPool.getRank(rank), null, connectionsPerNode, deadline, executor, tasks);
+            }
+        } else if (pool instanceof RoundRobinPool) {
+            final RoundRobinPool roundRobinPool = (RoundRobinPool) pool;
+            for (int i = roundRobinPool.getNbShards() * connectionsPerNode; i > 0; i--) {
+                tasks.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (roundRobinPool.addConnection()) {
+                            openedConnections.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+        } else {
+            submitBorrows(name, pool, null, connectionsPerNode, deadline, executor, tasks);
+        }
+    }
+
+    /**
+     * Borrow the connections at the same time, and return them once all are
+     * borrowed or the deadline is over.
+     */
+    private void submitBorrows(final String node, final Pool<?> pool, final CircuitBreaker breaker, int connections, final long deadline, ExecutorService executor,
+            List<Future<?>> tasks) {
+        final CountDownLatch borrowed = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            tasks.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    Object resource = null;
+                    try {
+                        resource = pool.getResource();
+                        openedConnections.incrementAndGet();
+                        connectShards(resource);
+                    } catch (RuntimeException e) {
+                        logger.warn("Cannot open a connection to " + node + " : " + e.getMessage());
+                        addDownNodes(Collections.singleton(node));
+                        if (breaker != null) {
+                            breaker.onFailure();
+                        }
+                    } finally {
+                        borrowed.countDown();
+                    }
+
+                    if (resource != null) {
+                        try {
+                            borrowed.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            pool.returnResourceObject(resource);
+                        }
+                    }
+                }
+            }));
+        }
+    }
+
+    /**
+     * The connections of a sharded client are lazy : open them, a shard down
+     * does not keep the others from being opened.
+     */
+    private void connectShards(Object resource) {
+        if (!(resource instanceof BinaryShardedJedis)) {
+            return;
+        }
+
+        for (Jedis shard : ((BinaryShardedJedis) resource).getAllShards()) {
+            try {
+                if (!shard.isConnected()) {
+                    shard.connect();
+                }
+            } catch (RuntimeException e) {
+                String node = shard.getClient().getHost() + ":" + shard.getClient().getPort();
+                logger.warn("Cannot open a connection to " + node + " : " + e.getMessage());
+                addDownNodes(Collections.singleton(node));
+            }
+        }
+    }
+
+    private void addDownNodes(Set<String> nodes) {
+        synchronized (downNodes) {
+            downNodes.addAll(nodes);
+        }
+    }
+
+    /**
+     * @return true once the warm-up is over, deadline reached or not
+     */
+    public boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    /**
+     * @return true if the warm-up is over
+     */
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        return ready.await(timeout, unit);
+    }
+
+    /**
+     * @return true if some nodes did not answer before the deadline
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return nodes some connections could not be opened to, host:port or
+     *         name of the pool
+     */
+    public Set<String> getDownNodes() {
+        synchronized (downNodes) {
+            return new LinkedHashSet<String>(downNodes);
+        }
+    }
+
+    public int getOpenedConnections() {
+        return openedConnections.get();
+    }
+}
@@ -0,0 +1,244 @@
+package redis.clients.rejis;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-your-writes over a template reading from replicas : reads of a key
+ * written through this template during the last window go to the master,
+ * other reads go to the template as usual. The window should cover the
+ * replication lag.
+ * <p>
+ * Recent keys are tracked in a fixed size table (see {@link RecentWrites}),
+ * so a few reads of other keys may also go to the master. When thread
+ * scoped, a write sends every read of the same thread to the master for the
+ * window, whatever the key.
+ * <p>
+ * Writes made by other clients are not tracked.
+ */
+public class ReadYourWritesJedisTemplate implements IRejis {
+
+    private final IRejis delegate;
+    private final IRejis master;
+    private final RecentWrites recentWrites;
+
+    // time of the last write of the thread, when thread scoped
+    private final ThreadLocal<long[]> lastThreadWrite = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private volatile boolean threadScoped;
+
+    /**
+     * Reads of recent keys go to the write pool of the template.
+     */
+    public ReadYourWritesJedisTemplate(RoundRobinJedisTemplate template, long window, TimeUnit unit) {
+        this(template, new SimpleJedisTemplate(template.getWritePool()), window, unit, RecentWrites.DEFAULT_NB_SLOTS);
+    }
+
+    /**
+     * @param master
+     *            reads the master of the template, its pools are not
+     *            destroyed with the template
+     * @param nbSlots
+     *            size of the table of recent keys, 8 bytes each
+     */
+    public ReadYourWritesJedisTemplate(IRejis delegate, IRejis master, long window, TimeUnit unit, int nbSlots) {
+        this.delegate = delegate;
+        this.master = master;
+        this.recentWrites = new RecentWrites(window, unit, nbSlots);
+    }
+
+    @Override
+    public String get(String key) {
+        return readTarget(key).get(key);
+    }
+
+    @Override
+    public Boolean exists(String key) {
+        return readTarget(key).exists(key);
+    }
+
+    @Override
+    public Map<String, String> mget(String... keys) {
+        List<String> recentKeys = recentKeys(keys);
+        if (recentKeys == null) {
+            return delegate.mget(keys);
+        }
+        if (recentKeys.size() == keys.length) {
+            return master.mget(keys);
+        }
+
+        Map<String, String> fromMaster = master.mget(recentKeys.toArray(new String[recentKeys.size()]));
+        Map<String, String> fromReplicas = delegate.mget(otherKeys(keys, fromMaster));
+        return merge(keys, fromMaster, fromReplicas);
+    }
+
+    @Override
+    public Map<String, Boolean> mexists(String... keys) {
+        List<String> recentKeys = recentKeys(keys);
+        if (recentKeys == null) {
+            return delegate.mexists(keys);
+        }
+        if (recentKeys.size() == keys.length) {
+            return master.mexists(keys);
+        }
+
+        Map<String, Boolean> fromMaster = master.mexists(recentKeys.toArray(new String[recentKeys.size()]));
+        Map<String, Boolean> fromReplicas = delegate.mexists(otherKeys(keys, fromMaster));
+        return merge(keys, fromMaster, fromReplicas);
+    }
+
+    @Override
+    public String set(String key, String value) {
+        try {
+            return delegate.set(key, value);
+        } finally {
+            onWrite(key);
+        }
+    }
+
+    @Override
+    public String setex(String key, int timeout, String value) {
+        try {
+            return delegate.setex(key, timeout, value);
+        } finally {
+            onWrite(key);
+        }
+    }
+
+    @Override
+    public Long del(String... keys) {
+        try {
+            return delegate.del(keys);
+        } finally {
+            for (String key : keys) {
+                onWrite(key);
+            }
+        }
+    }
+
+    @Override
+    public Long expire(String key, int timeout) {
+        try {
+            return delegate.expire(key, timeout);
+        } finally {
+            onWrite(key);
+        }
+    }
+
+    @Override
+    public void mset(Map<String, String> keyValues) {
+        try {
+            delegate.mset(keyValues);
+        } finally {
+            for (String key : keyValues.keySet()) {
+                onWrite(key);
+            }
+        }
+    }
+
+    @Override
+    public void msetex(Map<String, String> keyValues, Map<String, Integer> timeouts) {
+        try {
+            delegate.msetex(keyValues, timeouts);
+        } finally {
+            for (String key : keyValues.keySet()) {
+                onWrite(key);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Long> mexpire(Map<String, Integer> timeouts) {
+        try {
+            return delegate.mexpire(timeouts);
+        } finally {
+            for (String key : timeouts.keySet()) {
+                onWrite(key);
+            }
+        }
+    }
+
+    @Override
+    public void destroyPools() {
+        delegate.destroyPools();
+    }
+
+    // a failed write may still have reached the master
+    private void onWrite(String key) {
+        if (threadScoped) {
+            lastThreadWrite.get()[0] = recentWrites.now();
+        } else {
+            recentWrites.onWrite(key);
+        }
+    }
+
+    private boolean isRecent(String key) {
+        if (threadScoped) {
+            long lastWrite = lastThreadWrite.get()[0];
+            return lastWrite != 0 && recentWrites.now() - lastWrite < recentWrites.getWindowNanos();
+        }
+
+        return recentWrites.isRecent(key);
+    }
+
+    private IRejis readTarget(String key) {
+        return isRecent(key) ? master : delegate;
+    }
+
+    /**
+     * @return null when no key is recent
+     */
+    private List<String> recentKeys(String... keys) {
+        List<String> recentKeys = null;
+        for (String key : keys) {
+            if (isRecent(key)) {
+                if (recentKeys == null) {
+                    recentKeys = new ArrayList<String>();
+                }
+                recentKeys.add(key);
+            }
+        }
+
+        return recentKeys;
+    }
+
+    private static String[] otherKeys(String[] keys, Map<String, ?> excluded) {
+        List<String> others = new ArrayList<String>(keys.length - excluded.size());
+        for (String key : keys) {
+            if (!excluded.containsKey(key)) {
+                others.add(key);
+            }
+        }
+
+        return others.toArray(new String[others.size()]);
+    }
+
+    private static <T> Map<String, T> merge(String[] keys, Map<String, T> fromMaster, Map<String, T> fromReplicas) {
+        Map<String, T> values = new LinkedHashMap<String, T>(keys.length);
+        for (String key : keys) {
+            values.put(key, fromMaster.containsKey(key) ? fromMaster.get(key) : fromReplicas.get(key));
+        }
+
+        return values;
+    }
+
+    public boolean isThreadScoped() {
+        return threadScoped;
+    }
+
+    /**
+     * @param threadScoped
+     *            true to track the writes by thread instead of by key
+     */
+    public void setThreadScoped(boolean threadScoped) {
+        this.threadScoped = threadScoped;
+    }
+}
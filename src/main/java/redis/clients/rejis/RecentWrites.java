@@ -0,0 +1,93 @@
+package redis.clients.rejis;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keys written during the last window, in a fixed table of write times : a
+ * key sets the time of its 2 slots, and is recent while both slots are. Keys
+ * sharing slots may look recent when they are not, a key written during the
+ * window always looks recent.
+ * <p>
+ * The table takes 8 bytes per slot whatever the number of keys written, and
+ * is updated without lock.
+ */
+class RecentWrites {
+
+    public static final int DEFAULT_NB_SLOTS = 1 << 16;
+
+    private static final long NEVER = 0;
+
+    private final AtomicLongArray writeTimes;
+    private final int mask;
+    private final long windowNanos;
+    private final long origin = System.nanoTime();
+
+    /**
+     * @param nbSlots
+     *            rounded up to a power of 2
+     */
+    RecentWrites(long window, TimeUnit unit, int nbSlots) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        if (nbSlots <= 0 || nbSlots > 1 << 30) {
+            throw new IllegalArgumentException("Invalid number of slots : " + nbSlots);
+        }
+
+        int size = Integer.highestOneBit(nbSlots);
+        if (size < nbSlots) {
+            size <<= 1;
+        }
+        this.writeTimes = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.windowNanos = unit.toNanos(window);
+    }
+
+    void onWrite(String key) {
+        int hash = spread(key.hashCode());
+        long now = now();
+        setLatest(hash & mask, now);
+        setLatest((hash >>> 16 | hash << 16) & mask, now);
+    }
+
+    boolean isRecent(String key) {
+        int hash = spread(key.hashCode());
+        long now = now();
+        return isRecent(hash & mask, now) && isRecent((hash >>> 16 | hash << 16) & mask, now);
+    }
+
+    private void setLatest(int slot, long time) {
+        long current;
+        do {
+            current = writeTimes.get(slot);
+        } while (current < time && !writeTimes.compareAndSet(slot, current, time));
+    }
+
+    private boolean isRecent(int slot, long now) {
+        long time = writeTimes.get(slot);
+        return time != NEVER && now - time < windowNanos;
+    }
+
+    /**
+     * @return nanoseconds since creation, never {@link #NEVER}
+     */
+    long now() {
+        return System.nanoTime() - origin + 1;
+    }
+
+    long getWindowNanos() {
+        return windowNanos;
+    }
+
+    // murmur3 finalizer, so that the 2 halves are independent
+    private static int spread(int hash) {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,423 @@
+package redis.clients.rejis;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.pool.impl.GenericObjectPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+
+/**
+ * Latency and pool metrics of templates : per operation (with
+ * {@link InstrumentedJedisTemplate}), per node, borrow wait and usage per
+ * pool, retries and broken resources.
+ * <p>
+ * Recording is lock-free and does not allocate once a name is known. Values
+ * are read through the getters, or through JMX once
+ * {@link #registerMBean(String)} is called.
+ */
+public class RejisMetrics implements RejisMetricsMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(RejisMetrics.class);
+
+    public static final String JMX_DOMAIN = "redis.clients.rejis";
+
+    private static final double NANOS_PER_MICRO = 1000d;
+
+    private final ConcurrentMap<String, Stats> operations = new ConcurrentHashMap<String, Stats>();
+    private final List<NodeStats> nodes = new CopyOnWriteArrayList<NodeStats>();
+    private final ConcurrentMap<String, Stats> otherNodes = new ConcurrentHashMap<String, Stats>();
+    private final ConcurrentMap<Pool<?>, PoolStats> pools = new ConcurrentHashMap<Pool<?>, PoolStats>();
+    private final ConcurrentMap<String, Long> replicationLags = new ConcurrentHashMap<String, Long>();
+
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong brokenResourceCount = new AtomicLong();
+
+    private ObjectName objectName;
+
+    /* recording */
+
+    public void recordOperation(String operation, long nanos, boolean failed) {
+        Stats stats = operations.get(operation);
+        if (stats == null) {
+            Stats created = new Stats(operation);
+            stats = operations.putIfAbsent(operation, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+
+        stats.record(nanos, failed);
+    }
+
+    /**
+     * @param jedis
+     *            client the command ran on : a {@link Jedis} is accounted to
+     *            its host:port, any other client to its class
+     */
+    public void recordNode(Object jedis, long nanos, boolean failed) {
+        if (jedis instanceof Jedis) {
+            nodeStats(((Jedis) jedis).getClient()).record(nanos, failed);
+        } else if (jedis != null) {
+            String name = jedis.getClass().getSimpleName();
+            Stats stats = otherNodes.get(name);
+            if (stats == null) {
+                Stats created = new Stats(name);
+                stats = otherNodes.putIfAbsent(name, created);
+                if (stats == null) {
+                    stats = created;
+                }
+            }
+            stats.record(nanos, failed);
+        }
+    }
+
+    public void registerPool(String name, Pool<?> pool) {
+        if (pool != null) {
+            pools.putIfAbsent(pool, new PoolStats(name, pool));
+        }
+    }
+
+    public void onBorrowStart(Pool<?> pool) {
+        PoolStats stats = pools.get(pool);
+        if (stats != null) {
+            stats.waiting.incrementAndGet();
+        }
+    }
+
+    public void onBorrowEnd(Pool<?> pool, long nanos) {
+        PoolStats stats = pools.get(pool);
+        if (stats != null) {
+            stats.waiting.decrementAndGet();
+            stats.borrowWait.record(nanos);
+        }
+    }
+
+    /**
+     * @param node
+     *            host:port of the replica
+     * @param lagBytes
+     *            -1 when unknown
+     */
+    public void recordReplicationLag(String node, long lagBytes) {
+        replicationLags.put(node, lagBytes);
+    }
+
+    public void onRetry() {
+        retryCount.incrementAndGet();
+    }
+
+    public void onBrokenResource() {
+        brokenResourceCount.incrementAndGet();
+    }
+
+    private NodeStats nodeStats(Client client) {
+        String host = client.getHost();
+        int port = client.getPort();
+        for (NodeStats node : nodes) {
+            if (node.port == port && node.host.equals(host)) {
+                return node;
+            }
+        }
+
+        synchronized (nodes) {
+            for (NodeStats node : nodes) {
+                if (node.port == port && node.host.equals(host)) {
+                    return node;
+                }
+            }
+
+            NodeStats node = new NodeStats(host, port);
+            nodes.add(node);
+            return node;
+        }
+    }
+
+    /* pull API */
+
+    public LatencyHistogram getOperationLatency(String operation) {
+        Stats stats = operations.get(operation);
+        return stats == null ? null : stats.latency;
+    }
+
+    public LatencyHistogram getNodeLatency(String node) {
+        for (NodeStats stats : nodes) {
+            if (stats.name.equals(node)) {
+                return stats.latency;
+            }
+        }
+
+        Stats stats = otherNodes.get(node);
+        return stats == null ? null : stats.latency;
+    }
+
+    public LatencyHistogram getBorrowWait(String pool) {
+        for (PoolStats stats : pools.values()) {
+            if (stats.name.equals(pool)) {
+                return stats.borrowWait;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (Stats stats : operations.values()) {
+            counts.put(stats.name, stats.latency.getCount());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getOperationErrors() {
+        Map<String, Long> errors = new TreeMap<String, Long>();
+        for (Stats stats : operations.values()) {
+            errors.put(stats.name, stats.errors.get());
+        }
+        return errors;
+    }
+
+    @Override
+    public Map<String, Double> getOperationP50Micros() {
+        return percentiles(operations.values(), 50);
+    }
+
+    @Override
+    public Map<String, Double> getOperationP99Micros() {
+        return percentiles(operations.values(), 99);
+    }
+
+    @Override
+    public Map<String, Long> getNodeCounts() {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (Stats stats : allNodes()) {
+            counts.put(stats.name, stats.latency.getCount());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getNodeErrors() {
+        Map<String, Long> errors = new TreeMap<String, Long>();
+        for (Stats stats : allNodes()) {
+            errors.put(stats.name, stats.errors.get());
+        }
+        return errors;
+    }
+
+    @Override
+    public Map<String, Double> getNodeP99Micros() {
+        return percentiles(allNodes(), 99);
+    }
+
+    @Override
+    public Map<String, Double> getBorrowWaitP99Micros() {
+        Map<String, Double> waits = new TreeMap<String, Double>();
+        for (PoolStats stats : pools.values()) {
+            waits.put(stats.name, stats.borrowWait.getPercentileNanos(99) / NANOS_PER_MICRO);
+        }
+        return waits;
+    }
+
+    @Override
+    public Map<String, Integer> getPoolActive() {
+        Map<String, Integer> active = new TreeMap<String, Integer>();
+        for (PoolStats stats : pools.values()) {
+            active.put(stats.name, numActive(stats.pool));
+        }
+        return active;
+    }
+
+    @Override
+    public Map<String, Integer> getPoolIdle() {
+        Map<String, Integer> idle = new TreeMap<String, Integer>();
+        for (PoolStats stats : pools.values()) {
+            idle.put(stats.name, numIdle(stats.pool));
+        }
+        return idle;
+    }
+
+    @Override
+    public Map<String, Integer> getPoolWaiting() {
+        Map<String, Integer> waiting = new TreeMap<String, Integer>();
+        for (PoolStats stats : pools.values()) {
+            waiting.put(stats.name, stats.waiting.get());
+        }
+        return waiting;
+    }
+
+    @Override
+    public Map<String, Long> getReplicationLagBytes() {
+        return new TreeMap<String, Long>(replicationLags);
+    }
+
+    @Override
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    @Override
+    public long getBrokenResourceCount() {
+        return brokenResourceCount.get();
+    }
+
+    @Override
+    public void reset() {
+        for (Stats stats : operations.values()) {
+            stats.reset();
+        }
+        for (Stats stats : allNodes()) {
+            stats.reset();
+        }
+        for (PoolStats stats : pools.values()) {
+            stats.borrowWait.reset();
+        }
+        retryCount.set(0);
+        brokenResourceCount.set(0);
+    }
+
+    /* JMX */
+
+    public synchronized void registerMBean(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName(JMX_DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name));
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            throw new JedisException("Cannot register metrics MBean " + name, e);
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            logger.debug("Cannot unregister metrics MBean", e);
+        }
+        objectName = null;
+    }
+
+    /* pool gauges */
+
+    /**
+     * @return connections in use, -1 if the pool cannot tell
+     */
+    static int numActive(Pool<?> pool) {
+        if (pool instanceof PoolStatistics) {
+            return ((PoolStatistics) pool).getNumActive();
+        }
+
+        GenericObjectPool<?> internalPool = internalPoolOf(pool);
+        return internalPool == null ? -1 : internalPool.getNumActive();
+    }
+
+    /**
+     * @return idle connections, -1 if the pool cannot tell
+     */
+    static int numIdle(Pool<?> pool) {
+        if (pool instanceof PoolStatistics) {
+            return ((PoolStatistics) pool).getNumIdle();
+        }
+
+        GenericObjectPool<?> internalPool = internalPoolOf(pool);
+        return internalPool == null ? -1 : internalPool.getNumIdle();
+    }
+
+    /**
+     * @return the commons-pool pool of a Jedis pool, null if it cannot be
+     *         read
+     */
+    static GenericObjectPool<?> internalPoolOf(Pool<?> pool) {
+        try {
+            Field field = Pool.class.getDeclaredField("internalPool");
+            field.setAccessible(true);
+            return (GenericObjectPool<?>) field.get(pool);
+        } catch (Exception e) {
+            logger.debug("Cannot read the internal pool of " + pool, e);
+            return null;
+        }
+    }
+
+    private Iterable<Stats> allNodes() {
+        List<Stats> all = new ArrayList<Stats>(nodes);
+        all.addAll(otherNodes.values());
+        return all;
+    }
+
+    private static Map<String, Double> percentiles(Iterable<? extends Stats> statsList, double percentile) {
+        Map<String, Double> percentiles = new TreeMap<String, Double>();
+        for (Stats stats : statsList) {
+            percentiles.put(stats.name, stats.latency.getPercentileNanos(percentile) / NANOS_PER_MICRO);
+        }
+        return percentiles;
+    }
+
+    private static class Stats {
+        final String name;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+
+        Stats(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, boolean failed) {
+            latency.record(nanos);
+            if (failed) {
+                errors.incrementAndGet();
+            }
+        }
+
+        void reset() {
+            latency.reset();
+            errors.set(0);
+        }
+    }
+
+    private static class NodeStats extends Stats {
+        final String host;
+        final int port;
+
+        NodeStats(String host, int port) {
+            super(host + ":" + port);
+            this.host = host;
+            this.port = port;
+        }
+    }
+
+    private static class PoolStats {
+        final String name;
+        final Pool<?> pool;
+        final LatencyHistogram borrowWait = new LatencyHistogram();
+        final AtomicInteger waiting = new AtomicInteger();
+
+        PoolStats(String name, Pool<?> pool) {
+            this.name = name;
+            this.pool = pool;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package redis.clients.rejis;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link RejisMetrics}, latencies in microseconds.
+ */
+public interface RejisMetricsMXBean {
+
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Long> getOperationErrors();
+
+    Map<String, Double> getOperationP50Micros();
+
+    Map<String, Double> getOperationP99Micros();
+
+    Map<String, Long> getNodeCounts();
+
+    Map<String, Long> getNodeErrors();
+
+    Map<String, Double> getNodeP99Micros();
+
+    Map<String, Double> getBorrowWaitP99Micros();
+
+    Map<String, Integer> getPoolActive();
+
+    Map<String, Integer> getPoolIdle();
+
+    Map<String, Integer> getPoolWaiting();
+
+    /**
+     * @return bytes of replication stream not yet applied, by replica
+     *         host:port
+     */
+    Map<String, Long> getReplicationLagBytes();
+
+    long getRetryCount();
+
+    long getBrokenResourceCount();
+
+    void reset();
+}
@@ -0,0 +1,67 @@
+package redis.clients.rejis;
+
+import redis.clients.jedis.BinaryRedisPipeline;
+import redis.clients.jedis.BinaryShardedJedis;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.RedisPipeline;
+import redis.clients.jedis.ShardedJedisPipeline;
+
+/**
+ * Common view over a Jedis {@link Pipeline} and a {@link ShardedJedisPipeline}
+ * : both accept the same commands but do not share a public type to
+ * synchronize on.
+ */
+public abstract class RejisPipeline {
+
+    public abstract RedisPipeline commands();
+
+    public abstract BinaryRedisPipeline binaryCommands();
+
+    /**
+     * Flush queued commands and read all the replies.
+     */
+    public abstract void sync();
+
+    public static RejisPipeline of(Jedis jedis) {
+        final Pipeline pipeline = jedis.pipelined();
+
+        return new RejisPipeline() {
+            @Override
+            public RedisPipeline commands() {
+                return pipeline;
+            }
+
+            @Override
+            public BinaryRedisPipeline binaryCommands() {
+                return pipeline;
+            }
+
+            @Override
+            public void sync() {
+                pipeline.sync();
+            }
+        };
+    }
+
+    public static RejisPipeline of(BinaryShardedJedis shardedJedis) {
+        final ShardedJedisPipeline pipeline = shardedJedis.pipelined();
+
+        return new RejisPipeline() {
+            @Override
+            public RedisPipeline commands() {
+                return pipeline;
+            }
+
+            @Override
+            public BinaryRedisPipeline binaryCommands() {
+                return pipeline;
+            }
+
+            @Override
+            public void sync() {
+                pipeline.sync();
+            }
+        };
+    }
+}
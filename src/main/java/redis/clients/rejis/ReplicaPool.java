@@ -0,0 +1,288 @@
+package redis.clients.rejis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.pool.impl.GenericObjectPool;
+
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+
+/**
+ * Read pool made of one independent pool per replica, with a
+ * {@link ReplicaSelector} in front of them.
+ * <p>
+ * Unlike {@link RoundRobinPool} the distribution does not depend on the
+ * order connections are created or invalidated, borrows on different
+ * replicas do not contend on the same pool, and a dead replica only breaks
+ * its own pool : its borrows fall back on the next replicas. With circuit
+ * breakers, a replica that keeps failing is not even tried until its
+ * breaker lets a probe through. A replica may also be taken out of the
+ * rotation, for instance by a {@link ReplicationLagMonitor} while it lags.
+ */
+public class ReplicaPool extends Pool<Jedis> implements PoolStatistics {
+
+    private final List<Replica> replicas;
+    private final ReplicaSelector selector;
+
+    // replica never chosen by this pool, -1 for none
+    private final int excludedReplica;
+
+    // replica tried first instead of the one of the selector, -1 for none
+    private final int firstReplica;
+
+    public ReplicaPool(GenericObjectPool.Config poolConfig, List<JedisShardInfo> shards) {
+        this(poolConfig, shards, new RoundRobinReplicaSelector());
+    }
+
+    public ReplicaPool(GenericObjectPool.Config poolConfig, List<JedisShardInfo> shards, ReplicaSelector selector) {
+        this(shards, createPools(poolConfig, shards), selector);
+    }
+
+    /**
+     * @param pools
+     *            one per replica, in the order of the shards, for instance
+     *            {@link SemaphorePool}s
+     */
+    public ReplicaPool(List<JedisShardInfo> shards, List<? extends Pool<Jedis>> pools, ReplicaSelector selector) {
+        if (shards.isEmpty() || shards.size() != pools.size()) {
+            throw new IllegalArgumentException("One pool is required for each replica");
+        }
+
+        List<Replica> replicaList = new ArrayList<Replica>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            replicaList.add(new Replica(shards.get(i), pools.get(i)));
+        }
+        this.replicas = Collections.unmodifiableList(replicaList);
+        this.selector = selector;
+        this.excludedReplica = -1;
+        this.firstReplica = -1;
+    }
+
+    private ReplicaPool(ReplicaPool source, int excludedReplica, int firstReplica) {
+        this.replicas = source.replicas;
+        this.selector = source.selector;
+        this.excludedReplica = excludedReplica;
+        this.firstReplica = firstReplica;
+    }
+
+    private static List<Pool<Jedis>> createPools(GenericObjectPool.Config poolConfig, List<JedisShardInfo> shards) {
+        List<Pool<Jedis>> pools = new ArrayList<Pool<Jedis>>(shards.size());
+        for (JedisShardInfo shard : shards) {
+            String password = StringUtils.isEmpty(shard.getPassword()) ? null : shard.getPassword();
+            pools.add(new JedisPool(poolConfig, shard.getHost(), shard.getPort(), shard.getTimeout(), password));
+        }
+
+        return pools;
+    }
+
+    @Override
+    public Jedis getResource() {
+        int nbReplicas = replicas.size();
+        int first = firstReplica >= 0 ? firstReplica : selector.select(nbReplicas);
+
+        JedisConnectionException lastError = null;
+        for (int i = 0; i < nbReplicas; i++) {
+            int replica = (first + i) % nbReplicas;
+            if (replica == excludedReplica && nbReplicas > 1) {
+                continue;
+            }
+
+            Replica candidate = replicas.get(replica);
+            if (!candidate.eligible) {
+                continue;
+            }
+
+            CircuitBreaker breaker = candidate.breaker;
+            if (breaker != null && !breaker.allowRequest()) {
+                continue;
+            }
+
+            try {
+                return candidate.pool.getResource();
+            } catch (JedisConnectionException e) {
+                if (breaker != null) {
+                    breaker.onFailure();
+                }
+                lastError = e;
+            }
+        }
+
+        if (lastError == null) {
+            throw new JedisConnectionException("No replica available, all circuits are open or replicas out of rotation");
+        }
+        throw new JedisConnectionException("Could not get a resource from any replica", lastError);
+    }
+
+    @Override
+    public void returnResource(Jedis resource) {
+        replicaOf(resource).pool.returnResource(resource);
+    }
+
+    @Override
+    public void returnResourceObject(Object resource) {
+        returnResource((Jedis) resource);
+    }
+
+    @Override
+    public void returnBrokenResource(Jedis resource) {
+        replicaOf(resource).pool.returnBrokenResource(resource);
+    }
+
+    @Override
+    public void destroy() {
+        JedisException lastError = null;
+        for (Replica replica : replicas) {
+            try {
+                replica.pool.destroy();
+            } catch (JedisException e) {
+                lastError = e;
+            }
+        }
+
+        if (lastError != null) {
+            throw lastError;
+        }
+    }
+
+    /**
+     * View of this pool which never borrows from the given replica (unless it
+     * is the only one). It shares the pools of the replicas : do not destroy
+     * it.
+     */
+    public ReplicaPool excluding(int replica) {
+        return new ReplicaPool(this, replica, -1);
+    }
+
+    /**
+     * View of this pool which borrows from the given replica first, then
+     * falls back on the next ones. It shares the pools of the replicas : do
+     * not destroy it.
+     */
+    public ReplicaPool startingAt(int replica) {
+        return new ReplicaPool(this, -1, replica);
+    }
+
+    /**
+     * Put a circuit breaker in front of each replica.
+     */
+    public void setCircuitBreakers(int failureThreshold, long openDuration, TimeUnit unit) {
+        for (Replica replica : replicas) {
+            replica.breaker = new CircuitBreaker(failureThreshold, openDuration, unit);
+        }
+    }
+
+    public CircuitBreaker getCircuitBreaker(int replica) {
+        return replicas.get(replica).breaker;
+    }
+
+    /**
+     * @param eligible
+     *            false to take the replica out of the rotation; when no
+     *            replica is eligible, borrows fail and reads fall back on the
+     *            master
+     */
+    public void setEligible(int replica, boolean eligible) {
+        replicas.get(replica).eligible = eligible;
+    }
+
+    public boolean isEligible(int replica) {
+        return replicas.get(replica).eligible;
+    }
+
+    /**
+     * To call when a read starts on a connection of the replica.
+     */
+    public void onReadStart(int replica) {
+        selector.onReadStart(replica);
+    }
+
+    /**
+     * To call when a read ends on a connection of the replica.
+     */
+    public void onReadEnd(int replica, long latencyNanos, boolean failed) {
+        selector.onReadEnd(replica, latencyNanos, failed);
+
+        CircuitBreaker breaker = replicas.get(replica).breaker;
+        if (breaker != null) {
+            if (failed) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+        }
+    }
+
+    @Override
+    public int getNumActive() {
+        int active = 0;
+        for (Replica replica : replicas) {
+            active += Math.max(0, RejisMetrics.numActive(replica.pool));
+        }
+        return active;
+    }
+
+    @Override
+    public int getNumIdle() {
+        int idle = 0;
+        for (Replica replica : replicas) {
+            idle += Math.max(0, RejisMetrics.numIdle(replica.pool));
+        }
+        return idle;
+    }
+
+    public int getNbReplicas() {
+        return replicas.size();
+    }
+
+    public ReplicaSelector getSelector() {
+        return selector;
+    }
+
+    /**
+     * @return index of the replica the client is connected to
+     */
+    public int indexOf(Jedis resource) {
+        Client client = resource.getClient();
+        for (int i = 0; i < replicas.size(); i++) {
+            JedisShardInfo shard = replicas.get(i).shard;
+            if (shard.getPort() == client.getPort() && shard.getHost().equals(client.getHost())) {
+                return i;
+            }
+        }
+
+        throw new JedisException("Resource does not belong to this pool");
+    }
+
+    public JedisShardInfo getShard(int index) {
+        return replicas.get(index).shard;
+    }
+
+    Pool<Jedis> getPool(int index) {
+        return replicas.get(index).pool;
+    }
+
+    private Replica replicaOf(Jedis resource) {
+        return replicas.get(indexOf(resource));
+    }
+
+    private static class Replica {
+        final JedisShardInfo shard;
+        final Pool<Jedis> pool;
+        volatile CircuitBreaker breaker;
+        volatile boolean eligible = true;
+
+        Replica(JedisShardInfo shard, Pool<Jedis> pool) {
+            this.shard = shard;
+            this.pool = pool;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package redis.clients.rejis;
+
+/**
+ * Choose the replica serving the next read of a {@link ReplicaPool}.
+ * <p>
+ * {@link RoundRobinJedisTemplate} reports the start and the end of each read
+ * done on a replica, so that a selector can route on the observed latency.
+ */
+public interface ReplicaSelector {
+
+    /**
+     * @return index of the replica, between 0 and nbReplicas - 1
+     */
+    int select(int nbReplicas);
+
+    void onReadStart(int replica);
+
+    void onReadEnd(int replica, long latencyNanos, boolean failed);
+
+}
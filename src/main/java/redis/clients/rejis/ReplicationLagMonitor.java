@@ -0,0 +1,222 @@
+package redis.clients.rejis;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+
+/**
+ * Takes the replicas of a {@link ReplicaPool} out of the rotation while they
+ * lag behind their master.
+ * <p>
+ * Every period, INFO replication is read on the master (master_repl_offset)
+ * and on each replica (slave_repl_offset, master_link_status) : the lag of a
+ * replica is the number of bytes of the replication stream it has not
+ * applied yet. A replica is taken out when its lag goes over maxLagBytes or
+ * its link to the master is down, and put back once its lag is under half of
+ * maxLagBytes, so that it does not flap around the threshold.
+ * <p>
+ * A replica which cannot be read is left as it is : its circuit breaker, if
+ * any, deals with it.
+ */
+public class ReplicationLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationLagMonitor.class);
+
+    public static final long UNKNOWN_LAG = -1;
+
+    private final Pool<Jedis> masterPool;
+    private final ReplicaPool replicaPool;
+    private final long maxLagBytes;
+    private final AtomicLongArray lags;
+
+    // null when not instrumented
+    private volatile RejisMetrics metrics;
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> task;
+
+    /**
+     * Monitor the replicas of a template built on a {@link ReplicaPool}.
+     */
+    public ReplicationLagMonitor(RoundRobinJedisTemplate template, long maxLagBytes) {
+        this(template.getWritePool(), replicaPoolOf(template), maxLagBytes);
+    }
+
+    public ReplicationLagMonitor(Pool<Jedis> masterPool, ReplicaPool replicaPool, long maxLagBytes) {
+        if (maxLagBytes < 0) {
+            throw new IllegalArgumentException("Max lag must not be negative");
+        }
+
+        this.masterPool = masterPool;
+        this.replicaPool = replicaPool;
+        this.maxLagBytes = maxLagBytes;
+        this.lags = new AtomicLongArray(replicaPool.getNbReplicas());
+        for (int i = 0; i < lags.length(); i++) {
+            lags.set(i, UNKNOWN_LAG);
+        }
+    }
+
+    private static ReplicaPool replicaPoolOf(RoundRobinJedisTemplate template) {
+        if (!(template.getReadPool() instanceof ReplicaPool)) {
+            throw new IllegalArgumentException("The template must read from a ReplicaPool");
+        }
+
+        return (ReplicaPool) template.getReadPool();
+    }
+
+    /**
+     * Check the replicas every period, on a daemon thread.
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (task != null) {
+            throw new IllegalStateException("Monitor already started");
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "rejis-replication-lag");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        task = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    check();
+                } catch (RuntimeException e) {
+                    logger.warn("Replication lag check failed", e);
+                }
+            }
+        }, 0, period, unit);
+    }
+
+    /**
+     * Stop checking; the replicas stay in or out of the rotation as they are.
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            scheduler.shutdown();
+            task = null;
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Read the offsets and update the rotation once.
+     *
+     * @throws JedisException
+     *             if the master cannot be read, the rotation is then left
+     *             unchanged
+     */
+    public void check() {
+        long masterOffset = offset(info(masterPool), "master_repl_offset:");
+        if (masterOffset < 0) {
+            throw new JedisException("No master_repl_offset in INFO replication of the master");
+        }
+
+        for (int replica = 0; replica < lags.length(); replica++) {
+            long lag = UNKNOWN_LAG;
+            try {
+                String info = info(replicaPool.getPool(replica));
+                long replicaOffset = offset(info, "slave_repl_offset:");
+                if (replicaOffset >= 0 && info.contains("master_link_status:up")) {
+                    lag = Math.max(0, masterOffset - replicaOffset);
+                }
+                update(replica, lag);
+            } catch (JedisException e) {
+                logger.debug("Cannot read the replication state of replica " + replica, e);
+            }
+        }
+    }
+
+    private void update(int replica, long lag) {
+        lags.set(replica, lag);
+
+        RejisMetrics currentMetrics = metrics;
+        if (currentMetrics != null) {
+            JedisShardInfo shard = replicaPool.getShard(replica);
+            currentMetrics.recordReplicationLag(shard.getHost() + ":" + shard.getPort(), lag);
+        }
+
+        boolean eligible = replicaPool.isEligible(replica);
+        if (eligible && (lag == UNKNOWN_LAG || lag > maxLagBytes)) {
+            logger.info("Replica " + replica + " lags by " + lag + " bytes, out of rotation");
+            replicaPool.setEligible(replica, false);
+        } else if (!eligible && lag != UNKNOWN_LAG && lag <= maxLagBytes / 2) {
+            logger.info("Replica " + replica + " caught up, back in rotation");
+            replicaPool.setEligible(replica, true);
+        }
+    }
+
+    private static String info(Pool<Jedis> pool) {
+        Jedis jedis = pool.getResource();
+        boolean broken = false;
+        try {
+            return jedis.info("replication");
+        } catch (JedisException e) {
+            broken = true;
+            pool.returnBrokenResource(jedis);
+            throw e;
+        } finally {
+            if (!broken) {
+                pool.returnResource(jedis);
+            }
+        }
+    }
+
+    /**
+     * @return value of the field in the INFO reply, -1 when missing
+     */
+    static long offset(String info, String field) {
+        int start = info.indexOf(field);
+        if (start < 0) {
+            return -1;
+        }
+
+        start += field.length();
+        int end = start;
+        while (end < info.length() && Character.isDigit(info.charAt(end))) {
+            end++;
+        }
+
+        return end > start ? Long.parseLong(info.substring(start, end)) : -1;
+    }
+
+    /**
+     * @return lag of the replica in bytes at the last check,
+     *         {@link #UNKNOWN_LAG} when it could not be computed
+     */
+    public long getLag(int replica) {
+        return lags.get(replica);
+    }
+
+    public long getMaxLagBytes() {
+        return maxLagBytes;
+    }
+
+    public RejisMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param metrics
+     *            receives the lag of each replica, null for none
+     */
+    public void setMetrics(RejisMetrics metrics) {
+        this.metrics = metrics;
+    }
+}
@@ -0,0 +1,83 @@
+package redis.clients.rejis;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * Reply of a command sent by a {@link MultiplexedEngine}, completed by its
+ * I/O thread. A command cannot be cancelled once submitted.
+ */
+abstract class ReplyFuture<T> implements Future<T> {
+
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private volatile T value;
+    private volatile RuntimeException failure;
+
+    /**
+     * @param reply
+     *            as read by {@link Resp#readReply(java.nio.ByteBuffer)}, not
+     *            an error
+     */
+    protected abstract T convert(Object reply);
+
+    void complete(Object reply) {
+        if (reply instanceof JedisDataException) {
+            fail((JedisDataException) reply);
+            return;
+        }
+
+        try {
+            value = convert(reply);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        done.countDown();
+    }
+
+    void fail(RuntimeException e) {
+        failure = e;
+        done.countDown();
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        done.await();
+        return result();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return result();
+    }
+
+    private T result() throws ExecutionException {
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,200 @@
+package redis.clients.rejis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * RESP encoding of commands Jedis does not know, and decoding of replies
+ * read without Jedis.
+ */
+final class Resp {
+
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    // count of replies Jedis expects on a connection, read back by pipelines
+    private static final Field PIPELINED_COMMANDS = pipelinedCommandsField();
+
+    /**
+     * Returned by {@link #readReply(ByteBuffer)} until the buffer holds a
+     * whole reply.
+     */
+    static final Object INCOMPLETE = new Object();
+
+    private Resp() {
+    }
+
+    static byte[] encodeCommand(byte[]... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeCommand(out, args);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return out.toByteArray();
+    }
+
+    static void writeCommand(OutputStream out, byte[]... args) throws IOException {
+        out.write('*');
+        out.write(SafeEncoder.encode(Integer.toString(args.length)));
+        out.write(CRLF);
+        for (byte[] arg : args) {
+            out.write('$');
+            out.write(SafeEncoder.encode(Integer.toString(arg.length)));
+            out.write(CRLF);
+            out.write(arg);
+            out.write(CRLF);
+        }
+    }
+
+    /**
+     * Send a command on the connection of the client and read its reply. The
+     * client must not have pipelined commands waiting for their replies.
+     * 
+     * @return reply as read by Jedis : Long, byte[] (status or bulk) or List
+     * @throws redis.clients.jedis.exceptions.JedisDataException
+     *             on an error reply
+     */
+    static Object sendCommand(Jedis jedis, String... args) {
+        Client client = jedis.getClient();
+        if (!client.isConnected()) {
+            client.connect();
+        }
+
+        byte[][] rawArgs = new byte[args.length][];
+        for (int i = 0; i < args.length; i++) {
+            rawArgs[i] = SafeEncoder.encode(args[i]);
+        }
+
+        try {
+            OutputStream out = client.getSocket().getOutputStream();
+            out.write(encodeCommand(rawArgs));
+            out.flush();
+        } catch (IOException e) {
+            throw new JedisConnectionException(e);
+        }
+        expectOneMoreReply(client);
+
+        return client.getOne();
+    }
+
+    /**
+     * getOne() consumes one expected reply, as if the command had been sent
+     * by Jedis : keep the count right for the pipelines opened later on this
+     * connection.
+     */
+    private static void expectOneMoreReply(Client client) {
+        if (PIPELINED_COMMANDS == null) {
+            return;
+        }
+
+        try {
+            PIPELINED_COMMANDS.setInt(client, PIPELINED_COMMANDS.getInt(client) + 1);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Read one reply from the buffer, from its position. The position moves
+     * past the reply when it is complete, otherwise it does not move and
+     * {@link #INCOMPLETE} is returned.
+     * 
+     * @return String (status), JedisDataException (error), Long, byte[] or
+     *         null (bulk), List or null (multi bulk)
+     */
+    static Object readReply(ByteBuffer buffer) {
+        int start = buffer.position();
+        Object reply = readReplyFrom(buffer);
+        if (reply == INCOMPLETE) {
+            buffer.position(start);
+        }
+
+        return reply;
+    }
+
+    private static Object readReplyFrom(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            return INCOMPLETE;
+        }
+
+        byte type = buffer.get();
+        String line = readLine(buffer);
+        if (line == null) {
+            return INCOMPLETE;
+        }
+
+        switch (type) {
+        case '+':
+            return line;
+        case '-':
+            return new JedisDataException(line);
+        case ':':
+            return Long.valueOf(line);
+        case '$':
+            int length = Integer.parseInt(line);
+            if (length < 0) {
+                return null;
+            }
+            if (buffer.remaining() < length + CRLF.length) {
+                return INCOMPLETE;
+            }
+            byte[] bulk = new byte[length];
+            buffer.get(bulk);
+            buffer.position(buffer.position() + CRLF.length);
+            return bulk;
+        case '*':
+            int count = Integer.parseInt(line);
+            if (count < 0) {
+                return null;
+            }
+            List<Object> replies = new ArrayList<Object>(count);
+            for (int i = 0; i < count; i++) {
+                Object reply = readReplyFrom(buffer);
+                if (reply == INCOMPLETE) {
+                    return INCOMPLETE;
+                }
+                replies.add(reply);
+            }
+            return replies;
+        default:
+            throw new JedisConnectionException("Unknown reply type : " + (char) type);
+        }
+    }
+
+    private static String readLine(ByteBuffer buffer) {
+        StringBuilder line = new StringBuilder();
+        while (buffer.remaining() >= CRLF.length) {
+            byte b = buffer.get();
+            if (b == '\r') {
+                buffer.get();
+                return line.toString();
+            }
+            line.append((char) b);
+        }
+
+        return null;
+    }
+
+    private static Field pipelinedCommandsField() {
+        try {
+            Field field = Connection.class.getDeclaredField("pipelinedCommands");
+            field.setAccessible(true);
+            return field;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
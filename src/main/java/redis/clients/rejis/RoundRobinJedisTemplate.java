@@ -1,11 +1,15 @@
 package redis.clients.rejis;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.JedisShardInfo;
 import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
 import redis.clients.util.Pool;
 
 public class RoundRobinJedisTemplate extends SimpleJedisTemplate {
@@ -14,6 +18,12 @@ public class RoundRobinJedisTemplate extends SimpleJedisTemplate {
     // redundancyFactor 0
     private int redundancyFactor = 2;
 
+    // null when reads are not hedged
+    private volatile HedgingPolicy hedgingPolicy;
+
+    // null when reads fall back on the master whatever its state
+    private volatile CircuitBreaker masterCircuitBreaker;
+
     protected RoundRobinJedisTemplate() {
     }
 
@@ -23,41 +33,312 @@ public class RoundRobinJedisTemplate extends SimpleJedisTemplate {
         setRedundancyFactor(shards.size());
     }
 
+    /**
+     * Read from the replicas of a {@link ReplicaPool}, one pool per replica.
+     */
+    public RoundRobinJedisTemplate(JedisPoolConfig jedisPoolConfig, String masterIP, int masterPort, String password, ReplicaPool replicaPool) {
+        super(jedisPoolConfig, masterIP, masterPort, password);
+        setReadPool(replicaPool);
+        setRedundancyFactor(replicaPool.getNbReplicas());
+    }
+
+    /**
+     * Same as above with any pool for the master, for instance a
+     * {@link SemaphorePool} (its replicas may be SemaphorePools too).
+     */
+    public RoundRobinJedisTemplate(Pool<Jedis> masterPool, ReplicaPool replicaPool) {
+        super(masterPool);
+        setReadPool(replicaPool);
+        setRedundancyFactor(replicaPool.getNbReplicas());
+    }
+
     @Override
     protected <T> T doGet(JedisCallback<Jedis, T> jedisCallback) {
+        HedgingPolicy hedging = hedgingPolicy;
+        if (hedging != null) {
+            return doHedgedGet(jedisCallback, hedging);
+        }
+
         return this.doGet(jedisCallback, getRedundancyFactor());
     }
 
     protected <T> T doGet(JedisCallback<Jedis, T> jedisCallback, int tryCounter) {
-        T result = null;
+        return doGet(jedisCallback, tryCounter, getReadPool());
+    }
+
+    /**
+     * Try the read tryCounter times on the read pool, then once on the master.
+     */
+    protected <T> T doGet(JedisCallback<Jedis, T> jedisCallback, int tryCounter, Pool<Jedis> readPool) {
+        JedisConnectionException lastError = null;
+        for (int nbTry = tryCounter; nbTry >= 0; nbTry--) {
+            if (nbTry < tryCounter && getMetrics() != null) {
+                getMetrics().onRetry();
+            }
+
+            try {
+                return doGetOnPool(jedisCallback, selectPool(nbTry, readPool));
+            } catch (JedisConnectionException ex) {
+                lastError = ex;
+            }
+        }
+
+        throw new JedisConnectionException("CanalJedis : Cant get value from redis Cache", lastError);
+    }
+
+    private <T> T doGetOnPool(JedisCallback<Jedis, T> jedisCallback, Pool<Jedis> pool) {
+        CircuitBreaker breaker = (pool == getWritePool()) ? masterCircuitBreaker : null;
+        if (breaker != null && !breaker.allowRequest()) {
+            throw new JedisConnectionException("Master circuit is open");
+        }
+
+        ReplicaPool replicaPool = (pool instanceof ReplicaPool) ? (ReplicaPool) pool : null;
+        int replica = -1;
+        long start = 0;
         Jedis jedis = null;
         boolean isResourceInError = false;
-
-        Pool<Jedis> pool = selectPool(tryCounter);
         try {
             jedis = getJedisFromReadPool(pool);
-            result = jedisCallback.doJedisAction(jedis);
+            if (replicaPool != null) {
+                replica = replicaPool.indexOf(jedis);
+                replicaPool.onReadStart(replica);
+            }
+            start = System.nanoTime();
+
+            return jedisCallback.doJedisAction(jedis);
         } catch (JedisConnectionException ex) {
             isResourceInError = true;
             returnBrokenClientToPool(jedis, pool);
+            throw ex;
+        } finally {
+            recordCommand(jedis, start, isResourceInError);
+            if (replica >= 0) {
+                replicaPool.onReadEnd(replica, System.nanoTime() - start, isResourceInError);
+            }
 
-            if (tryCounter > 0) {
-                result = doGet(jedisCallback, tryCounter - 1);
-            } else {
-                throw new JedisConnectionException("CanalJedis : Cant get value from redis Cache", ex);
+            if (breaker != null) {
+                if (isResourceInError) {
+                    breaker.onFailure();
+                } else {
+                    breaker.onSuccess();
+                }
             }
-        } finally {
+
             if (!isResourceInError) {
                 returnClientToPool(jedis, pool);
             }
         }
+    }
+
+    /**
+     * Run the read on the caller thread, and if it has not answered after the
+     * delay send it again to another replica from the executor of the policy,
+     * within the budget. The first successful answer wins : when the hedge
+     * wins, the connection of the first read is closed to unblock the caller.
+     */
+    protected <T> T doHedgedGet(JedisCallback<Jedis, T> jedisCallback, HedgingPolicy hedging) {
+        hedging.onRead();
+        if (getRedundancyFactor() <= 0) {
+            // reads go to the master only : nothing to hedge on
+            return doGet(jedisCallback, getRedundancyFactor());
+        }
+
+        Pool<Jedis> readPool = getReadPool();
+        HedgedRead<T> read;
+        Pool<Jedis> firstPool;
+        if (readPool instanceof ReplicaPool) {
+            // replica chosen before borrowing, so that a hedge fired before
+            // the first read got its connection does not go to it
+            ReplicaPool replicaPool = (ReplicaPool) readPool;
+            int firstReplica = replicaPool.getSelector().select(replicaPool.getNbReplicas());
+            read = new HedgedRead<T>(jedisCallback, hedging, readPool, firstReplica);
+            firstPool = replicaPool.startingAt(firstReplica);
+        } else {
+            read = new HedgedRead<T>(jedisCallback, hedging, readPool, -1);
+            firstPool = readPool;
+        }
+
+        ScheduledFuture<?> hedge;
+        try {
+            hedge = hedging.getExecutor().schedule(read, hedging.getDelayNanos(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            return doGet(jedisCallback, getRedundancyFactor(), readPool);
+        }
+
+        T result;
+        try {
+            result = read.readFirst(firstPool);
+        } catch (RuntimeException e) {
+            hedge.cancel(false);
+            try {
+                return read.afterFirstFailed(e);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new JedisException("Interrupted while waiting for a hedged read", ie);
+            }
+        }
 
+        hedge.cancel(false);
+        read.afterFirstAnswered();
         return result;
     }
 
+    /**
+     * State of a hedged read, shared by the first read on the caller thread
+     * and the hedge, which runs on the executor.
+     */
+    private class HedgedRead<T> implements Runnable {
+
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int SKIPPED = 2;
+        private static final int ANSWERED = 3;
+        private static final int FAILED = 4;
+
+        private final JedisCallback<Jedis, T> jedisCallback;
+        private final HedgingPolicy hedging;
+        private final Pool<Jedis> readPool;
+
+        // replica of the first read, -1 when the read pool is not a ReplicaPool
+        private volatile int firstReplica;
+
+        // guarded by this
+        private int state = PENDING;
+        private T hedgeResult;
+        // connection of the first read while its command runs
+        private Jedis firstJedis;
+
+        HedgedRead(JedisCallback<Jedis, T> jedisCallback, HedgingPolicy hedging, Pool<Jedis> readPool, int firstReplica) {
+            this.jedisCallback = jedisCallback;
+            this.hedging = hedging;
+            this.readPool = readPool;
+            this.firstReplica = firstReplica;
+        }
+
+        /**
+         * Same tries as {@link RoundRobinJedisTemplate#doGet(JedisCallback, int, Pool)},
+         * the first one on firstPool, until the hedge answers.
+         */
+        T readFirst(Pool<Jedis> firstPool) {
+            JedisCallback<Jedis, T> firstCallback = new JedisCallback<Jedis, T>() {
+                @Override
+                public T doJedisAction(Jedis jedis) {
+                    synchronized (HedgedRead.this) {
+                        if (state == ANSWERED) {
+                            return hedgeResult;
+                        }
+                        firstJedis = jedis;
+                    }
+                    if (firstReplica >= 0) {
+                        firstReplica = ((ReplicaPool) readPool).indexOf(jedis);
+                    }
+
+                    try {
+                        return jedisCallback.doJedisAction(jedis);
+                    } finally {
+                        synchronized (HedgedRead.this) {
+                            firstJedis = null;
+                        }
+                    }
+                }
+            };
+
+            JedisConnectionException lastError = null;
+            for (int nbTry = getRedundancyFactor(); nbTry >= 0 && !isAnswered(); nbTry--) {
+                if (lastError != null && getMetrics() != null) {
+                    getMetrics().onRetry();
+                }
+
+                try {
+                    return doGetOnPool(firstCallback, lastError == null ? firstPool : selectPool(nbTry, readPool));
+                } catch (JedisConnectionException ex) {
+                    lastError = ex;
+                }
+            }
+
+            throw new JedisConnectionException("CanalJedis : Cant get value from redis Cache", lastError);
+        }
+
+        synchronized void afterFirstAnswered() {
+            if (state == PENDING) {
+                state = SKIPPED;
+            }
+        }
+
+        /**
+         * @return the answer of the hedge, if it was sent and succeeded
+         */
+        synchronized T afterFirstFailed(RuntimeException firstError) throws InterruptedException {
+            if (state == PENDING) {
+                state = SKIPPED;
+            }
+            while (state == RUNNING) {
+                wait();
+            }
+
+            if (state == ANSWERED) {
+                return hedgeResult;
+            }
+            throw firstError;
+        }
+
+        /**
+         * The hedge, scheduled after the delay.
+         */
+        @Override
+        public void run() {
+            if (!start()) {
+                return;
+            }
+
+            int excluded = firstReplica;
+            Pool<Jedis> hedgePool = excluded >= 0 ? ((ReplicaPool) readPool).excluding(excluded) : readPool;
+            try {
+                end(ANSWERED, doGet(jedisCallback, getRedundancyFactor(), hedgePool));
+            } catch (RuntimeException e) {
+                end(FAILED, null);
+            }
+        }
+
+        private synchronized boolean start() {
+            if (state != PENDING) {
+                return false;
+            }
+            if (!hedging.tryAcquireHedge()) {
+                state = SKIPPED;
+                return false;
+            }
+
+            state = RUNNING;
+            return true;
+        }
+
+        private synchronized void end(int endState, T result) {
+            state = endState;
+            hedgeResult = result;
+            notifyAll();
+
+            if (endState == ANSWERED && firstJedis != null) {
+                try {
+                    firstJedis.disconnect();
+                } catch (JedisException ignored) {
+                    // the first read fails anyway
+                }
+            }
+        }
+
+        private synchronized boolean isAnswered() {
+            return state == ANSWERED;
+        }
+    }
+
     protected Pool<Jedis> selectPool(int nbTry) {
+        return selectPool(nbTry, getReadPool());
+    }
+
+    protected Pool<Jedis> selectPool(int nbTry, Pool<Jedis> readPool) {
         if (nbTry > 0) {
-            return getReadPool();
+            return readPool;
         } else {
             return getWritePool();
         }
@@ -70,4 +351,29 @@ public class RoundRobinJedisTemplate extends SimpleJedisTemplate {
     public void setRedundancyFactor(int redundancyFactor) {
         this.redundancyFactor = redundancyFactor;
     }
+
+    public CircuitBreaker getMasterCircuitBreaker() {
+        return masterCircuitBreaker;
+    }
+
+    /**
+     * @param masterCircuitBreaker
+     *            breaker of the master for the reads falling back on it, null
+     *            for none
+     */
+    public void setMasterCircuitBreaker(CircuitBreaker masterCircuitBreaker) {
+        this.masterCircuitBreaker = masterCircuitBreaker;
+    }
+
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * @param hedgingPolicy
+     *            null to stop hedging reads
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
 }
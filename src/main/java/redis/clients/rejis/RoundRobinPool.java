@@ -1,12 +1,18 @@
 package redis.clients.rejis;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.pool.BasePoolableObjectFactory;
 import org.apache.commons.pool.PoolableObjectFactory;
 import org.apache.commons.pool.impl.GenericObjectPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisShardInfo;
@@ -17,33 +23,85 @@ import redis.clients.util.Pool;
 /**
  * https://gist.github.com/ib84/1084272
  */
-public class RoundRobinPool extends Pool<Jedis> {
+public class RoundRobinPool extends Pool<Jedis> implements PoolStatistics {
+    private static final Logger logger = LoggerFactory.getLogger(RoundRobinPool.class);
+
+    public static final long DEFAULT_DOWN_SHARD_RETRY_MILLIS = 1000;
+
     private GenericObjectPool jedisClientPool;
     private RoundRobinFactory factory;
 
+    // null when the pool was not warmed up
+    private PoolWarmUp warmUp;
+
+    /**
+     * Opens one connection per shard, in parallel, before returning.
+     */
     public RoundRobinPool(final GenericObjectPool.Config poolConfig, List<JedisShardInfo> shards) {
+        this(poolConfig, shards, WarmUpPolicy.DEFAULT);
+    }
+
+    /**
+     * @param warmUpPolicy
+     *            null to open the connections on first use
+     */
+    public RoundRobinPool(final GenericObjectPool.Config poolConfig, List<JedisShardInfo> shards, WarmUpPolicy warmUpPolicy) {
         super(poolConfig, null);
         this.factory = new RoundRobinFactory(shards);
         jedisClientPool = new GenericObjectPool(factory, poolConfig);
         jedisClientPool.setLifo(false);
 
-        initializePool();
+        if (warmUpPolicy != null) {
+            warmUp = PoolWarmUp.start(warmUpPolicy, Collections.singletonMap("replicas", this));
+        }
     }
 
     public RoundRobinPool(final GenericObjectPool.Config poolConfig, PoolableObjectFactory factory) {
         super(poolConfig, factory);
     }
 
-    private void initializePool() {
-        for (int i = factory.getNbShards(); i > 0; i--) {
-            try {
-                jedisClientPool.addObject();
-            } catch (Exception e) {
-                throw new IllegalStateException("Pb initialisation pool jedis", e);
-            }
+    /**
+     * Open one more idle connection, on the next shard up.
+     *
+     * @return false if no shard could be connected
+     */
+    boolean addConnection() {
+        try {
+            jedisClientPool.addObject();
+            return true;
+        } catch (Exception e) {
+            logger.warn("Cannot open a connection to any shard", e);
+            return false;
         }
     }
 
+    int getNbShards() {
+        return factory.getNbShards();
+    }
+
+    /**
+     * @param retryDelay
+     *            during which a shard down is skipped, before it is tried
+     *            again
+     */
+    public void setDownShardRetryDelay(long retryDelay, TimeUnit unit) {
+        factory.retryDelayNanos = unit.toNanos(retryDelay);
+    }
+
+    /**
+     * @return host:port of the shards whose last connection failed
+     */
+    public Set<String> getDownShards() {
+        return Collections.unmodifiableSet(factory.downShards.keySet());
+    }
+
+    /**
+     * @return the warm-up started by the constructor, null for none
+     */
+    public PoolWarmUp getWarmUp() {
+        return warmUp;
+    }
+
     public void setWhenExhaustedGrow(boolean whenExhaustedGrow) {
         this.jedisClientPool.setWhenExhaustedAction(GenericObjectPool.WHEN_EXHAUSTED_GROW);
     }
@@ -89,6 +147,18 @@ public class RoundRobinPool extends Pool<Jedis> {
         }
     }
 
+    /**
+     * Jedis returns untyped resources to the internal pool, not to this one.
+     */
+    @Override
+    public void returnResourceObject(final Object resource) {
+        if (jedisClientPool == null) {
+            super.returnResourceObject(resource);
+        } else {
+            returnResource((Jedis) resource);
+        }
+    }
+
     public void returnBrokenResource(final Jedis resource) {
         try {
             jedisClientPool.invalidateObject(resource);
@@ -105,6 +175,21 @@ public class RoundRobinPool extends Pool<Jedis> {
         }
     }
 
+    /**
+     * @return the commons-pool pool holding the connections
+     */
+    GenericObjectPool<?> getObjectPool() {
+        return jedisClientPool != null ? jedisClientPool : internalPool;
+    }
+
+    public int getNumActive() {
+        return (jedisClientPool != null ? jedisClientPool : internalPool).getNumActive();
+    }
+
+    public int getNumIdle() {
+        return (jedisClientPool != null ? jedisClientPool : internalPool).getNumIdle();
+    }
+
     public void setTestOnBorrow(boolean stob) {
         jedisClientPool.setTestOnBorrow(stob);
     }
@@ -120,31 +205,65 @@ public class RoundRobinPool extends Pool<Jedis> {
     private static class RoundRobinFactory extends BasePoolableObjectFactory {
         private List<JedisShardInfo> shards;
         private Iterator<JedisShardInfo> shardIterator;
+        // host:port -> nanoTime of the last failure
+        private final ConcurrentHashMap<String, Long> downShards = new ConcurrentHashMap<String, Long>();
+        private volatile long retryDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_DOWN_SHARD_RETRY_MILLIS);
 
         public RoundRobinFactory(List<JedisShardInfo> shards) {
             this.shards = shards;
             this.shardIterator = this.shards.iterator();
         }
 
+        /**
+         * Connect to the next shard, or to the following ones when it is
+         * down. A shard down is skipped until its retry delay is over.
+         */
         public Object makeObject() throws Exception {
-            JedisShardInfo jsi = null;
-            if (shardIterator.hasNext()) {
-                jsi = (JedisShardInfo) shardIterator.next();
-            } else {
-                resetShardsIterator();
-                if (shardIterator.hasNext()) {
-                    jsi = (JedisShardInfo) shardIterator.next();
+            Exception lastError = null;
+            for (int i = shards.size(); i > 0; i--) {
+                JedisShardInfo jsi = nextShard();
+                String node = jsi.getHost() + ":" + jsi.getPort();
+                Long downSince = downShards.get(node);
+                if (downSince != null && System.nanoTime() - downSince < retryDelayNanos) {
+                    continue;
                 }
+
+                Jedis jedis = new Jedis(jsi.getHost(), jsi.getPort(), jsi.getTimeout());
+                try {
+                    jedis.connect();
+
+                    if (!StringUtils.isEmpty(jsi.getPassword())) {
+                        jedis.auth(jsi.getPassword());
+                    }
+                } catch (Exception e) {
+                    // no QUIT : Jedis would connect again to send it
+                    try {
+                        jedis.disconnect();
+                    } catch (Exception ignored) {
+                    }
+                    if (downShards.put(node, System.nanoTime()) == null) {
+                        logger.warn("Shard " + node + " is down : " + e.getMessage());
+                    }
+                    lastError = e;
+                    continue;
+                }
+
+                downShards.remove(node);
+                return jedis;
             }
-            
-            Jedis jedis = new Jedis(jsi.getHost(), jsi.getPort());
-            jedis.connect();
 
-            if (!StringUtils.isEmpty(jsi.getPassword())) {
-                jedis.auth(jsi.getPassword());
+            if (lastError == null) {
+                throw new JedisConnectionException("All shards are down, next retry within " + TimeUnit.NANOSECONDS.toMillis(retryDelayNanos) + " ms");
+            }
+            throw lastError;
+        }
+
+        private synchronized JedisShardInfo nextShard() {
+            if (!shardIterator.hasNext()) {
+                resetShardsIterator();
             }
 
-            return jedis;
+            return shardIterator.next();
         }
 
         public void destroyObject(final Object obj) throws Exception {
@@ -177,7 +296,7 @@ public class RoundRobinPool extends Pool<Jedis> {
             return shards.size();
         }
 
-        public void resetShardsIterator() {
+        public synchronized void resetShardsIterator() {
             shardIterator = shards.iterator();
         }
     }
@@ -0,0 +1,24 @@
+package redis.clients.rejis;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exact round robin on an atomic counter.
+ */
+public class RoundRobinReplicaSelector implements ReplicaSelector {
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public int select(int nbReplicas) {
+        return (counter.getAndIncrement() & Integer.MAX_VALUE) % nbReplicas;
+    }
+
+    @Override
+    public void onReadStart(int replica) {
+    }
+
+    @Override
+    public void onReadEnd(int replica, long latencyNanos, boolean failed) {
+    }
+}
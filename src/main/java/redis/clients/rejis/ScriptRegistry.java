@@ -0,0 +1,27 @@
+package redis.clients.rejis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Scripts registered on a template, by SHA1.
+ */
+class ScriptRegistry {
+
+    private final ConcurrentMap<String, LuaScript> scripts = new ConcurrentHashMap<String, LuaScript>();
+
+    /**
+     * @return the script registered with the same body, if any
+     */
+    LuaScript register(String body) {
+        LuaScript script = new LuaScript(body);
+        LuaScript registered = scripts.putIfAbsent(script.getSha1(), script);
+        return registered != null ? registered : script;
+    }
+
+    Collection<LuaScript> getScripts() {
+        return new ArrayList<LuaScript>(scripts.values());
+    }
+}
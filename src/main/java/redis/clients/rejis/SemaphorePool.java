@@ -0,0 +1,428 @@
+package redis.clients.rejis;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.pool.BasePoolableObjectFactory;
+import org.apache.commons.pool.PoolableObjectFactory;
+import org.apache.commons.pool.impl.GenericObjectPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+
+/**
+ * Pool without lock nor synchronized block, for many threads (virtual ones
+ * included) : the idle connections sit in a lock-free queue and a fair
+ * semaphore bounds the borrowed ones. A borrow waiting for a connection
+ * parks on the semaphore, first come first served.
+ * <p>
+ * Configured like {@link GenericObjectPool} : maxActive, maxIdle, minIdle,
+ * maxWait, whenExhaustedAction (FAIL, BLOCK, or GROW without limit),
+ * testOnBorrow, testOnReturn, testWhileIdle and the eviction settings
+ * (timeBetweenEvictionRunsMillis, minEvictableIdleTimeMillis). Idle
+ * connections are always reused in FIFO order, lifo is ignored.
+ */
+public class SemaphorePool<T> extends Pool<T> implements PoolStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(SemaphorePool.class);
+
+    private final PoolableObjectFactory<T> factory;
+
+    private final Semaphore permits;
+    private final boolean failWhenExhausted;
+    private final long maxWait;
+    private final int maxIdle;
+    private final int minIdle;
+    private final boolean testOnBorrow;
+    private final boolean testOnReturn;
+    private final boolean testWhileIdle;
+    private final long minEvictableIdleTime;
+
+    private final Queue<Idle<T>> idle = new ConcurrentLinkedQueue<Idle<T>>();
+    // size() of the queue is not constant time
+    private final AtomicInteger numIdle = new AtomicInteger();
+    private final AtomicInteger numActive = new AtomicInteger();
+
+    private final ScheduledFuture<?> evictor;
+    private volatile boolean closed;
+
+    /**
+     * @param poolConfig
+     *            typically a JedisPoolConfig
+     */
+    public SemaphorePool(GenericObjectPool.Config poolConfig, PoolableObjectFactory<T> factory) {
+        this.factory = factory;
+
+        boolean bounded = poolConfig.maxActive > 0 && poolConfig.whenExhaustedAction != GenericObjectPool.WHEN_EXHAUSTED_GROW;
+        this.permits = new Semaphore(bounded ? poolConfig.maxActive : Integer.MAX_VALUE, true);
+        this.failWhenExhausted = poolConfig.whenExhaustedAction == GenericObjectPool.WHEN_EXHAUSTED_FAIL;
+        this.maxWait = poolConfig.maxWait;
+        this.maxIdle = poolConfig.maxIdle < 0 ? Integer.MAX_VALUE : poolConfig.maxIdle;
+        this.minIdle = poolConfig.minIdle;
+        this.testOnBorrow = poolConfig.testOnBorrow;
+        this.testOnReturn = poolConfig.testOnReturn;
+        this.testWhileIdle = poolConfig.testWhileIdle;
+        this.minEvictableIdleTime = poolConfig.minEvictableIdleTimeMillis;
+
+        if (poolConfig.timeBetweenEvictionRunsMillis > 0) {
+            evictor = Evictor.SCHEDULER.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        evict();
+                    } catch (RuntimeException e) {
+                        logger.warn("Eviction of idle connections failed", e);
+                    }
+                }
+            }, poolConfig.timeBetweenEvictionRunsMillis, poolConfig.timeBetweenEvictionRunsMillis, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+    }
+
+    /**
+     * Pool of connections to a single node.
+     *
+     * @param timeout
+     *            in milliseconds
+     * @param password
+     *            null or empty without AUTH
+     */
+    public static SemaphorePool<Jedis> create(GenericObjectPool.Config poolConfig, String host, int port, int timeout, String password) {
+        return new SemaphorePool<Jedis>(poolConfig, new NodeFactory(host, port, timeout, password));
+    }
+
+    /**
+     * Pool of ShardedJedis on the given shards, as a ShardedJedisPool.
+     */
+    public static SemaphorePool<ShardedJedis> createSharded(GenericObjectPool.Config poolConfig, List<JedisShardInfo> shards) {
+        return new SemaphorePool<ShardedJedis>(poolConfig, new ShardedFactory(shards));
+    }
+
+    @Override
+    public T getResource() {
+        if (closed) {
+            throw new JedisConnectionException("Could not get a resource from the pool", new IllegalStateException("Pool closed"));
+        }
+
+        acquire();
+        try {
+            T resource = borrowIdle();
+            if (resource == null) {
+                resource = factory.makeObject();
+                factory.activateObject(resource);
+            }
+
+            numActive.incrementAndGet();
+            return resource;
+        } catch (Exception e) {
+            permits.release();
+            throw new JedisConnectionException("Could not get a resource from the pool", e);
+        }
+    }
+
+    private void acquire() {
+        boolean acquired;
+        try {
+            if (failWhenExhausted) {
+                acquired = permits.tryAcquire();
+            } else if (maxWait <= 0) {
+                // no timeout, as GenericObjectPool does for BLOCK
+                permits.acquire();
+                acquired = true;
+            } else {
+                acquired = permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisConnectionException("Could not get a resource from the pool", e);
+        }
+
+        if (!acquired) {
+            throw new JedisConnectionException("Could not get a resource from the pool", new NoSuchElementException(failWhenExhausted ? "Pool exhausted" : "Timeout waiting for idle object"));
+        }
+    }
+
+    /**
+     * @return an idle connection, activated and valid if tested, null if
+     *         none is left
+     */
+    private T borrowIdle() {
+        Idle<T> entry;
+        while ((entry = idle.poll()) != null) {
+            numIdle.decrementAndGet();
+            try {
+                factory.activateObject(entry.resource);
+                if (!testOnBorrow || factory.validateObject(entry.resource)) {
+                    return entry.resource;
+                }
+            } catch (Exception e) {
+                logger.debug("Cannot activate an idle connection", e);
+            }
+            destroy(entry.resource);
+        }
+
+        return null;
+    }
+
+    @Override
+    public void returnResource(T resource) {
+        try {
+            if (closed || (testOnReturn && !factory.validateObject(resource))) {
+                destroy(resource);
+            } else {
+                factory.passivateObject(resource);
+                addIdle(resource);
+            }
+        } catch (Exception e) {
+            destroy(resource);
+        } finally {
+            released();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void returnResourceObject(Object resource) {
+        returnResource((T) resource);
+    }
+
+    @Override
+    public void returnBrokenResource(T resource) {
+        try {
+            destroy(resource);
+        } finally {
+            released();
+        }
+    }
+
+    private void released() {
+        numActive.decrementAndGet();
+        permits.release();
+    }
+
+    private void addIdle(T resource) {
+        if (numIdle.incrementAndGet() > maxIdle) {
+            numIdle.decrementAndGet();
+            destroy(resource);
+            return;
+        }
+
+        idle.offer(new Idle<T>(resource, System.currentTimeMillis()));
+    }
+
+    private void destroy(T resource) {
+        try {
+            factory.destroyObject(resource);
+        } catch (Exception e) {
+            logger.debug("Cannot destroy a connection", e);
+        }
+    }
+
+    /**
+     * Close the connections idle for too long (but minIdle), test the other
+     * ones if testWhileIdle, then open connections up to minIdle.
+     */
+    void evict() {
+        long evictableSince = System.currentTimeMillis() - minEvictableIdleTime;
+        int toTest = testWhileIdle ? numIdle.get() : 0;
+
+        for (Iterator<Idle<T>> entries = idle.iterator(); entries.hasNext() && !closed;) {
+            Idle<T> entry = entries.next();
+            boolean evictable = minEvictableIdleTime > 0 && entry.since < evictableSince && numIdle.get() > minIdle;
+            if ((!evictable && toTest-- <= 0) || !idle.remove(entry)) {
+                // not to check, or borrowed meanwhile
+                continue;
+            }
+            numIdle.decrementAndGet();
+
+            if (!evictable && factory.validateObject(entry.resource)) {
+                numIdle.incrementAndGet();
+                idle.offer(entry);
+            } else {
+                destroy(entry.resource);
+            }
+        }
+
+        while (!closed && numIdle.get() < minIdle) {
+            try {
+                T resource = factory.makeObject();
+                factory.passivateObject(resource);
+                addIdle(resource);
+            } catch (Exception e) {
+                logger.warn("Cannot open an idle connection", e);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Close the idle connections, the borrowed ones are closed when
+     * returned.
+     */
+    @Override
+    public void destroy() {
+        closed = true;
+        if (evictor != null) {
+            evictor.cancel(false);
+        }
+
+        Idle<T> entry;
+        while ((entry = idle.poll()) != null) {
+            numIdle.decrementAndGet();
+            destroy(entry.resource);
+        }
+    }
+
+    @Override
+    public int getNumActive() {
+        return numActive.get();
+    }
+
+    @Override
+    public int getNumIdle() {
+        return numIdle.get();
+    }
+
+    /**
+     * @return borrows waiting for a connection, estimated
+     */
+    public int getNumWaiters() {
+        return permits.getQueueLength();
+    }
+
+    private static final class Idle<T> {
+
+        final T resource;
+        final long since;
+
+        Idle(T resource, long since) {
+            this.resource = resource;
+            this.since = since;
+        }
+    }
+
+    /**
+     * One daemon thread for the evictions of all the pools, started with the
+     * first of them.
+     */
+    private static final class Evictor {
+
+        static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "rejis-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static class NodeFactory extends BasePoolableObjectFactory<Jedis> {
+
+        private final String host;
+        private final int port;
+        private final int timeout;
+        private final String password;
+
+        NodeFactory(String host, int port, int timeout, String password) {
+            this.host = host;
+            this.port = port;
+            this.timeout = timeout;
+            this.password = password;
+        }
+
+        @Override
+        public Jedis makeObject() throws Exception {
+            Jedis jedis = new Jedis(host, port, timeout);
+            try {
+                jedis.connect();
+                if (!StringUtils.isEmpty(password)) {
+                    jedis.auth(password);
+                }
+            } catch (JedisException e) {
+                destroyObject(jedis);
+                throw e;
+            }
+
+            return jedis;
+        }
+
+        @Override
+        public void destroyObject(Jedis jedis) throws Exception {
+            close(jedis);
+        }
+
+        @Override
+        public boolean validateObject(Jedis jedis) {
+            try {
+                return jedis.isConnected() && "PONG".equals(jedis.ping());
+            } catch (Exception e) {
+                return false;
+            }
+        }
+    }
+
+    private static class ShardedFactory extends BasePoolableObjectFactory<ShardedJedis> {
+
+        private final List<JedisShardInfo> shards;
+
+        ShardedFactory(List<JedisShardInfo> shards) {
+            this.shards = shards;
+        }
+
+        @Override
+        public ShardedJedis makeObject() throws Exception {
+            return new ShardedJedis(shards);
+        }
+
+        @Override
+        public void destroyObject(ShardedJedis shardedJedis) throws Exception {
+            for (Jedis jedis : shardedJedis.getAllShards()) {
+                close(jedis);
+            }
+        }
+
+        @Override
+        public boolean validateObject(ShardedJedis shardedJedis) {
+            try {
+                for (Jedis jedis : shardedJedis.getAllShards()) {
+                    if (!"PONG".equals(jedis.ping())) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+    }
+
+    private static void close(Jedis jedis) {
+        if (jedis.isConnected()) {
+            try {
+                jedis.quit();
+            } catch (Exception e) {
+                // closed anyway
+            }
+            jedis.disconnect();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package redis.clients.rejis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Java serialization of the values.
+ */
+public class SerializableCodec<T extends Serializable> implements Codec<T> {
+
+    @Override
+    public byte[] encode(T value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(value);
+            out.close();
+
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new JedisException("Cannot serialize " + value.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T decode(byte[] bytes, int offset, int length) {
+        try {
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes, offset, length));
+            try {
+                return (T) in.readObject();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new JedisException("Cannot deserialize value", e);
+        } catch (ClassNotFoundException e) {
+            throw new JedisException("Cannot deserialize value", e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package redis.clients.rejis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.ShardedJedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.util.Pool;
+
+/**
+ * Writes and reads sharded over several masters by the consistent hash ring
+ * of Jedis (virtual nodes, weighted by the weight of each shard).
+ * <p>
+ * Each master may have replicas : they are put on the same position of the
+ * ring as their master, so a key is always read from a copy of the master it
+ * was written to. A master without replicas serves its own reads. A read
+ * that fails on a rank of replicas is tried once on each of the other ranks.
+ */
+public class ShardedJedisTemplate extends AbstractJedisTemplate<ShardedJedis, ShardedJedis> {
+
+    /**
+     * Masters only, used for reads and writes.
+     */
+    public ShardedJedisTemplate(JedisPoolConfig jedisPoolConfig, List<JedisShardInfo> masters) {
+        this(jedisPoolConfig, masters, Collections.<JedisShardInfo, List<JedisShardInfo>> emptyMap());
+    }
+
+    /**
+     * @param masters
+     *            shards of the ring; their names, if any, must be unique
+     * @param replicas
+     *            replicas by master, masters missing from the map read from
+     *            themselves
+     */
+    public ShardedJedisTemplate(JedisPoolConfig jedisPoolConfig, List<JedisShardInfo> masters, Map<JedisShardInfo, List<JedisShardInfo>> replicas) {
+        if (masters.isEmpty()) {
+            throw new IllegalArgumentException("At least one master is required");
+        }
+
+        ShardedJedisPool masterPool = new ShardedJedisPool(jedisPoolConfig, masters);
+        this.setWritePool(masterPool);
+
+        int nbRanks = 0;
+        for (JedisShardInfo master : masters) {
+            List<JedisShardInfo> masterReplicas = replicas.get(master);
+            if (masterReplicas != null) {
+                nbRanks = Math.max(nbRanks, masterReplicas.size());
+            }
+        }
+
+        if (nbRanks == 0) {
+            this.setReadPool(masterPool);
+        } else {
+            List<Pool<ShardedJedis>> ranks = new ArrayList<Pool<ShardedJedis>>(nbRanks);
+            for (int rank = 0; rank < nbRanks; rank++) {
+                ranks.add(new ShardedJedisPool(jedisPoolConfig, readShards(masters, replicas, rank)));
+            }
+            this.setReadPool(new ShardedReplicaPool(ranks));
+        }
+    }
+
+    /**
+     * On pools of ShardedJedis built by the caller, for instance
+     * {@link SemaphorePool#createSharded}. With replicas, the read pool is
+     * typically a {@link ShardedReplicaPool} of one pool per rank, each on the
+     * shards given by {@link #readShards(List, Map, int)}.
+     */
+    public ShardedJedisTemplate(Pool<ShardedJedis> masterPool, Pool<ShardedJedis> readPool) {
+        this.setWritePool(masterPool);
+        this.setReadPool(readPool);
+    }
+
+    /**
+     * @return for each master, in the same order, its replica of the given
+     *         rank (or a replica of a lower rank, or the master itself) with
+     *         the name and weight of the master, so that it gets the same
+     *         virtual nodes
+     */
+    public static List<JedisShardInfo> readShards(List<JedisShardInfo> masters, Map<JedisShardInfo, List<JedisShardInfo>> replicas, int rank) {
+        List<JedisShardInfo> shards = new ArrayList<JedisShardInfo>(masters.size());
+        for (JedisShardInfo master : masters) {
+            List<JedisShardInfo> masterReplicas = replicas.get(master);
+            if (masterReplicas == null || masterReplicas.isEmpty()) {
+                shards.add(master);
+            } else {
+                shards.add(new ReplicaShardInfo(master, masterReplicas.get(rank % masterReplicas.size())));
+            }
+        }
+
+        return shards;
+    }
+
+    /**
+     * One DEL per key, in pipelines : the keys may be on different shards.
+     */
+    @Override
+    public Long del(String... keys) {
+        // a key given twice is deleted once
+        Map<String, Long> replies = doPipelinedPut(new LinkedHashSet<String>(Arrays.asList(keys)), new PipelineCallback<Long>() {
+            @Override
+            public Response<Long> doPipelineAction(RejisPipeline pipeline, String key) {
+                return pipeline.commands().del(key);
+            }
+        });
+
+        long deleted = 0;
+        for (Long reply : replies.values()) {
+            deleted += reply;
+        }
+        return deleted;
+    }
+
+    @Override
+    protected <T> T doGet(JedisCallback<ShardedJedis, T> jedisCallback) {
+        if (!(getReadPool() instanceof ShardedReplicaPool)) {
+            return super.doGet(jedisCallback);
+        }
+
+        ShardedReplicaPool replicaPool = (ShardedReplicaPool) getReadPool();
+        int nbRanks = replicaPool.getNbRanks();
+        int first = replicaPool.nextRank();
+        JedisConnectionException lastError = null;
+        for (int i = 0; i < nbRanks; i++) {
+            if (i > 0 && getMetrics() != null) {
+                getMetrics().onRetry();
+            }
+
+            try {
+                return doGetFrom(jedisCallback, replicaPool.getRank((first + i) % nbRanks));
+            } catch (JedisConnectionException e) {
+                lastError = e;
+            }
+        }
+
+        throw new JedisConnectionException("Could not read from any replica", lastError);
+    }
+
+    @Override
+    protected RejisPipeline openReadPipeline(ShardedJedis shardedJedis) {
+        return RejisPipeline.of(shardedJedis);
+    }
+
+    @Override
+    protected RejisPipeline openWritePipeline(ShardedJedis shardedJedis) {
+        return RejisPipeline.of(shardedJedis);
+    }
+
+    /**
+     * Connection to a replica, placed on the ring as its master.
+     */
+    static class ReplicaShardInfo extends JedisShardInfo {
+        private final int masterWeight;
+
+        ReplicaShardInfo(JedisShardInfo master, JedisShardInfo replica) {
+            super(replica.getHost(), replica.getPort(), replica.getTimeout(), master.getName());
+            this.masterWeight = master.getWeight();
+            setPassword(replica.getPassword());
+        }
+
+        @Override
+        public int getWeight() {
+            return masterWeight;
+        }
+    }
+}
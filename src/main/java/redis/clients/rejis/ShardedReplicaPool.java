@@ -0,0 +1,134 @@
+package redis.clients.rejis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+
+/**
+ * Read pool of a sharded template : one sharded pool per rank of replica,
+ * each of them holding one replica of every master on the same position of
+ * the ring as its master. Borrows go round robin over the ranks and fall
+ * back on the next rank when a pool cannot give a resource.
+ * <p>
+ * Sharded connections are opened by their first command, so a replica down
+ * is mostly seen after the borrow : {@link ShardedJedisTemplate} then retries
+ * the read on the next rank.
+ */
+public class ShardedReplicaPool extends Pool<ShardedJedis> implements PoolStatistics {
+
+    private final List<Pool<ShardedJedis>> ranks;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    // pool each borrowed resource comes from
+    private final ConcurrentMap<ShardedJedis, Pool<ShardedJedis>> owners = new ConcurrentHashMap<ShardedJedis, Pool<ShardedJedis>>();
+
+    public ShardedReplicaPool(List<? extends Pool<ShardedJedis>> ranks) {
+        if (ranks.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica pool is required");
+        }
+
+        this.ranks = Collections.unmodifiableList(new ArrayList<Pool<ShardedJedis>>(ranks));
+    }
+
+    @Override
+    public ShardedJedis getResource() {
+        int nbRanks = ranks.size();
+        int first = nextRank();
+
+        JedisConnectionException lastError = null;
+        for (int i = 0; i < nbRanks; i++) {
+            Pool<ShardedJedis> pool = ranks.get((first + i) % nbRanks);
+            try {
+                ShardedJedis resource = pool.getResource();
+                owners.put(resource, pool);
+
+                return resource;
+            } catch (JedisConnectionException e) {
+                lastError = e;
+            }
+        }
+
+        throw new JedisConnectionException("Could not get a resource from any replica", lastError);
+    }
+
+    @Override
+    public void returnResource(ShardedJedis resource) {
+        ownerOf(resource).returnResource(resource);
+    }
+
+    @Override
+    public void returnResourceObject(Object resource) {
+        returnResource((ShardedJedis) resource);
+    }
+
+    @Override
+    public void returnBrokenResource(ShardedJedis resource) {
+        ownerOf(resource).returnBrokenResource(resource);
+    }
+
+    @Override
+    public void destroy() {
+        JedisException error = null;
+        for (Pool<ShardedJedis> pool : ranks) {
+            try {
+                pool.destroy();
+            } catch (JedisException e) {
+                error = e;
+            }
+        }
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    @Override
+    public int getNumActive() {
+        int active = 0;
+        for (Pool<ShardedJedis> pool : ranks) {
+            active += Math.max(0, RejisMetrics.numActive(pool));
+        }
+        return active;
+    }
+
+    @Override
+    public int getNumIdle() {
+        int idle = 0;
+        for (Pool<ShardedJedis> pool : ranks) {
+            idle += Math.max(0, RejisMetrics.numIdle(pool));
+        }
+        return idle;
+    }
+
+    public int getNbRanks() {
+        return ranks.size();
+    }
+
+    Pool<ShardedJedis> getRank(int rank) {
+        return ranks.get(rank);
+    }
+
+    /**
+     * @return rank of the next read, round robin
+     */
+    int nextRank() {
+        return (counter.getAndIncrement() & Integer.MAX_VALUE) % ranks.size();
+    }
+
+    private Pool<ShardedJedis> ownerOf(ShardedJedis resource) {
+        Pool<ShardedJedis> owner = owners.remove(resource);
+        if (owner == null) {
+            throw new JedisException("Resource was not borrowed from this pool");
+        }
+
+        return owner;
+    }
+}
@@ -55,6 +55,26 @@ public class SimpleJedisTemplate extends AbstractJedisTemplate<Jedis, Jedis> {
         });
     }
 
+    @Override
+    public Long del(final byte[]... keys) {
+        return doPut(new JedisCallback<Jedis, Long>() {
+            @Override
+            public Long doJedisAction(Jedis jedis) {
+                return jedis.del(keys);
+            }
+        });
+    }
+
+    @Override
+    protected RejisPipeline openReadPipeline(Jedis jedis) {
+        return RejisPipeline.of(jedis);
+    }
+
+    @Override
+    protected RejisPipeline openWritePipeline(Jedis jedis) {
+        return RejisPipeline.of(jedis);
+    }
+
     @Override
     protected Jedis getJedisFromReadPool(Pool<Jedis> readPool) {
         Jedis jedis = super.getJedisFromReadPool(readPool);
@@ -72,7 +92,7 @@ public class SimpleJedisTemplate extends AbstractJedisTemplate<Jedis, Jedis> {
     }
 
     protected void validClientConnection(Pool<Jedis> pool, Jedis jedis) {
-        if (null != jedis) { // utile ?
+        if (null != jedis && isValidateOnBorrow()) { // utile ?
             if (!jedis.isConnected()) {
                 try {
                     jedis.connect();
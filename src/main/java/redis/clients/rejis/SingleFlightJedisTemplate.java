@@ -0,0 +1,173 @@
+package redis.clients.rejis;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Deduplication of concurrent reads : while a get (or exists) of a key is in
+ * flight, other threads reading the same key wait for its result instead of
+ * sending the same command. They all get the same value, or the same
+ * exception.
+ * <p>
+ * Nothing is cached once the read completes. Without contention the cost is
+ * one putIfAbsent and one remove on a ConcurrentHashMap. A write detaches
+ * the reads in flight of its keys before it returns : reads started after
+ * the write do not get a value read before it.
+ */
+public class SingleFlightJedisTemplate implements IRejis {
+
+    private final IRejis delegate;
+
+    private final ConcurrentMap<String, FutureTask<String>> inFlightGets = new ConcurrentHashMap<String, FutureTask<String>>();
+    private final ConcurrentMap<String, FutureTask<Boolean>> inFlightExists = new ConcurrentHashMap<String, FutureTask<Boolean>>();
+
+    public SingleFlightJedisTemplate(IRejis delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String get(final String key) {
+        return singleFlight(inFlightGets, key, new Callable<String>() {
+            @Override
+            public String call() {
+                return delegate.get(key);
+            }
+        });
+    }
+
+    @Override
+    public Boolean exists(final String key) {
+        return singleFlight(inFlightExists, key, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return delegate.exists(key);
+            }
+        });
+    }
+
+    @Override
+    public String set(String key, String value) {
+        try {
+            return delegate.set(key, value);
+        } finally {
+            detach(key);
+        }
+    }
+
+    @Override
+    public String setex(String key, int timeout, String value) {
+        try {
+            return delegate.setex(key, timeout, value);
+        } finally {
+            detach(key);
+        }
+    }
+
+    @Override
+    public Long del(String... keys) {
+        try {
+            return delegate.del(keys);
+        } finally {
+            detach(Arrays.asList(keys));
+        }
+    }
+
+    @Override
+    public Long expire(String key, int timeout) {
+        try {
+            return delegate.expire(key, timeout);
+        } finally {
+            detach(key);
+        }
+    }
+
+    @Override
+    public Map<String, String> mget(String... keys) {
+        return delegate.mget(keys);
+    }
+
+    @Override
+    public void mset(Map<String, String> keyValues) {
+        try {
+            delegate.mset(keyValues);
+        } finally {
+            detach(keyValues.keySet());
+        }
+    }
+
+    @Override
+    public void msetex(Map<String, String> keyValues, Map<String, Integer> timeouts) {
+        try {
+            delegate.msetex(keyValues, timeouts);
+        } finally {
+            detach(keyValues.keySet());
+        }
+    }
+
+    @Override
+    public Map<String, Boolean> mexists(String... keys) {
+        return delegate.mexists(keys);
+    }
+
+    @Override
+    public Map<String, Long> mexpire(Map<String, Integer> timeouts) {
+        try {
+            return delegate.mexpire(timeouts);
+        } finally {
+            detach(timeouts.keySet());
+        }
+    }
+
+    @Override
+    public void destroyPools() {
+        delegate.destroyPools();
+    }
+
+    /**
+     * The threads already waiting on a read in flight still get its result,
+     * new reads of the key send their own command.
+     */
+    private void detach(String key) {
+        inFlightGets.remove(key);
+        inFlightExists.remove(key);
+    }
+
+    private void detach(Collection<String> keys) {
+        for (String key : keys) {
+            detach(key);
+        }
+    }
+
+    private static <T> T singleFlight(ConcurrentMap<String, FutureTask<T>> inFlight, String key, Callable<T> read) {
+        FutureTask<T> task = new FutureTask<T>(read);
+        FutureTask<T> leader = inFlight.putIfAbsent(key, task);
+        if (leader == null) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+            leader = task;
+        }
+
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException("Interrupted while waiting for a read in flight", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new JedisException(e.getCause());
+        }
+    }
+}
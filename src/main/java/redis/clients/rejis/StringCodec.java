@@ -0,0 +1,18 @@
+package redis.clients.rejis;
+
+import java.nio.charset.Charset;
+
+public class StringCodec implements Codec<String> {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Override
+    public byte[] encode(String value) {
+        return value.getBytes(UTF8);
+    }
+
+    @Override
+    public String decode(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, UTF8);
+    }
+}
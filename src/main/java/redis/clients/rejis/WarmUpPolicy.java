@@ -0,0 +1,57 @@
+package redis.clients.rejis;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of the warm-up of the pools of a template (see
+ * {@link PoolWarmUp}) : connections opened per node, all nodes in parallel,
+ * within a global deadline. In background, construction returns at once
+ * and the {@link PoolWarmUp} tells when the pools are ready.
+ */
+public class WarmUpPolicy {
+
+    /**
+     * One connection per node, 5 seconds at most, before returning.
+     */
+    public static final WarmUpPolicy DEFAULT = new WarmUpPolicy(1, 5, TimeUnit.SECONDS, false);
+
+    private final int connectionsPerNode;
+    private final long timeoutNanos;
+    private final boolean background;
+
+    /**
+     * @param connectionsPerNode
+     *            should not exceed the max active of the pools, extra
+     *            borrows wait until the deadline
+     * @param timeout
+     *            deadline of the whole warm-up, slower nodes keep opening
+     *            their connections in the background
+     * @param unit
+     * @param background
+     *            true to warm up on another thread
+     */
+    public WarmUpPolicy(int connectionsPerNode, long timeout, TimeUnit unit, boolean background) {
+        if (connectionsPerNode <= 0) {
+            throw new IllegalArgumentException("Connections per node must be positive");
+        }
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+
+        this.connectionsPerNode = connectionsPerNode;
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.background = background;
+    }
+
+    public int getConnectionsPerNode() {
+        return connectionsPerNode;
+    }
+
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    public boolean isBackground() {
+        return background;
+    }
+}
@@ -0,0 +1,427 @@
+package redis.clients.rejis;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Write coalescing on top of a template : set, setex, expire and del from
+ * all the threads are queued and sent by a single flusher thread as one
+ * pipeline every maxBatchSize operations or flushInterval, whichever comes
+ * first.
+ * <p>
+ * The async methods return as soon as the write is queued, the IRejis ones
+ * wait for the reply of the pipeline. Writes are sent in the order they are
+ * queued, so the order per key is kept. Reads go straight to the template
+ * and do not see writes still in the queue.
+ */
+public class WriteBehindJedisTemplate implements IRejis, IRejisAsync {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindJedisTemplate.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    public enum OverflowPolicy {
+        /** caller waits for room in the queue */
+        BLOCK,
+        /** caller gets a RejectedExecutionException */
+        REJECT
+    }
+
+    private final AbstractJedisTemplate<?, ?> template;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final BlockingQueue<PendingWrite<?>> queue;
+    private final Thread flusher;
+
+    // held to queue a write, taken exclusively to stop
+    private final ReadWriteLock stopLock = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    public WriteBehindJedisTemplate(AbstractJedisTemplate<?, ?> template, int maxBatchSize, long flushIntervalMicros, int queueCapacity,
+            OverflowPolicy overflowPolicy) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive : " + maxBatchSize);
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive : " + queueCapacity);
+        }
+
+        this.template = template;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalNanos = TimeUnit.MICROSECONDS.toNanos(flushIntervalMicros);
+        this.overflowPolicy = overflowPolicy;
+        this.queue = new ArrayBlockingQueue<PendingWrite<?>>(queueCapacity);
+
+        this.flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        }, "rejis-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /* async writes */
+
+    @Override
+    public Future<String> setAsync(final String key, final String value) {
+        return enqueue(new SingleWrite<String>() {
+            @Override
+            Response<String> queue(RejisPipeline pipeline) {
+                return pipeline.commands().set(key, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<String> setexAsync(final String key, final int timeout, final String value) {
+        return enqueue(new SingleWrite<String>() {
+            @Override
+            Response<String> queue(RejisPipeline pipeline) {
+                return pipeline.commands().setex(key, timeout, value);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> expireAsync(final String key, final int timeout) {
+        return enqueue(new SingleWrite<Long>() {
+            @Override
+            Response<Long> queue(RejisPipeline pipeline) {
+                return pipeline.commands().expire(key, timeout);
+            }
+        });
+    }
+
+    @Override
+    public Future<Long> delAsync(final String... keys) {
+        return enqueue(new PendingWrite<Long>() {
+            private final List<Response<Long>> responses = new ArrayList<Response<Long>>(keys.length);
+
+            @Override
+            void queueIn(RejisPipeline pipeline) {
+                for (String key : keys) {
+                    responses.add(pipeline.commands().del(key));
+                }
+            }
+
+            @Override
+            Long readReply() {
+                long deleted = 0;
+                for (Response<Long> response : responses) {
+                    deleted += response.get();
+                }
+                return deleted;
+            }
+        });
+    }
+
+    /* async reads, not coalesced */
+
+    @Override
+    public Future<String> getAsync(final String key) {
+        return runNow(new Callable<String>() {
+            @Override
+            public String call() {
+                return template.get(key);
+            }
+        });
+    }
+
+    @Override
+    public Future<Boolean> existsAsync(final String key) {
+        return runNow(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return template.exists(key);
+            }
+        });
+    }
+
+    /* blocking API */
+
+    @Override
+    public String get(String key) {
+        return template.get(key);
+    }
+
+    @Override
+    public Boolean exists(String key) {
+        return template.exists(key);
+    }
+
+    @Override
+    public String set(String key, String value) {
+        return waitFor(setAsync(key, value));
+    }
+
+    @Override
+    public String setex(String key, int timeout, String value) {
+        return waitFor(setexAsync(key, timeout, value));
+    }
+
+    @Override
+    public Long del(String... keys) {
+        return waitFor(delAsync(keys));
+    }
+
+    @Override
+    public Long expire(String key, int timeout) {
+        return waitFor(expireAsync(key, timeout));
+    }
+
+    @Override
+    public Map<String, String> mget(String... keys) {
+        return template.mget(keys);
+    }
+
+    @Override
+    public Map<String, Boolean> mexists(String... keys) {
+        return template.mexists(keys);
+    }
+
+    @Override
+    public void mset(Map<String, String> keyValues) {
+        List<Future<String>> replies = new ArrayList<Future<String>>(keyValues.size());
+        for (Map.Entry<String, String> entry : keyValues.entrySet()) {
+            replies.add(setAsync(entry.getKey(), entry.getValue()));
+        }
+
+        for (Future<String> reply : replies) {
+            waitFor(reply);
+        }
+    }
+
+    @Override
+    public void msetex(Map<String, String> keyValues, Map<String, Integer> timeouts) {
+        if (!timeouts.keySet().containsAll(keyValues.keySet())) {
+            throw new IllegalArgumentException("A timeout is required for each key");
+        }
+
+        List<Future<String>> replies = new ArrayList<Future<String>>(keyValues.size());
+        for (Map.Entry<String, String> entry : keyValues.entrySet()) {
+            replies.add(setexAsync(entry.getKey(), timeouts.get(entry.getKey()), entry.getValue()));
+        }
+
+        for (Future<String> reply : replies) {
+            waitFor(reply);
+        }
+    }
+
+    @Override
+    public Map<String, Long> mexpire(Map<String, Integer> timeouts) {
+        Map<String, Future<Long>> replies = new LinkedHashMap<String, Future<Long>>(timeouts.size());
+        for (Map.Entry<String, Integer> entry : timeouts.entrySet()) {
+            replies.put(entry.getKey(), expireAsync(entry.getKey(), entry.getValue()));
+        }
+
+        Map<String, Long> results = new LinkedHashMap<String, Long>(replies.size());
+        for (Map.Entry<String, Future<Long>> reply : replies.entrySet()) {
+            results.put(reply.getKey(), waitFor(reply.getValue()));
+        }
+
+        return results;
+    }
+
+    /**
+     * Flush the queued writes, stop the flusher thread, then destroy the pools
+     * of the template. Writes queued after are rejected.
+     */
+    @Override
+    public void destroyPools() {
+        // waits for the writes being queued, the flusher still drains
+        stopLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stopLock.writeLock().unlock();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        template.destroyPools();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private <T> Future<T> enqueue(PendingWrite<T> write) {
+        stopLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new RejectedExecutionException("Write behind template is stopped");
+            }
+
+            if (overflowPolicy == OverflowPolicy.BLOCK) {
+                try {
+                    queue.put(write);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new JedisException("Interrupted while waiting for room in the write queue", e);
+                }
+            } else if (!queue.offer(write)) {
+                throw new RejectedExecutionException("Write queue is full");
+            }
+        } finally {
+            stopLock.readLock().unlock();
+        }
+
+        return write;
+    }
+
+    private static <T> Future<T> runNow(Callable<T> read) {
+        FutureTask<T> future = new FutureTask<T>(read);
+        future.run();
+
+        return future;
+    }
+
+    private static <T> T waitFor(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException("Interrupted while waiting for a write reply", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new JedisException(e.getCause());
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingWrite<?>> batch = new ArrayList<PendingWrite<?>>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite<?> first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                fillBatch(batch, System.nanoTime() + flushIntervalNanos);
+            } catch (InterruptedException e) {
+                // only destroyPools stops the flusher, writers may be waiting on the queue
+                logger.debug("Write behind flusher interrupted", e);
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void fillBatch(List<PendingWrite<?>> batch, long deadline) throws InterruptedException {
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+
+            PendingWrite<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(final List<PendingWrite<?>> batch) {
+        try {
+            template.doInWritePipeline(new JedisCallback<RejisPipeline, Void>() {
+                @Override
+                public Void doJedisAction(RejisPipeline pipeline) {
+                    for (PendingWrite<?> write : batch) {
+                        write.queueIn(pipeline);
+                    }
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.debug("Cannot flush " + batch.size() + " writes", e);
+            for (PendingWrite<?> write : batch) {
+                write.fail(e);
+            }
+            return;
+        }
+
+        for (PendingWrite<?> write : batch) {
+            write.complete();
+        }
+    }
+
+    /**
+     * Write waiting in the queue, and future of its reply.
+     */
+    private abstract static class PendingWrite<T> extends FutureTask<T> {
+
+        PendingWrite() {
+            super(new Callable<T>() {
+                @Override
+                public T call() {
+                    throw new IllegalStateException("Completed by the flusher");
+                }
+            });
+        }
+
+        abstract void queueIn(RejisPipeline pipeline);
+
+        abstract T readReply();
+
+        void complete() {
+            try {
+                set(readReply());
+            } catch (RuntimeException e) {
+                setException(e);
+            }
+        }
+
+        void fail(Throwable cause) {
+            setException(cause);
+        }
+    }
+
+    private abstract static class SingleWrite<T> extends PendingWrite<T> {
+        private Response<T> response;
+
+        abstract Response<T> queue(RejisPipeline pipeline);
+
+        @Override
+        void queueIn(RejisPipeline pipeline) {
+            response = queue(pipeline);
+        }
+
+        @Override
+        T readReply() {
+            return response.get();
+        }
+    }
+}
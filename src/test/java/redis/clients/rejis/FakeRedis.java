@@ -0,0 +1,141 @@
+package redis.clients.rejis;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * Minimal Redis server on a free port : GET and MGET answer the key itself,
+ * "bad" is missing and cannot be set, PING answers PONG.
+ */
+class FakeRedis implements Runnable {
+
+    static final String BAD_KEY = "bad";
+
+    private final ServerSocket server = new ServerSocket(0);
+    private final List<Socket> clients = new ArrayList<Socket>();
+
+    FakeRedis() throws IOException {
+        Thread acceptor = new Thread(this);
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return server.getLocalPort();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                final Socket client = server.accept();
+                synchronized (clients) {
+                    clients.add(client);
+                }
+                Thread reader = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(client);
+                    }
+                });
+                reader.setDaemon(true);
+                reader.start();
+            }
+        } catch (IOException e) {
+            // closed
+        }
+    }
+
+    private void serve(Socket client) {
+        try {
+            InputStream in = new BufferedInputStream(client.getInputStream());
+            OutputStream out = client.getOutputStream();
+            while (true) {
+                List<String> command = readCommand(in);
+                String name = command.get(0);
+                StringBuilder reply = new StringBuilder();
+                if (name.equals("PING")) {
+                    reply.append("+PONG\r\n");
+                } else if (name.equals("GET")) {
+                    reply.append(bulk(command.get(1)));
+                } else if (name.equals("MGET")) {
+                    reply.append('*').append(command.size() - 1).append("\r\n");
+                    for (String key : command.subList(1, command.size())) {
+                        reply.append(bulk(key));
+                    }
+                } else if (name.equals("DEL")) {
+                    reply.append(':').append(command.size() - 1).append("\r\n");
+                } else if (name.equals("EXISTS")) {
+                    reply.append(":1\r\n");
+                } else if (command.size() > 1 && command.get(1).equals(BAD_KEY)) {
+                    reply.append("-ERR bad key\r\n");
+                } else {
+                    reply.append("+OK\r\n");
+                }
+                out.write(SafeEncoder.encode(reply.toString()));
+            }
+        } catch (IOException e) {
+            // closed
+        }
+    }
+
+    private static String bulk(String key) {
+        return key.equals(BAD_KEY) ? "$-1\r\n" : "$" + key.length() + "\r\n" + key + "\r\n";
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        int count = Integer.parseInt(readLine(in).substring(1));
+        List<String> args = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] arg = new byte[Integer.parseInt(readLine(in).substring(1))];
+            for (int read = 0; read < arg.length;) {
+                int n = in.read(arg, read, arg.length - read);
+                if (n < 0) {
+                    throw new IOException("closed");
+                }
+                read += n;
+            }
+            readLine(in);
+            args.add(SafeEncoder.encode(arg));
+        }
+        return args;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b < 0) {
+                throw new IOException("closed");
+            }
+            line.append((char) b);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    void close() throws IOException {
+        server.close();
+        closeClients();
+    }
+
+    /**
+     * Drop the connections opened so far, the server keeps accepting.
+     */
+    void closeClients() throws IOException {
+        synchronized (clients) {
+            for (Socket client : clients) {
+                client.close();
+            }
+            clients.clear();
+        }
+    }
+}
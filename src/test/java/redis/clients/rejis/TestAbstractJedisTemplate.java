@@ -11,13 +11,19 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.easymock.EasyMock;
 import org.easymock.IMockBuilder;
 import org.junit.Before;
 import org.junit.Test;
 
 import redis.clients.jedis.BinaryJedisCommands;
+import redis.clients.jedis.BuilderFactory;
 import redis.clients.jedis.JedisCommands;
+import redis.clients.jedis.RedisPipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.util.Pool;
 
@@ -44,6 +50,8 @@ public class TestAbstractJedisTemplate implements IJedisTestConstants {
     Pool<JedisClientTest> readPool = createMock("readPool", Pool.class);
     Pool<JedisClientTest> writePool = createMock("writePool", Pool.class);
     JedisClientTest mockJedis = createStrictMock(JedisClientTest.class);
+    RejisPipeline mockPipeline = createMock("pipeline", RejisPipeline.class);
+    RedisPipeline mockPipelineCommands = createMock("pipelineCommands", RedisPipeline.class);
 
     @Before
     public void setUp() {
@@ -320,6 +328,84 @@ public class TestAbstractJedisTemplate implements IJedisTestConstants {
         verify(spyJedisTemplate);
     }
 
+    @Test
+    public void testMethod_Mget_SingleConnection_SyncByChunk() throws Exception {
+        // given
+        jedis.setPipelineChunkSize(2);
+        expect(readPool.getResource()).andReturn(mockJedis).once();
+        readPool.returnResource(mockJedis);
+        expectLastCall();
+
+        expect(mockPipeline.commands()).andReturn(mockPipelineCommands).anyTimes();
+        expect(mockPipelineCommands.get("k1")).andReturn(stringResponse(VALUE));
+        expect(mockPipelineCommands.get("k2")).andReturn(stringResponse(null));
+        expect(mockPipelineCommands.get("k3")).andReturn(stringResponse(VALUE));
+        mockPipeline.sync();
+        expectLastCall().times(2);
+        replayAll();
+
+        // when
+        Map<String, String> retour = jedis.mget("k1", "k2", "k3");
+
+        // then
+        assertThat(retour.size(), is(3));
+        assertThat(retour.get("k1"), is(VALUE));
+        assertThat(retour.containsKey("k2"), is(true));
+        assertThat(retour.get("k3"), is(VALUE));
+        verifyAll();
+    }
+
+    @Test
+    public void testMethod_Mget_NoKey() throws Exception {
+        // given
+        replayAll();
+
+        // when
+        Map<String, String> retour = jedis.mget();
+
+        // then
+        assertThat(retour.isEmpty(), is(true));
+        verifyAll();
+    }
+
+    @Test
+    public void testMethod_Msetex_Callback() throws Exception {
+        // given
+        final int timeout = 100;
+        expect(writePool.getResource()).andReturn(mockJedis).once();
+        writePool.returnResource(mockJedis);
+        expectLastCall();
+
+        expect(mockPipeline.commands()).andReturn(mockPipelineCommands).anyTimes();
+        expect(mockPipelineCommands.setex(KEY, timeout, VALUE)).andReturn(stringResponse(JEDIS_STRING_OK));
+        mockPipeline.sync();
+        expectLastCall().once();
+        replayAll();
+
+        Map<String, String> keyValues = new HashMap<String, String>();
+        keyValues.put(KEY, VALUE);
+        Map<String, Integer> timeouts = new HashMap<String, Integer>();
+        timeouts.put(KEY, timeout);
+
+        // when
+        jedis.msetex(keyValues, timeouts);
+
+        // then
+        verifyAll();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMethod_Msetex_MissingTimeout() throws Exception {
+        // given
+        replayAll();
+
+        Map<String, String> keyValues = new HashMap<String, String>();
+        keyValues.put(KEY, VALUE);
+
+        // when
+        jedis.msetex(keyValues, new HashMap<String, Integer>());
+    }
+
     @Test
     public void testDestroyPools() throws Exception {
         // given
@@ -359,12 +445,19 @@ public class TestAbstractJedisTemplate implements IJedisTestConstants {
         return spyJedisTemplate;
     }
 
+    static Response<String> stringResponse(String value) {
+        Response<String> response = new Response<String>(BuilderFactory.STRING);
+        response.set(value == null ? null : value.getBytes());
+
+        return response;
+    }
+
     private void replayAll() {
-        replay(mockJedis, readPool, writePool);
+        replay(mockJedis, readPool, writePool, mockPipeline, mockPipelineCommands);
     }
 
     void verifyAll() {
-        verify(mockJedis, readPool, writePool);
+        verify(mockJedis, readPool, writePool, mockPipeline, mockPipelineCommands);
     }
 
     private abstract class JedisClientTest implements BinaryJedisCommands, JedisCommands {
@@ -375,5 +468,15 @@ public class TestAbstractJedisTemplate implements IJedisTestConstants {
         public Long del(String... keys) {
             throw new UnsupportedOperationException();
         }
+
+        @Override
+        protected RejisPipeline openReadPipeline(JedisClientTest jedis) {
+            return mockPipeline;
+        }
+
+        @Override
+        protected RejisPipeline openWritePipeline(JedisClientTest jedis) {
+            return mockPipeline;
+        }
     }
 }
@@ -0,0 +1,115 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestAsyncJedisTemplate implements IJedisTestConstants {
+
+    private AsyncJedisTemplate jedis;
+
+    /* Mocks */
+    IRejis mockTemplate = createMock(IRejis.class);
+
+    @Before
+    public void setUp() {
+        jedis = new AsyncJedisTemplate(mockTemplate);
+    }
+
+    @After
+    public void tearDown() {
+        jedis.shutdown();
+    }
+
+    @Test
+    public void testGetAsync_OK() throws Exception {
+        // given
+        expect(mockTemplate.get(KEY)).andReturn(VALUE).once();
+        replay(mockTemplate);
+
+        // when
+        String retour = jedis.getAsync(KEY).get(1, TimeUnit.SECONDS);
+
+        // then
+        assertThat(retour, is(VALUE));
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testSetexAsync_OK() throws Exception {
+        // given
+        expect(mockTemplate.setex(KEY, 100, VALUE)).andReturn(JEDIS_STRING_OK).once();
+        replay(mockTemplate);
+
+        // when
+        String retour = jedis.setexAsync(KEY, 100, VALUE).get(1, TimeUnit.SECONDS);
+
+        // then
+        assertThat(retour, is(JEDIS_STRING_OK));
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testExistsAsync_ConnectionErrorInFuture() throws Exception {
+        // given
+        expect(mockTemplate.exists(KEY)).andThrow(CONNEXION_REDIS_IMPOSSIBLE).once();
+        replay(mockTemplate);
+
+        // when
+        try {
+            jedis.existsAsync(KEY).get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            // then
+            assertThat(e.getCause() == CONNEXION_REDIS_IMPOSSIBLE, is(true));
+            verify(mockTemplate);
+        }
+    }
+
+    @Test
+    public void testBoundedExecutor_FullQueueRunsOnCaller() throws Exception {
+        // given
+        ExecutorService executor = AsyncJedisTemplate.boundedExecutor(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        executor.execute(blocking);
+        executor.execute(blocking);
+
+        // when
+        Future<Thread> overflow = executor.submit(new Callable<Thread>() {
+            @Override
+            public Thread call() {
+                return Thread.currentThread();
+            }
+        });
+
+        // then
+        assertThat(overflow.get(1, TimeUnit.SECONDS), is(Thread.currentThread()));
+        release.countDown();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,126 @@
+package redis.clients.rejis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.util.SafeEncoder;
+
+public class TestBulkLoader {
+
+    @Test
+    public void testReadRecords() throws Exception {
+        // given
+        File file = write("k1\tv1\nk2\tv2\t60\r\n\nbroken\nk3\tv3\t6x\nk4\tlast");
+        final List<String> records = new ArrayList<String>();
+
+        // when
+        BulkLoader.readRecords(file, new BulkLoader.RecordHandler() {
+            @Override
+            public void onRecord(long record, ByteBuffer region, int keyFrom, int keyTo, int valueFrom, int valueTo, int timeout) {
+                records.add(record + ":" + string(region, keyFrom, keyTo) + "=" + string(region, valueFrom, valueTo) + "/" + timeout);
+            }
+
+            @Override
+            public void onInvalidRecord(long record, String reason) {
+                records.add(record + ":" + reason);
+            }
+        });
+
+        // then
+        assertThat(records, is(Arrays.asList("1:k1=v1/0", "2:k2=v2/60", "3:Missing key or value", "4:Invalid timeout", "5:k4=last/0")));
+    }
+
+    @Test
+    public void testEncode_Setex() throws Exception {
+        // given
+        ByteBuffer region = ByteBuffer.wrap(SafeEncoder.encode("key\tvalue"));
+        byte[] buffer = new byte[BulkLoader.encodedSize(3, 5)];
+
+        // when
+        int end = BulkLoader.encode(buffer, 0, region, 0, 3, 4, 9, 60);
+
+        // then
+        assertThat(new String(buffer, 0, end, "UTF-8"), is("*4\r\n$5\r\nSETEX\r\n$3\r\nkey\r\n$2\r\n60\r\n$5\r\nvalue\r\n"));
+    }
+
+    @Test
+    public void testEncode_Set() throws Exception {
+        // given
+        ByteBuffer region = ByteBuffer.wrap(SafeEncoder.encode("key\tvalue"));
+        byte[] buffer = new byte[BulkLoader.encodedSize(3, 5)];
+
+        // when
+        int end = BulkLoader.encode(buffer, 0, region, 0, 3, 4, 9, 0);
+
+        // then
+        assertThat(new String(buffer, 0, end, "UTF-8"), is("*3\r\n$3\r\nSET\r\n$3\r\nkey\r\n$5\r\nvalue\r\n"));
+    }
+
+    @Test
+    public void testReadReply() throws Exception {
+        // given
+        ByteArrayInputStream in = new ByteArrayInputStream(SafeEncoder.encode("+OK\r\n-ERR wrong\r\n$3\r\nabc\r\n+OK\r\n"));
+
+        // when / then
+        assertThat(BulkLoader.readReply(in), is(nullValue()));
+        assertThat(BulkLoader.readReply(in), is("ERR wrong"));
+        assertThat(BulkLoader.readReply(in), is(nullValue()));
+        assertThat(BulkLoader.readReply(in), is(nullValue()));
+    }
+
+    @Test
+    public void testLoad_RepliesReadForTheRecordsSent() throws Exception {
+        // given
+        FakeRedis redis = new FakeRedis();
+        JedisPool pool = new JedisPool(new JedisPoolConfig(), "localhost", redis.getPort());
+        BulkLoader loader = new BulkLoader(new SimpleJedisTemplate(pool));
+        loader.setMaxInFlight(2);
+        File file = write("k1\tv1\nk2\tv2\t60\n" + FakeRedis.BAD_KEY + "\tv3\nk4\tv4\nk5\tv5\n");
+
+        // when
+        BulkLoader.BulkLoadResult result;
+        try {
+            result = loader.load(file);
+        } finally {
+            pool.destroy();
+            redis.close();
+        }
+
+        // then
+        assertThat(result.getSuccessCount(), is(4L));
+        assertThat(result.getErrors(), is(Arrays.asList("Record 3 : ERR bad key")));
+    }
+
+    private static File write(String content) throws Exception {
+        File file = File.createTempFile("bulk", ".txt");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(SafeEncoder.encode(content));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static String string(ByteBuffer region, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bytes[i - from] = region.get(i);
+        }
+        return SafeEncoder.encode(bytes);
+    }
+}
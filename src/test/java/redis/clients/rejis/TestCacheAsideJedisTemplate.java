@@ -0,0 +1,205 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import redis.clients.jedis.exceptions.JedisException;
+
+@SuppressWarnings("unchecked")
+public class TestCacheAsideJedisTemplate implements IJedisTestConstants {
+
+    private static final long NOW = 1000000L;
+    private static final int TIMEOUT = 60;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private CacheAsideJedisTemplate jedis;
+
+    /* Mocks */
+    IRejis mockTemplate = createMock(IRejis.class);
+    IRejisScripting mockScripting = createMock(IRejisScripting.class);
+    CacheLoader mockLoader = createMock(CacheLoader.class);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testGetOrLoad_MissLoadedAndCached() throws Exception {
+        // given
+        jedis = template(NOW);
+        expect(mockTemplate.get(KEY)).andReturn(null).times(2);
+        expect(mockLoader.load(KEY)).andReturn(VALUE);
+        expect(mockTemplate.setex(KEY, TIMEOUT, CacheAsideJedisTemplate.wrap(VALUE, NOW + TIMEOUT * 1000, 0))).andReturn("OK");
+        replayAll();
+
+        // when
+        String value = jedis.getOrLoad(KEY, mockLoader, TIMEOUT);
+
+        // then
+        assertThat(value, is(VALUE));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetOrLoad_HitFarFromExpiry() throws Exception {
+        // given
+        jedis = template(NOW);
+        expect(mockTemplate.get(KEY)).andReturn(CacheAsideJedisTemplate.wrap(VALUE, NOW + 10000, 500));
+        replayAll();
+
+        // when
+        String value = jedis.getOrLoad(KEY, mockLoader, TIMEOUT);
+
+        // then
+        assertThat(value, is(VALUE));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetOrLoad_HitCloseToExpiryRefreshedInBackground() throws Exception {
+        // given
+        jedis = template(NOW);
+        expect(mockTemplate.get(KEY)).andReturn(CacheAsideJedisTemplate.wrap("old", NOW + 400, 500));
+        expect(mockLoader.load(KEY)).andReturn(VALUE);
+        expect(mockTemplate.setex(eq(KEY), eq(TIMEOUT), (String) anyObject())).andReturn("OK");
+        replayAll();
+
+        // when
+        String value = jedis.getOrLoad(KEY, mockLoader, TIMEOUT);
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        // then
+        assertThat(value, is("old"));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetOrLoad_LoadedJustBeforeNotLoadedAgain() throws Exception {
+        // given
+        jedis = template(NOW);
+        expect(mockTemplate.get(KEY)).andReturn(null);
+        // written by the previous leader before this one started
+        expect(mockTemplate.get(KEY)).andReturn(CacheAsideJedisTemplate.wrap(VALUE, NOW + 10000, 500));
+        replayAll();
+
+        // when
+        String value = jedis.getOrLoad(KEY, mockLoader, TIMEOUT);
+
+        // then
+        assertThat(value, is(VALUE));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetOrLoad_NotWrittenByTheTemplate() throws Exception {
+        // given
+        jedis = template(NOW);
+        expect(mockTemplate.get(KEY)).andReturn(VALUE);
+        replayAll();
+
+        // when
+        String value = jedis.getOrLoad(KEY, mockLoader, TIMEOUT);
+
+        // then
+        assertThat(value, is(VALUE));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetOrLoad_LockedElsewhereWaitForTheValue() throws Exception {
+        // given
+        LuaScript lock = new LuaScript("lock");
+        LuaScript unlock = new LuaScript("unlock");
+        expect(mockScripting.registerScript((String) anyObject())).andReturn(lock).andReturn(unlock);
+        expect(mockTemplate.get(KEY)).andReturn(null).times(2);
+        expect(mockScripting.eval(eq(lock), eq(Arrays.asList(KEY + ":lock")), (List<String>) anyObject())).andReturn(null);
+        expect(mockTemplate.get(KEY)).andReturn(CacheAsideJedisTemplate.wrap(VALUE, NOW + 10000, 500));
+        replayAll();
+        jedis = new CacheAsideJedisTemplate(mockTemplate, executor);
+        jedis.setDistributedLock(mockScripting, 1, TimeUnit.SECONDS);
+
+        // when
+        String value = jedis.getOrLoad(KEY, mockLoader, TIMEOUT);
+
+        // then
+        assertThat(value, is(VALUE));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetOrLoad_LoaderFailure() throws Exception {
+        // given
+        jedis = template(NOW);
+        Exception failure = new Exception("database down");
+        expect(mockTemplate.get(KEY)).andReturn(null).times(2);
+        expect(mockLoader.load(KEY)).andThrow(failure);
+        replayAll();
+
+        // when
+        try {
+            jedis.getOrLoad(KEY, mockLoader, TIMEOUT);
+            fail();
+        } catch (JedisException e) {
+            // then
+            assertThat(e.getCause(), is((Throwable) failure));
+            verifyAll();
+        }
+    }
+
+    @Test
+    public void testGet_EnvelopeRemoved() throws Exception {
+        // given
+        jedis = template(NOW);
+        expect(mockTemplate.get(KEY)).andReturn(CacheAsideJedisTemplate.wrap("a:b", NOW, 10));
+        replayAll();
+
+        // when
+        String value = jedis.get(KEY);
+
+        // then
+        assertThat(value, is("a:b"));
+        verifyAll();
+    }
+
+    private CacheAsideJedisTemplate template(final long now) {
+        return new CacheAsideJedisTemplate(mockTemplate, executor) {
+            @Override
+            long now() {
+                return now;
+            }
+
+            // log(random) = -1 : early refresh when now + delta >= expiry
+            @Override
+            double random() {
+                return 1 / Math.E;
+            }
+        };
+    }
+
+    private void replayAll() {
+        replay(mockTemplate, mockScripting, mockLoader);
+    }
+
+    private void verifyAll() {
+        verify(mockTemplate, mockScripting, mockLoader);
+    }
+}
@@ -0,0 +1,99 @@
+package redis.clients.rejis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestCircuitBreaker {
+
+    @Test
+    public void testOnFailure_OpenAfterThreshold() throws Exception {
+        // given
+        CircuitBreaker breaker = new CircuitBreaker(2, 1, TimeUnit.HOURS);
+
+        // when
+        breaker.onFailure();
+        boolean allowedAfterOneFailure = breaker.allowRequest();
+        breaker.onFailure();
+
+        // then
+        assertThat(allowedAfterOneFailure, is(true));
+        assertThat(breaker.getState(), is(CircuitBreaker.State.OPEN));
+        assertThat(breaker.allowRequest(), is(false));
+    }
+
+    @Test
+    public void testOnSuccess_ResetConsecutiveFailures() throws Exception {
+        // given
+        CircuitBreaker breaker = new CircuitBreaker(2, 1, TimeUnit.HOURS);
+
+        // when
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        // then
+        assertThat(breaker.getState(), is(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void testAllowRequest_SingleProbeWhenHalfOpen() throws Exception {
+        // given
+        CircuitBreaker breaker = new CircuitBreaker(1, 0, TimeUnit.MILLISECONDS);
+        breaker.onFailure();
+
+        // when
+        boolean probe = breaker.allowRequest();
+
+        // then
+        assertThat(probe, is(true));
+        assertThat(breaker.getState(), is(CircuitBreaker.State.HALF_OPEN));
+    }
+
+    @Test
+    public void testOnSuccess_LateSuccessKeepsCircuitOpen() throws Exception {
+        // given
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, TimeUnit.HOURS);
+        breaker.onFailure();
+
+        // when
+        breaker.onSuccess();
+
+        // then
+        assertThat(breaker.getState(), is(CircuitBreaker.State.OPEN));
+        assertThat(breaker.allowRequest(), is(false));
+    }
+
+    @Test
+    public void testOnSuccess_ProbeClosesCircuit() throws Exception {
+        // given
+        CircuitBreaker breaker = new CircuitBreaker(1, 0, TimeUnit.MILLISECONDS);
+        breaker.onFailure();
+        breaker.allowRequest();
+
+        // when
+        breaker.onSuccess();
+
+        // then
+        assertThat(breaker.getState(), is(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void testOnFailure_ProbeOpensCircuitAgain() throws Exception {
+        // given
+        CircuitBreaker breaker = new CircuitBreaker(5, 0, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 5; i++) {
+            breaker.onFailure();
+        }
+        breaker.allowRequest();
+
+        // when
+        breaker.onFailure();
+
+        // then
+        assertThat(breaker.getState(), is(CircuitBreaker.State.OPEN));
+    }
+}
@@ -0,0 +1,67 @@
+package redis.clients.rejis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+public class TestClusterHashSlots {
+
+    @Test
+    public void testCrc16_Xmodem() throws Exception {
+        // given
+        byte[] bytes = SafeEncoder.encode("123456789");
+
+        // when
+        int crc = ClusterHashSlots.crc16(bytes, 0, bytes.length);
+
+        // then
+        assertThat(crc, is(0x31C3));
+    }
+
+    @Test
+    public void testSlotOf_HashTag() throws Exception {
+        // when
+        int slot = ClusterHashSlots.slotOf("{user1000}.following");
+
+        // then
+        assertThat(slot, is(ClusterHashSlots.slotOf("user1000")));
+        assertThat(ClusterHashSlots.slotOf("foo"), is(12182));
+    }
+
+    @Test
+    public void testSlotOf_EmptyHashTagIgnored() throws Exception {
+        // when
+        int slot = ClusterHashSlots.slotOf("foo{}{bar}");
+
+        // then
+        assertThat(slot, is(ClusterHashSlots.crc16(SafeEncoder.encode("foo{}{bar}"), 0, 10) & 16383));
+    }
+
+    @Test
+    public void testRedirect_MovedInPipelineReply() throws Exception {
+        // given
+        JedisDataException error = new JedisDataException(new JedisDataException("MOVED 3999 127.0.0.1:6381"));
+
+        // when
+        ClusterJedisTemplate.Redirect redirect = ClusterJedisTemplate.Redirect.of(error);
+
+        // then
+        assertThat(redirect.moved, is(true));
+        assertThat(redirect.slot, is(3999));
+        assertThat(redirect.node, is("127.0.0.1:6381"));
+    }
+
+    @Test
+    public void testRedirect_OtherError() throws Exception {
+        // when
+        ClusterJedisTemplate.Redirect redirect = ClusterJedisTemplate.Redirect.of(new JedisDataException("ERR wrong number of arguments"));
+
+        // then
+        assertThat(redirect, is(nullValue()));
+    }
+}
@@ -0,0 +1,96 @@
+package redis.clients.rejis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import redis.clients.jedis.exceptions.JedisException;
+
+public class TestCompressingCodec implements IJedisTestConstants {
+
+    private final CompressingCodec<String> codec = new CompressingCodec<String>(new StringCodec(), 64, 1);
+
+    @Test
+    public void testEncode_BelowThresholdKeptAsIs() throws Exception {
+        // when
+        byte[] encoded = codec.encode(VALUE);
+
+        // then
+        assertThat(encoded, is(VALUE.getBytes("UTF-8")));
+        assertThat(codec.decode(encoded, 0, encoded.length), is(VALUE));
+    }
+
+    @Test
+    public void testEncode_AboveThresholdCompressed() throws Exception {
+        // given
+        char[] chars = new char[10000];
+        Arrays.fill(chars, 'a');
+        String large = new String(chars);
+
+        // when
+        byte[] encoded = codec.encode(large);
+
+        // then
+        assertTrue(CompressingCodec.isCompressed(encoded, 0, encoded.length));
+        assertTrue(encoded.length < 1000);
+        assertThat(codec.decode(encoded, 0, encoded.length), is(large));
+    }
+
+    @Test
+    public void testEncode_IncompressibleKeptAsIs() throws Exception {
+        // given
+        byte[] random = new byte[1000];
+        new Random(42).nextBytes(random);
+        CompressingCodec<byte[]> binaryCodec = binaryCodec();
+
+        // when
+        byte[] encoded = binaryCodec.encode(random);
+
+        // then
+        assertThat(encoded, is(random));
+        assertThat(binaryCodec.decode(encoded, 0, encoded.length), is(random));
+    }
+
+    @Test
+    public void testEncode_RawValueStartingWithMagicEscaped() throws Exception {
+        // given
+        byte[] raw = { (byte) 0xF1, 'R', 'Z', 0, 0, 0, 5, 'a', 'b' };
+
+        // when
+        byte[] encoded = binaryCodec().encode(raw);
+
+        // then
+        assertThat(encoded.length, is(raw.length + CompressingCodec.HEADER_LENGTH));
+        assertFalse(CompressingCodec.isCompressed(encoded, 0, encoded.length));
+        assertThat(binaryCodec().decode(encoded, 0, encoded.length), is(raw));
+    }
+
+    @Test(expected = JedisException.class)
+    public void testDecode_CorruptedLengthRejected() throws Exception {
+        // given
+        byte[] corrupted = { (byte) 0xF1, 'R', 'Z', 0x7F, 0, 0, 0, 'a' };
+
+        // when
+        codec.decode(corrupted, 0, corrupted.length);
+    }
+
+    private static CompressingCodec<byte[]> binaryCodec() {
+        return new CompressingCodec<byte[]>(new Codec<byte[]>() {
+            @Override
+            public byte[] encode(byte[] value) {
+                return value;
+            }
+
+            @Override
+            public byte[] decode(byte[] bytes, int offset, int length) {
+                return Arrays.copyOfRange(bytes, offset, offset + length);
+            }
+        }, 64, 1);
+    }
+}
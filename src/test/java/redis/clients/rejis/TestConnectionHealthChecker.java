@@ -0,0 +1,170 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisShardInfo;
+
+@SuppressWarnings("unchecked")
+public class TestConnectionHealthChecker implements IJedisTestConstants {
+
+    private ConnectionHealthChecker checker;
+
+    private FakeRedis redis;
+    private RoundRobinPool roundRobinPool;
+
+    /* Mocks */
+    SemaphorePool<Jedis> mockPool = createMock(SemaphorePool.class);
+    Jedis alive = createMock("alive", Jedis.class);
+    Jedis disconnected = createMock("disconnected", Jedis.class);
+    Jedis notAnswering = createMock("notAnswering", Jedis.class);
+
+    @Before
+    public void setUp() throws Exception {
+        checker = new ConnectionHealthChecker();
+        redis = new FakeRedis();
+        roundRobinPool = new RoundRobinPool(new JedisPoolConfig(), Arrays.asList(new JedisShardInfo("localhost", redis.getPort())), null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        roundRobinPool.destroy();
+        redis.close();
+    }
+
+    @Test
+    public void testCheck_OneConnectionAtATime() throws Exception {
+        // given
+        checker.register("replicas", mockPool);
+        expect(mockPool.getNumIdle()).andReturn(3);
+        expect(mockPool.getResource()).andReturn(alive);
+        expect(alive.isConnected()).andReturn(true);
+        expect(alive.ping()).andReturn("PONG");
+        mockPool.returnResource(alive);
+        expect(mockPool.getResource()).andReturn(disconnected);
+        expect(disconnected.isConnected()).andReturn(false);
+        mockPool.returnBrokenResource(disconnected);
+        expect(mockPool.getResource()).andReturn(notAnswering);
+        expect(notAnswering.isConnected()).andReturn(true);
+        expect(notAnswering.ping()).andThrow(CONNEXION_REDIS_IMPOSSIBLE);
+        mockPool.returnBrokenResource(notAnswering);
+        replayAll();
+
+        // when
+        checker.check();
+
+        // then
+        assertThat(checker.getCheckedCount(), is(3L));
+        assertThat(checker.getEvictedCount(), is(2L));
+        verifyAll();
+    }
+
+    @Test
+    public void testCheck_NoIdleConnection() throws Exception {
+        // given
+        checker.register("replicas", mockPool);
+        expect(mockPool.getNumIdle()).andReturn(0);
+        replayAll();
+
+        // when
+        checker.check();
+
+        // then
+        assertThat(checker.getCheckedCount(), is(0L));
+        verifyAll();
+    }
+
+    @Test
+    public void testCheck_RoundRobinPoolKeepsItsIdleConnections() throws Exception {
+        // given
+        openIdleConnections(3);
+        checker.register("replicas", roundRobinPool);
+
+        // when
+        checker.check();
+
+        // then
+        assertThat(roundRobinPool.getNumIdle(), is(3));
+        assertThat(roundRobinPool.getNumActive(), is(0));
+        assertThat(checker.getCheckedCount(), is(3L));
+        assertThat(checker.getEvictedCount(), is(0L));
+    }
+
+    @Test
+    public void testCheck_RoundRobinPoolDeadConnectionsReplaced() throws Exception {
+        // given
+        openIdleConnections(3);
+        checker.register("replicas", roundRobinPool);
+        redis.closeClients();
+
+        // when
+        checker.check();
+
+        // then
+        assertThat(checker.getEvictedCount(), is(3L));
+        assertThat(roundRobinPool.getNumIdle(), is(3));
+        Jedis jedis = roundRobinPool.getResource();
+        assertThat(jedis.ping(), is("PONG"));
+        roundRobinPool.returnResource(jedis);
+    }
+
+    @Test
+    public void testReturnResourceObject_BackToTheRoundRobinPool() throws Exception {
+        // given
+        Jedis jedis = roundRobinPool.getResource();
+
+        // when
+        roundRobinPool.returnResourceObject(jedis);
+
+        // then
+        assertThat(roundRobinPool.getNumIdle(), is(1));
+        assertThat(roundRobinPool.getNumActive(), is(0));
+    }
+
+    @Test
+    public void testRegister_TemplateStopsValidatingOnBorrow() throws Exception {
+        // given
+        SimpleJedisTemplate template = new SimpleJedisTemplate(mockPool);
+
+        // when
+        checker.register(template, "master");
+
+        // then
+        assertThat(template.isValidateOnBorrow(), is(false));
+    }
+
+    private void openIdleConnections(int count) {
+        List<Jedis> borrowed = new ArrayList<Jedis>();
+        for (int i = 0; i < count; i++) {
+            Jedis jedis = roundRobinPool.getResource();
+            // accepted by the server once it answered
+            jedis.ping();
+            borrowed.add(jedis);
+        }
+        for (Jedis jedis : borrowed) {
+            roundRobinPool.returnResource(jedis);
+        }
+    }
+
+    private void replayAll() {
+        replay(mockPool, alive, disconnected, notAnswering);
+    }
+
+    private void verifyAll() {
+        verify(mockPool, alive, disconnected, notAnswering);
+    }
+}
@@ -0,0 +1,59 @@
+package redis.clients.rejis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestHedgingPolicy {
+
+    @Test
+    public void testTryAcquireHedge_NoReadNoHedge() throws Exception {
+        // given
+        HedgingPolicy policy = new HedgingPolicy(1, TimeUnit.MILLISECONDS, 0.1, null);
+
+        // when
+        boolean hedge = policy.tryAcquireHedge();
+
+        // then
+        assertThat(hedge, is(false));
+    }
+
+    @Test
+    public void testTryAcquireHedge_BudgetRatio() throws Exception {
+        // given
+        HedgingPolicy policy = new HedgingPolicy(1, TimeUnit.MILLISECONDS, 0.1, 100, null);
+
+        // when
+        int nbHedges = 0;
+        for (int i = 0; i < 100; i++) {
+            policy.onRead();
+            if (policy.tryAcquireHedge()) {
+                nbHedges++;
+            }
+        }
+
+        // then
+        assertThat(nbHedges, is(10));
+    }
+
+    @Test
+    public void testTryAcquireHedge_BurstCapped() throws Exception {
+        // given
+        HedgingPolicy policy = new HedgingPolicy(1, TimeUnit.MILLISECONDS, 0.5, 2, null);
+        for (int i = 0; i < 100; i++) {
+            policy.onRead();
+        }
+
+        // when
+        int nbHedges = 0;
+        while (policy.tryAcquireHedge()) {
+            nbHedges++;
+        }
+
+        // then
+        assertThat(nbHedges, is(2));
+    }
+}
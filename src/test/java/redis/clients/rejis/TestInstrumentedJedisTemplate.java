@@ -0,0 +1,65 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+public class TestInstrumentedJedisTemplate implements IJedisTestConstants {
+
+    private InstrumentedJedisTemplate jedis;
+    private RejisMetrics metrics;
+
+    /* Mocks */
+    IRejis mockTemplate = createMock(IRejis.class);
+
+    @Before
+    public void setUp() {
+        metrics = new RejisMetrics();
+        jedis = new InstrumentedJedisTemplate(mockTemplate, metrics);
+    }
+
+    @Test
+    public void testGet_RecordOperation() throws Exception {
+        // given
+        expect(mockTemplate.get(KEY)).andReturn(VALUE);
+        replay(mockTemplate);
+
+        // when
+        String value = jedis.get(KEY);
+
+        // then
+        verify(mockTemplate);
+        assertThat(value, is(VALUE));
+        assertThat(metrics.getOperationCounts().get("get"), is(1L));
+        assertThat(metrics.getOperationErrors().get("get"), is(0L));
+    }
+
+    @Test
+    public void testSet_RecordError() throws Exception {
+        // given
+        expect(mockTemplate.set(KEY, VALUE)).andThrow(new JedisConnectionException("down"));
+        replay(mockTemplate);
+
+        // when
+        try {
+            jedis.set(KEY, VALUE);
+            fail("JedisConnectionException expected");
+        } catch (JedisConnectionException e) {
+            // expected
+        }
+
+        // then
+        verify(mockTemplate);
+        assertThat(metrics.getOperationCounts().get("set"), is(1L));
+        assertThat(metrics.getOperationErrors().get("set"), is(1L));
+    }
+}
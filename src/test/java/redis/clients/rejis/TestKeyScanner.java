@@ -0,0 +1,73 @@
+package redis.clients.rejis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestKeyScanner {
+
+    /**
+     * Node 0 : 2 pages, node 1 : an empty page then a last page.
+     */
+    private static final KeyScanner.PageLoader TWO_NODES = new KeyScanner.PageLoader() {
+        @Override
+        public KeyScanner.Page load(int node, String cursor, String pattern, int count) {
+            if (node == 0) {
+                return "0".equals(cursor) ? new KeyScanner.Page("17", Arrays.asList("a", "b")) : new KeyScanner.Page("0", Arrays.asList("c"));
+            } else if (node == 1) {
+                return "0".equals(cursor) ? new KeyScanner.Page("3", Collections.<String> emptyList()) : new KeyScanner.Page("0", Arrays.asList("d"));
+            }
+            return null;
+        }
+    };
+
+    @Test
+    public void testIterate_AllNodesAndPages() throws Exception {
+        // when
+        List<String> keys = toList(new KeyScanner(TWO_NODES, "*", 10, false));
+
+        // then
+        assertThat(keys, is(Arrays.asList("a", "b", "c", "d")));
+    }
+
+    @Test
+    public void testIterate_Prefetch() throws Exception {
+        // when
+        List<String> keys = toList(new KeyScanner(TWO_NODES, "*", 10, true));
+
+        // then
+        assertThat(keys, is(Arrays.asList("a", "b", "c", "d")));
+    }
+
+    @Test
+    public void testIterate_NoNode() throws Exception {
+        // given
+        KeyScanner.PageLoader noNode = new KeyScanner.PageLoader() {
+            @Override
+            public KeyScanner.Page load(int node, String cursor, String pattern, int count) {
+                return null;
+            }
+        };
+
+        // when
+        Iterator<String> keys = new KeyScanner(noNode, "*", 10, true);
+
+        // then
+        assertThat(keys.hasNext(), is(false));
+    }
+
+    private static List<String> toList(Iterator<String> iterator) {
+        List<String> list = new ArrayList<String>();
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+        return list;
+    }
+}
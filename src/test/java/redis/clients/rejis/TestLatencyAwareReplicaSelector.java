@@ -0,0 +1,87 @@
+package redis.clients.rejis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class TestLatencyAwareReplicaSelector {
+
+    private static final int NB_REPLICAS = 2;
+    private static final int NB_READS = 1000;
+
+    @Test
+    public void testSelect_PreferFastestReplica() throws Exception {
+        // given
+        LatencyAwareReplicaSelector selector = new LatencyAwareReplicaSelector(NB_REPLICAS, 0.5, 0, 1000000);
+        selector.onReadStart(0);
+        selector.onReadEnd(0, 5000000, false);
+        selector.onReadStart(1);
+        selector.onReadEnd(1, 100000, false);
+
+        // when
+        int nbReadsOnFastest = countReadsOn(selector, 1);
+
+        // then
+        assertThat(nbReadsOnFastest, is(NB_READS));
+    }
+
+    @Test
+    public void testSelect_OutstandingReadsCount() throws Exception {
+        // given
+        LatencyAwareReplicaSelector selector = new LatencyAwareReplicaSelector(NB_REPLICAS, 0.5, 0, 1000000);
+        selector.onReadStart(0);
+        selector.onReadEnd(0, 200000, false);
+        selector.onReadStart(1);
+        selector.onReadEnd(1, 100000, false);
+        for (int i = 0; i < 3; i++) {
+            selector.onReadStart(1);
+        }
+
+        // when
+        int nbReadsOnBusiest = countReadsOn(selector, 1);
+
+        // then
+        assertThat(nbReadsOnBusiest, is(0));
+    }
+
+    @Test
+    public void testSelect_SlowReplicaStillProbed() throws Exception {
+        // given
+        LatencyAwareReplicaSelector selector = new LatencyAwareReplicaSelector(NB_REPLICAS, 0.5, 0.5, 1000000);
+        selector.onReadStart(0);
+        selector.onReadEnd(0, 5000000, true);
+
+        // when
+        int nbReadsOnSlowest = countReadsOn(selector, 0);
+
+        // then
+        assertThat(nbReadsOnSlowest > 0, is(true));
+        assertThat(nbReadsOnSlowest < NB_READS / 2, is(true));
+    }
+
+    @Test
+    public void testOnReadEnd_FailurePenalty() throws Exception {
+        // given
+        LatencyAwareReplicaSelector selector = new LatencyAwareReplicaSelector(NB_REPLICAS, 1, 0, 1000000);
+        selector.onReadStart(0);
+
+        // when
+        selector.onReadEnd(0, 10, true);
+
+        // then
+        assertThat(selector.getLatencyNanos(0), is(1000000d));
+        assertThat(selector.getOutstanding(0), is(0));
+    }
+
+    private int countReadsOn(LatencyAwareReplicaSelector selector, int replica) {
+        int count = 0;
+        for (int i = 0; i < NB_READS; i++) {
+            if (selector.select(NB_REPLICAS) == replica) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
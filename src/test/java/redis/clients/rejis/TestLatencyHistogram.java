@@ -0,0 +1,55 @@
+package redis.clients.rejis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+
+    @Test
+    public void testIndexOf_ValueWithinBucketBounds() throws Exception {
+        for (long value : new long[] { 0, 1, 15, 16, 17, 31, 32, 1000, 123456789L, Long.MAX_VALUE }) {
+            // when
+            int index = LatencyHistogram.indexOf(value);
+
+            // then
+            assertTrue(value + " below its bucket", LatencyHistogram.lowerBoundOf(index) <= value);
+            assertTrue(value + " above its bucket", LatencyHistogram.upperBoundOf(index) >= value);
+        }
+    }
+
+    @Test
+    public void testGetPercentileNanos_WithinPrecision() throws Exception {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        // when
+        long p50 = histogram.getPercentileNanos(50);
+        long p99 = histogram.getPercentileNanos(99);
+
+        // then
+        assertThat(histogram.getCount(), is(1000L));
+        assertThat(histogram.getMaxNanos(), is(1000000L));
+        assertTrue("p50 " + p50, p50 >= 500000 && p50 <= 500000 * 1.07);
+        assertTrue("p99 " + p99, p99 >= 990000 && p99 <= 1000000);
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(42);
+
+        // when
+        histogram.reset();
+
+        // then
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getPercentileNanos(99), is(0L));
+    }
+}
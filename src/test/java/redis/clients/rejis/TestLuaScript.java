@@ -0,0 +1,133 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.Pool;
+
+@SuppressWarnings("unchecked")
+public class TestLuaScript implements IJedisTestConstants {
+
+    private static final String BODY = "return 1";
+    private static final String SHA1 = "e0e1f9fabfc9d4800c877a703b823ac0578ff8db";
+    private static final List<String> KEYS = Arrays.asList(KEY);
+    private static final List<String> ARGS = Arrays.asList(VALUE);
+
+    /* Mocks */
+    Pool<Jedis> mockPool = createMock(Pool.class);
+    Jedis mockJedis = createMock(Jedis.class);
+
+    @Test
+    public void testSha1() throws Exception {
+        assertThat(new LuaScript(BODY).getSha1(), is(SHA1));
+    }
+
+    @Test
+    public void testEval_Evalsha() throws Exception {
+        // given
+        expect(mockJedis.evalsha(SHA1, KEYS, ARGS)).andReturn(1L);
+        replay(mockJedis);
+
+        // when
+        Object result = new LuaScript(BODY).eval(mockJedis, KEYS, ARGS);
+
+        // then
+        assertThat(result, is((Object) 1L));
+        verify(mockJedis);
+    }
+
+    @Test
+    public void testEval_NoScriptFallbackOnEval() throws Exception {
+        // given
+        expect(mockJedis.evalsha(SHA1, KEYS, ARGS)).andThrow(new JedisDataException("NOSCRIPT No matching script. Please use EVAL."));
+        expect(mockJedis.eval(BODY, KEYS, ARGS)).andReturn(1L);
+        replay(mockJedis);
+
+        // when
+        Object result = new LuaScript(BODY).eval(mockJedis, KEYS, ARGS);
+
+        // then
+        assertThat(result, is((Object) 1L));
+        verify(mockJedis);
+    }
+
+    @Test
+    public void testEval_ScriptErrorNotRetried() throws Exception {
+        // given
+        expect(mockJedis.evalsha(SHA1, KEYS, ARGS)).andThrow(new JedisDataException("ERR Error running script"));
+        replay(mockJedis);
+
+        // when
+        try {
+            new LuaScript(BODY).eval(mockJedis, KEYS, ARGS);
+            fail();
+        } catch (JedisDataException e) {
+            // then
+            verify(mockJedis);
+        }
+    }
+
+    @Test
+    public void testRegisterScript_SameBodySameScript() throws Exception {
+        // given
+        SimpleJedisTemplate template = new SimpleJedisTemplate(mockPool);
+
+        // when
+        LuaScript first = template.registerScript(BODY);
+        LuaScript second = template.registerScript(BODY);
+
+        // then
+        assertThat(second, is(sameInstance(first)));
+    }
+
+    @Test
+    public void testLoadScripts_OnTheMaster() throws Exception {
+        // given
+        SimpleJedisTemplate template = new SimpleJedisTemplate(mockPool);
+        template.setValidateOnBorrow(false);
+        template.registerScript(BODY);
+        expect(mockPool.getResource()).andReturn(mockJedis);
+        expect(mockJedis.scriptLoad(BODY)).andReturn(SHA1);
+        mockPool.returnResource(mockJedis);
+        replay(mockPool, mockJedis);
+
+        // when
+        template.loadScripts();
+
+        // then
+        verify(mockPool, mockJedis);
+    }
+
+    @Test
+    public void testEval_OnTemplate() throws Exception {
+        // given
+        SimpleJedisTemplate template = new SimpleJedisTemplate(mockPool);
+        template.setValidateOnBorrow(false);
+        LuaScript script = template.registerScript(BODY);
+        expect(mockPool.getResource()).andReturn(mockJedis);
+        expect(mockJedis.evalsha(SHA1, Collections.<String> emptyList(), ARGS)).andReturn(1L);
+        mockPool.returnResource(mockJedis);
+        replay(mockPool, mockJedis);
+
+        // when
+        Object result = template.eval(script, Collections.<String> emptyList(), ARGS);
+
+        // then
+        assertThat(result, is((Object) 1L));
+        verify(mockPool, mockJedis);
+    }
+}
@@ -0,0 +1,185 @@
+package redis.clients.rejis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+public class TestMultiplexedJedisTemplate implements IJedisTestConstants {
+
+    private static final String BAD_KEY = FakeRedis.BAD_KEY;
+
+    private FakeRedis redis;
+    private MultiplexedJedisTemplate jedis;
+
+    @Before
+    public void setUp() throws Exception {
+        redis = new FakeRedis();
+        jedis = new MultiplexedJedisTemplate("localhost", redis.getPort(), 2, 2000, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        jedis.destroyPools();
+        redis.close();
+    }
+
+    @Test
+    public void testReadReply_Incomplete() throws Exception {
+        // given
+        ByteBuffer buffer = ByteBuffer.wrap(SafeEncoder.encode("*2\r\n$5\r\nvalue\r\n$5\r\nval"));
+
+        // when
+        Object reply = Resp.readReply(buffer);
+
+        // then
+        assertThat(reply, is(Resp.INCOMPLETE));
+        assertThat(buffer.position(), is(0));
+    }
+
+    @Test
+    public void testReadReply_Replies() throws Exception {
+        // given
+        ByteBuffer buffer = ByteBuffer.wrap(SafeEncoder.encode("+OK\r\n:3\r\n$-1\r\n*2\r\n$5\r\nvalue\r\n$-1\r\n-ERR bad\r\n"));
+
+        // when
+        Object status = Resp.readReply(buffer);
+        Object integer = Resp.readReply(buffer);
+        Object nil = Resp.readReply(buffer);
+        List<?> multiBulk = (List<?>) Resp.readReply(buffer);
+        Object error = Resp.readReply(buffer);
+
+        // then
+        assertThat(status, is((Object) "OK"));
+        assertThat(integer, is((Object) 3L));
+        assertThat(nil, is(nullValue()));
+        assertThat(SafeEncoder.encode((byte[]) multiBulk.get(0)), is(VALUE));
+        assertThat(multiBulk.get(1), is(nullValue()));
+        assertThat(((JedisDataException) error).getMessage(), is("ERR bad"));
+        assertThat(buffer.hasRemaining(), is(false));
+    }
+
+    @Test
+    public void testBlockingCommands() throws Exception {
+        // when
+        String set = jedis.set(KEY, VALUE);
+        String get = jedis.get(KEY);
+        Boolean exists = jedis.exists(KEY);
+        Long del = jedis.del(KEY, VALUE);
+
+        // then
+        assertThat(set, is("OK"));
+        assertThat(get, is(KEY));
+        assertThat(exists, is(true));
+        assertThat(del, is(2L));
+    }
+
+    @Test
+    public void testMget() throws Exception {
+        // when
+        Map<String, String> values = jedis.mget(KEY, BAD_KEY);
+
+        // then
+        assertThat(new ArrayList<String>(values.keySet()), is(Arrays.asList(KEY, BAD_KEY)));
+        assertThat(values.get(KEY), is(KEY));
+        assertThat(values.get(BAD_KEY), is(nullValue()));
+    }
+
+    @Test
+    public void testRepliesMatchedInOrderAcrossCallers() throws Exception {
+        // given
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        for (int caller = 0; caller < 8; caller++) {
+            final int id = caller;
+            results.add(callers.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    List<Future<String>> replies = new ArrayList<Future<String>>();
+                    for (int i = 0; i < 500; i++) {
+                        replies.add(jedis.getAsync(KEY + id + ":" + i));
+                    }
+                    for (int i = 0; i < 500; i++) {
+                        if (!replies.get(i).get().equals(KEY + id + ":" + i)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            }));
+        }
+
+        // when
+        try {
+            // then
+            for (Future<Boolean> result : results) {
+                assertThat(result.get(), is(true));
+            }
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    @Test
+    public void testLargerThanTheBuffers() throws Exception {
+        // given
+        char[] chars = new char[MultiplexedEngine.BUFFER_SIZE * 3];
+        Arrays.fill(chars, 'k');
+        String largeKey = new String(chars);
+
+        // when
+        String value = jedis.get(largeKey);
+
+        // then
+        assertThat(value, is(largeKey));
+    }
+
+    @Test
+    public void testErrorReplyConnectionKept() throws Exception {
+        // when
+        try {
+            jedis.set(BAD_KEY, VALUE);
+            fail();
+        } catch (JedisDataException e) {
+            // then
+            assertThat(jedis.get(KEY), is(KEY));
+        }
+    }
+
+    @Test
+    public void testConnectionRefused() throws Exception {
+        // given
+        ServerSocket closed = new ServerSocket(0);
+        closed.close();
+        MultiplexedJedisTemplate down = new MultiplexedJedisTemplate("localhost", closed.getLocalPort(), 1, 500, null);
+
+        // when
+        try {
+            down.get(KEY);
+            fail();
+        } catch (JedisConnectionException e) {
+            // then
+        } finally {
+            down.destroyPools();
+        }
+    }
+}
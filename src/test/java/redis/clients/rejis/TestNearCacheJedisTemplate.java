@@ -0,0 +1,227 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestNearCacheJedisTemplate implements IJedisTestConstants {
+
+    private NearCacheJedisTemplate jedis;
+
+    /* Mocks */
+    IRejis mockTemplate = createMock(IRejis.class);
+
+    @Before
+    public void setUp() {
+        jedis = new NearCacheJedisTemplate(mockTemplate, 2, 1, TimeUnit.HOURS, 1);
+    }
+
+    @Test
+    public void testGet_SecondReadIsHit() throws Exception {
+        // given
+        expect(mockTemplate.get(KEY)).andReturn(VALUE).once();
+        replay(mockTemplate);
+
+        // when
+        jedis.get(KEY);
+        String retour = jedis.get(KEY);
+
+        // then
+        assertThat(retour, is(VALUE));
+        assertThat(jedis.getHitCount(), is(1L));
+        assertThat(jedis.getMissCount(), is(1L));
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testExists_AnsweredFromCachedValue() throws Exception {
+        // given
+        expect(mockTemplate.get(KEY)).andReturn(null).once();
+        replay(mockTemplate);
+
+        // when
+        jedis.get(KEY);
+        Boolean retour = jedis.exists(KEY);
+
+        // then
+        assertThat(retour, is(false));
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testDel_InvalidateEntry() throws Exception {
+        // given
+        expect(mockTemplate.get(KEY)).andReturn(VALUE).once().andReturn(null).once();
+        expect(mockTemplate.del(KEY)).andReturn(1L).once();
+        replay(mockTemplate);
+
+        // when
+        jedis.get(KEY);
+        jedis.del(KEY);
+        String retour = jedis.get(KEY);
+
+        // then
+        assertThat(retour, is(nullValue()));
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testSetex_NotCachedBeyondTimeout() throws Exception {
+        // given
+        expect(mockTemplate.setex(KEY, 0, VALUE)).andReturn(JEDIS_STRING_OK).once();
+        expect(mockTemplate.get(KEY)).andReturn(null).once();
+        replay(mockTemplate);
+
+        // when
+        jedis.setex(KEY, 0, VALUE);
+        String retour = jedis.get(KEY);
+
+        // then
+        assertThat(retour, is(nullValue()));
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testEviction_LeastRecentlyUsed() throws Exception {
+        // given
+        expect(mockTemplate.get("k1")).andReturn(VALUE).times(2);
+        expect(mockTemplate.get("k2")).andReturn(VALUE).once();
+        expect(mockTemplate.get("k3")).andReturn(VALUE).once();
+        replay(mockTemplate);
+
+        // when
+        jedis.get("k1");
+        jedis.get("k2");
+        jedis.get("k3");
+        jedis.get("k2");
+        jedis.get("k1");
+
+        // then
+        assertThat(jedis.getEvictionCount(), is(2L));
+        assertThat(jedis.getSize(), is(2));
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testMget_OnlyMissingKeysLoaded() throws Exception {
+        // given
+        expect(mockTemplate.get("k1")).andReturn(VALUE).once();
+        expect(mockTemplate.mget("k2")).andReturn(Collections.singletonMap("k2", VALUE)).once();
+        replay(mockTemplate);
+
+        // when
+        jedis.get("k1");
+        Map<String, String> retour = jedis.mget("k1", "k2");
+
+        // then
+        assertThat(retour.get("k1"), is(VALUE));
+        assertThat(retour.get("k2"), is(VALUE));
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testGet_LocalWriteDuringReadKept() throws Exception {
+        // given
+        expect(mockTemplate.get(KEY)).andAnswer(new IAnswer<String>() {
+            @Override
+            public String answer() {
+                // written by another thread once the old value is read
+                jedis.set(KEY, "newValue");
+                return VALUE;
+            }
+        });
+        expect(mockTemplate.set(KEY, "newValue")).andReturn("OK");
+        replay(mockTemplate);
+
+        // when
+        jedis.get(KEY);
+        String retour = jedis.get(KEY);
+
+        // then
+        assertThat(retour, is("newValue"));
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testGet_ReadErrorNotCached() throws Exception {
+        // given
+        expect(mockTemplate.get(KEY)).andThrow(CONNEXION_REDIS_IMPOSSIBLE);
+        expect(mockTemplate.exists(KEY)).andReturn(true);
+        replay(mockTemplate);
+        try {
+            jedis.get(KEY);
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        // when
+        Boolean retour = jedis.exists(KEY);
+
+        // then
+        assertThat(retour, is(true));
+        assertThat(jedis.getSize(), is(1));
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testGet_ReadDuringDelNotKept() throws Exception {
+        // given
+        expect(mockTemplate.del(KEY)).andAnswer(new IAnswer<Long>() {
+            @Override
+            public Long answer() {
+                // read by another thread before the key is deleted
+                jedis.get(KEY);
+                return 1L;
+            }
+        });
+        expect(mockTemplate.get(KEY)).andReturn(VALUE);
+        expect(mockTemplate.get(KEY)).andReturn(null);
+        replay(mockTemplate);
+
+        // when
+        jedis.del(KEY);
+        String retour = jedis.get(KEY);
+
+        // then
+        assertThat(retour, is(nullValue()));
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testGet_ReadDuringMsetNotKept() throws Exception {
+        // given
+        final Map<String, String> keyValues = Collections.singletonMap(KEY, "newValue");
+        mockTemplate.mset(keyValues);
+        expectLastCall().andAnswer(new IAnswer<Void>() {
+            @Override
+            public Void answer() {
+                jedis.get(KEY);
+                return null;
+            }
+        });
+        expect(mockTemplate.get(KEY)).andReturn(VALUE);
+        expect(mockTemplate.get(KEY)).andReturn("newValue");
+        replay(mockTemplate);
+
+        // when
+        jedis.mset(keyValues);
+        String retour = jedis.get(KEY);
+
+        // then
+        assertThat(retour, is("newValue"));
+        verify(mockTemplate);
+    }
+}
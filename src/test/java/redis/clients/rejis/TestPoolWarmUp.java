@@ -0,0 +1,107 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.util.Pool;
+
+@SuppressWarnings("unchecked")
+public class TestPoolWarmUp implements IJedisTestConstants {
+
+    private static final String HOST = "localhost";
+    private static final int PORT_1 = 6389;
+    private static final int PORT_2 = 6399;
+
+    /* Mocks */
+    Pool<Jedis> pool1 = createMock("pool1", Pool.class);
+    Pool<Jedis> pool2 = createMock("pool2", Pool.class);
+    Jedis jedis1 = createMock("jedis1", Jedis.class);
+    Jedis jedis2 = createMock("jedis2", Jedis.class);
+
+    @Test
+    public void testStart_ConnectionsBorrowedThenReturned() throws Exception {
+        // given
+        expect(pool1.getResource()).andReturn(jedis1).times(2);
+        pool1.returnResourceObject(jedis1);
+        pool1.returnResourceObject(jedis1);
+        replayAll();
+
+        // when
+        PoolWarmUp warmUp = PoolWarmUp.start(new WarmUpPolicy(2, 5, TimeUnit.SECONDS, false), Collections.singletonMap("master", pool1));
+
+        // then
+        assertThat(warmUp.isReady(), is(true));
+        assertThat(warmUp.getOpenedConnections(), is(2));
+        assertThat(warmUp.getDownNodes().isEmpty(), is(true));
+        verifyAll();
+    }
+
+    @Test
+    public void testStart_DownReplicaReported() throws Exception {
+        // given
+        List<JedisShardInfo> shards = Arrays.asList(new JedisShardInfo(HOST, PORT_1), new JedisShardInfo(HOST, PORT_2));
+        ReplicaPool replicaPool = new ReplicaPool(shards, Arrays.asList(pool1, pool2), new RoundRobinReplicaSelector());
+        replicaPool.setCircuitBreakers(1, 1, TimeUnit.MINUTES);
+        expect(pool1.getResource()).andThrow(CONNEXION_REDIS_IMPOSSIBLE);
+        expect(pool2.getResource()).andReturn(jedis2);
+        pool2.returnResourceObject(jedis2);
+        replayAll();
+
+        // when
+        PoolWarmUp warmUp = PoolWarmUp.start(WarmUpPolicy.DEFAULT, Collections.singletonMap("read", replicaPool));
+
+        // then
+        assertThat(warmUp.getDownNodes(), is(Collections.singleton(HOST + ":" + PORT_1)));
+        assertThat(replicaPool.getCircuitBreaker(0).getState(), is(CircuitBreaker.State.OPEN));
+        assertThat(replicaPool.getCircuitBreaker(1).getState(), is(CircuitBreaker.State.CLOSED));
+        verifyAll();
+    }
+
+    @Test
+    public void testStart_Background() throws Exception {
+        // given
+        final CountDownLatch releaseBorrow = new CountDownLatch(1);
+        expect(pool1.getResource()).andAnswer(new IAnswer<Jedis>() {
+            @Override
+            public Jedis answer() throws Throwable {
+                releaseBorrow.await(1, TimeUnit.SECONDS);
+                return jedis1;
+            }
+        });
+        pool1.returnResourceObject(jedis1);
+        replayAll();
+
+        // when
+        PoolWarmUp warmUp = PoolWarmUp.start(new WarmUpPolicy(1, 5, TimeUnit.SECONDS, true), Collections.singletonMap("master", pool1));
+        boolean readyBeforeBorrow = warmUp.isReady();
+        releaseBorrow.countDown();
+
+        // then
+        assertThat(readyBeforeBorrow, is(false));
+        assertThat(warmUp.awaitReady(1, TimeUnit.SECONDS), is(true));
+        verifyAll();
+    }
+
+    private void replayAll() {
+        replay(pool1, pool2, jedis1, jedis2);
+    }
+
+    private void verifyAll() {
+        verify(pool1, pool2, jedis1, jedis2);
+    }
+}
@@ -0,0 +1,132 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestReadYourWritesJedisTemplate implements IJedisTestConstants {
+
+    private static final String OTHER_KEY = "other";
+
+    private ReadYourWritesJedisTemplate jedis;
+
+    /* Mocks */
+    IRejis mockTemplate = createMock(IRejis.class);
+    IRejis mockMaster = createMock(IRejis.class);
+
+    @Before
+    public void setUp() {
+        jedis = new ReadYourWritesJedisTemplate(mockTemplate, mockMaster, 1, TimeUnit.MINUTES, 1024);
+    }
+
+    @Test
+    public void testGet_NotWrittenReadFromTemplate() throws Exception {
+        // given
+        expect(mockTemplate.get(KEY)).andReturn(VALUE);
+        replayAll();
+
+        // when
+        String value = jedis.get(KEY);
+
+        // then
+        assertThat(value, is(VALUE));
+        verifyAll();
+    }
+
+    @Test
+    public void testGet_WrittenReadFromMaster() throws Exception {
+        // given
+        expect(mockTemplate.set(KEY, VALUE)).andReturn("OK");
+        expect(mockMaster.get(KEY)).andReturn(VALUE);
+        expect(mockTemplate.get(OTHER_KEY)).andReturn(null);
+        replayAll();
+
+        // when
+        jedis.set(KEY, VALUE);
+        String value = jedis.get(KEY);
+        jedis.get(OTHER_KEY);
+
+        // then
+        assertThat(value, is(VALUE));
+        verifyAll();
+    }
+
+    @Test
+    public void testMget_SplitBetweenMasterAndTemplate() throws Exception {
+        // given
+        expect(mockTemplate.del(KEY)).andReturn(1L);
+        expect(mockMaster.mget(KEY)).andReturn(Collections.<String, String> singletonMap(KEY, null));
+        expect(mockTemplate.mget(OTHER_KEY)).andReturn(Collections.singletonMap(OTHER_KEY, VALUE));
+        replayAll();
+
+        // when
+        jedis.del(KEY);
+        Map<String, String> values = jedis.mget(OTHER_KEY, KEY);
+
+        // then
+        Map<String, String> expected = new LinkedHashMap<String, String>();
+        expected.put(OTHER_KEY, VALUE);
+        expected.put(KEY, null);
+        assertThat(values, is(expected));
+        assertThat(values.keySet().iterator().next(), is(OTHER_KEY));
+        verifyAll();
+    }
+
+    @Test
+    public void testGet_ThreadScoped() throws Exception {
+        // given
+        jedis.setThreadScoped(true);
+        expect(mockTemplate.set(KEY, VALUE)).andReturn("OK");
+        expect(mockMaster.mexists(OTHER_KEY)).andReturn(Collections.singletonMap(OTHER_KEY, false));
+        replayAll();
+
+        // when
+        jedis.set(KEY, VALUE);
+        Map<String, Boolean> exists = jedis.mexists(OTHER_KEY);
+
+        // then
+        assertThat(exists, is(Collections.singletonMap(OTHER_KEY, false)));
+        verifyAll();
+    }
+
+    @Test
+    public void testRecentWrites_WindowElapsed() throws Exception {
+        // given
+        final long[] now = { 1 };
+        RecentWrites recentWrites = new RecentWrites(10, TimeUnit.NANOSECONDS, 16) {
+            @Override
+            long now() {
+                return now[0];
+            }
+        };
+
+        // when
+        recentWrites.onWrite(KEY);
+        boolean recentInWindow = recentWrites.isRecent(KEY);
+        now[0] = 11;
+        boolean recentAfterWindow = recentWrites.isRecent(KEY);
+
+        // then
+        assertThat(Arrays.asList(recentInWindow, recentAfterWindow), is(Arrays.asList(true, false)));
+    }
+
+    private void replayAll() {
+        replay(mockTemplate, mockMaster);
+    }
+
+    private void verifyAll() {
+        verify(mockTemplate, mockMaster);
+    }
+}
@@ -0,0 +1,168 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.util.Pool;
+
+@SuppressWarnings("unchecked")
+public class TestReplicaPool implements IJedisTestConstants {
+
+    private static final String HOST = "localhost";
+    private static final int PORT_1 = 6389;
+    private static final int PORT_2 = 6399;
+
+    private ReplicaPool pool;
+
+    /* Mocks */
+    Pool<Jedis> replicaPool1 = createMock("replicaPool1", Pool.class);
+    Pool<Jedis> replicaPool2 = createMock("replicaPool2", Pool.class);
+    Jedis jedis1 = createMock("jedis1", Jedis.class);
+    Jedis jedis2 = createMock("jedis2", Jedis.class);
+    Client client2 = createMock("client2", Client.class);
+
+    @Before
+    public void setUp() {
+        List<JedisShardInfo> shards = Arrays.asList(new JedisShardInfo(HOST, PORT_1), new JedisShardInfo(HOST, PORT_2));
+        List<Pool<Jedis>> pools = Arrays.asList(replicaPool1, replicaPool2);
+        pool = new ReplicaPool(shards, pools, new RoundRobinReplicaSelector());
+    }
+
+    @Test
+    public void testGetResource_ExactRoundRobin() throws Exception {
+        // given
+        expect(replicaPool1.getResource()).andReturn(jedis1).times(2);
+        expect(replicaPool2.getResource()).andReturn(jedis2).times(2);
+        replayAll();
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            pool.getResource();
+        }
+
+        // then
+        verifyAll();
+    }
+
+    @Test
+    public void testGetResource_DeadReplicaFallbackOnNext() throws Exception {
+        // given
+        expect(replicaPool1.getResource()).andThrow(CONNEXION_REDIS_IMPOSSIBLE).once();
+        expect(replicaPool2.getResource()).andReturn(jedis2).once();
+        replayAll();
+
+        // when
+        Jedis retour = pool.getResource();
+
+        // then
+        assertThat(retour, is(jedis2));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetResource_AllReplicasDead() throws Exception {
+        // given
+        expect(replicaPool1.getResource()).andThrow(CONNEXION_REDIS_IMPOSSIBLE).once();
+        expect(replicaPool2.getResource()).andThrow(CONNEXION_REDIS_IMPOSSIBLE).once();
+        replayAll();
+
+        // when
+        try {
+            pool.getResource();
+            fail();
+        } catch (JedisConnectionException e) {
+            // then
+            verifyAll();
+        }
+    }
+
+    @Test
+    public void testGetResource_OpenCircuitSkipped() throws Exception {
+        // given
+        pool.setCircuitBreakers(1, 1, TimeUnit.HOURS);
+        expect(replicaPool1.getResource()).andThrow(CONNEXION_REDIS_IMPOSSIBLE).once();
+        expect(replicaPool2.getResource()).andReturn(jedis2).times(3);
+        replayAll();
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            pool.getResource();
+        }
+
+        // then
+        assertThat(pool.getCircuitBreaker(0).getState(), is(CircuitBreaker.State.OPEN));
+        verifyAll();
+    }
+
+    @Test
+    public void testExcluding_NeverBorrowFromExcludedReplica() throws Exception {
+        // given
+        expect(replicaPool2.getResource()).andReturn(jedis2).times(2);
+        replayAll();
+
+        // when
+        ReplicaPool view = pool.excluding(0);
+        view.getResource();
+        view.getResource();
+
+        // then
+        verifyAll();
+    }
+
+    @Test
+    public void testStartingAt_BorrowFromGivenReplicaFirst() throws Exception {
+        // given
+        expect(replicaPool2.getResource()).andReturn(jedis2).times(2);
+        replayAll();
+
+        // when
+        ReplicaPool view = pool.startingAt(1);
+        view.getResource();
+        view.getResource();
+
+        // then
+        verifyAll();
+    }
+
+    @Test
+    public void testReturnBrokenResource_OnlyOwnPool() throws Exception {
+        // given
+        expect(jedis2.getClient()).andReturn(client2).anyTimes();
+        expect(client2.getHost()).andReturn(HOST).anyTimes();
+        expect(client2.getPort()).andReturn(PORT_2).anyTimes();
+        replicaPool2.returnBrokenResource(jedis2);
+        expectLastCall().once();
+        replayAll();
+
+        // when
+        pool.returnBrokenResource(jedis2);
+
+        // then
+        verifyAll();
+    }
+
+    private void replayAll() {
+        replay(replicaPool1, replicaPool2, jedis1, jedis2, client2);
+    }
+
+    void verifyAll() {
+        verify(replicaPool1, replicaPool2, jedis1, jedis2, client2);
+    }
+}
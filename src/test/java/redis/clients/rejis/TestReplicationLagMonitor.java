@@ -0,0 +1,155 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.util.Pool;
+
+@SuppressWarnings("unchecked")
+public class TestReplicationLagMonitor implements IJedisTestConstants {
+
+    private static final String HOST = "localhost";
+    private static final int PORT_1 = 6389;
+    private static final int PORT_2 = 6399;
+
+    private ReplicaPool replicaPool;
+    private ReplicationLagMonitor monitor;
+    private RejisMetrics metrics = new RejisMetrics();
+
+    /* Mocks */
+    Pool<Jedis> masterPool = createMock("masterPool", Pool.class);
+    Pool<Jedis> replicaPool1 = createMock("replicaPool1", Pool.class);
+    Pool<Jedis> replicaPool2 = createMock("replicaPool2", Pool.class);
+    Jedis master = createMock("master", Jedis.class);
+    Jedis jedis1 = createMock("jedis1", Jedis.class);
+    Jedis jedis2 = createMock("jedis2", Jedis.class);
+
+    @Before
+    public void setUp() {
+        List<JedisShardInfo> shards = Arrays.asList(new JedisShardInfo(HOST, PORT_1), new JedisShardInfo(HOST, PORT_2));
+        List<Pool<Jedis>> pools = Arrays.asList(replicaPool1, replicaPool2);
+        replicaPool = new ReplicaPool(shards, pools, new RoundRobinReplicaSelector());
+        monitor = new ReplicationLagMonitor(masterPool, replicaPool, 1000);
+        monitor.setMetrics(metrics);
+    }
+
+    @Test
+    public void testCheck_LaggingReplicaOutOfRotation() throws Exception {
+        // given
+        expectOffsets(10000, replicaInfo(9500, "up"), replicaInfo(5000, "up"));
+        replayAll();
+
+        // when
+        monitor.check();
+
+        // then
+        assertThat(monitor.getLag(0), is(500L));
+        assertThat(monitor.getLag(1), is(5000L));
+        assertThat(replicaPool.isEligible(0), is(true));
+        assertThat(replicaPool.isEligible(1), is(false));
+        assertThat(metrics.getReplicationLagBytes().get(HOST + ":" + PORT_2), is(5000L));
+        verifyAll();
+    }
+
+    @Test
+    public void testCheck_BackInRotationUnderHalfTheMaxLag() throws Exception {
+        // given
+        replicaPool.setEligible(0, false);
+        replicaPool.setEligible(1, false);
+        expectOffsets(10000, replicaInfo(9200, "up"), replicaInfo(9600, "up"));
+        replayAll();
+
+        // when
+        monitor.check();
+
+        // then
+        assertThat(replicaPool.isEligible(0), is(false));
+        assertThat(replicaPool.isEligible(1), is(true));
+        verifyAll();
+    }
+
+    @Test
+    public void testCheck_LinkDownOutOfRotation() throws Exception {
+        // given
+        expectOffsets(10000, replicaInfo(10000, "down"), replicaInfo(10000, "up"));
+        replayAll();
+
+        // when
+        monitor.check();
+
+        // then
+        assertThat(monitor.getLag(0), is(ReplicationLagMonitor.UNKNOWN_LAG));
+        assertThat(replicaPool.isEligible(0), is(false));
+        verifyAll();
+    }
+
+    @Test
+    public void testCheck_UnreachableReplicaLeftAsIs() throws Exception {
+        // given
+        expect(masterPool.getResource()).andReturn(master);
+        expect(master.info("replication")).andReturn("# Replication\r\nrole:master\r\nmaster_repl_offset:10000\r\n");
+        masterPool.returnResource(master);
+        expect(replicaPool1.getResource()).andThrow(CONNEXION_REDIS_IMPOSSIBLE);
+        expectInfo(replicaPool2, jedis2, replicaInfo(10000, "up"));
+        replayAll();
+
+        // when
+        monitor.check();
+
+        // then
+        assertThat(replicaPool.isEligible(0), is(true));
+        assertThat(monitor.getLag(0), is(ReplicationLagMonitor.UNKNOWN_LAG));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetResource_SkipsReplicaOutOfRotation() throws Exception {
+        // given
+        replicaPool.setEligible(0, false);
+        expect(replicaPool2.getResource()).andReturn(jedis2).times(2);
+        replayAll();
+
+        // when
+        replicaPool.getResource();
+        replicaPool.getResource();
+
+        // then
+        verifyAll();
+    }
+
+    private void expectOffsets(long masterOffset, String info1, String info2) {
+        expectInfo(masterPool, master, "# Replication\r\nrole:master\r\nconnected_slaves:2\r\nmaster_repl_offset:" + masterOffset + "\r\n");
+        expectInfo(replicaPool1, jedis1, info1);
+        expectInfo(replicaPool2, jedis2, info2);
+    }
+
+    private static void expectInfo(Pool<Jedis> pool, Jedis jedis, String info) {
+        expect(pool.getResource()).andReturn(jedis);
+        expect(jedis.info("replication")).andReturn(info);
+        pool.returnResource(jedis);
+    }
+
+    private static String replicaInfo(long offset, String linkStatus) {
+        return "# Replication\r\nrole:slave\r\nmaster_link_status:" + linkStatus + "\r\nslave_repl_offset:" + offset + "\r\n";
+    }
+
+    private void replayAll() {
+        replay(masterPool, replicaPool1, replicaPool2, master, jedis1, jedis2);
+    }
+
+    private void verifyAll() {
+        verify(masterPool, replicaPool1, replicaPool2, master, jedis1, jedis2);
+    }
+}
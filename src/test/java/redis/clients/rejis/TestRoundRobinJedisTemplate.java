@@ -1,6 +1,7 @@
 package redis.clients.rejis;
 
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.createStrictMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
@@ -10,17 +11,31 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.Before;
 import org.junit.Test;
 
+import redis.clients.jedis.Client;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.util.Pool;
 
 @SuppressWarnings("unchecked")
 public class TestRoundRobinJedisTemplate implements IJedisTestConstants {
 
+    private static final String HOST = "localhost";
+    private static final int PORT_0 = 6389;
+    private static final int PORT_1 = 6399;
+
     static final JedisCallback<Jedis, Object> SUCCESS_CALLBACK = new JedisCallback<Jedis, Object>() {
         @Override
         public Object doJedisAction(Jedis jedis) {
@@ -197,6 +212,171 @@ public class TestRoundRobinJedisTemplate implements IJedisTestConstants {
         verifyAll();
     }
 
+    @Test
+    public void testDoGet_MasterCircuitOpen_FailFast() throws Exception {
+        // given
+        final int nbSlave = jedis.getRedundancyFactor();
+        CircuitBreaker masterBreaker = new CircuitBreaker(1, 1, TimeUnit.HOURS);
+        masterBreaker.onFailure();
+        jedis.setMasterCircuitBreaker(masterBreaker);
+
+        expect(readPool.getResource()).andThrow(CONNEXION_REDIS_IMPOSSIBLE).times(nbSlave);
+        replayAll();
+
+        // when
+        try {
+            jedis.doGet(SUCCESS_CALLBACK, nbSlave);
+            fail();
+        } catch (JedisConnectionException e) {
+            // then
+            verifyAll();
+        }
+    }
+
+    @Test
+    public void testDoGet_Hedged_SlowFirstReadLosesToHedge() throws Exception {
+        // given
+        final Jedis slowJedis = createMock("slowJedis", Jedis.class);
+        final CountDownLatch releaseFirstRead = new CountDownLatch(1);
+        expect(slowJedis.isConnected()).andReturn(true).anyTimes();
+        slowJedis.disconnect();
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                releaseFirstRead.countDown();
+                return null;
+            }
+        });
+        EasyMock.resetToNice(mockJedis);
+        expect(readPool.getResource()).andReturn(slowJedis).andReturn(mockJedis);
+        readPool.returnBrokenResource(slowJedis);
+        readPool.returnResource(mockJedis);
+        expect(mockJedis.isConnected()).andReturn(true).anyTimes();
+        replayAll();
+        replay(slowJedis);
+
+        final Thread caller = Thread.currentThread();
+        JedisCallback<Jedis, Object> callback = new JedisCallback<Jedis, Object>() {
+            @Override
+            public Object doJedisAction(Jedis jedis) {
+                if (jedis != slowJedis) {
+                    return SUCCESS;
+                }
+
+                assertThat(Thread.currentThread(), is(caller));
+                try {
+                    releaseFirstRead.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // as a read on a closed socket
+                throw CONNEXION_REDIS_IMPOSSIBLE;
+            }
+        };
+
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(10, TimeUnit.MILLISECONDS, 1, executor);
+        hedgingPolicy.onRead();
+        jedis.setHedgingPolicy(hedgingPolicy);
+
+        // when
+        Object result = jedis.doGet(callback);
+
+        // then
+        assertThat(result, is(SUCCESS));
+        executor.shutdown();
+        verifyAll();
+        verify(slowJedis);
+    }
+
+    @Test
+    public void testDoGet_Hedged_HedgeAvoidsReplicaOfFirstReadStillBorrowing() throws Exception {
+        // given
+        Pool<Jedis> replicaPool0 = createMock("replicaPool0", Pool.class);
+        Pool<Jedis> replicaPool1 = createMock("replicaPool1", Pool.class);
+        final Jedis jedis0 = replicaJedis(PORT_0);
+        final Jedis jedis1 = replicaJedis(PORT_1);
+        final CountDownLatch hedgeBorrowed = new CountDownLatch(1);
+        expect(replicaPool0.getResource()).andAnswer(new IAnswer<Jedis>() {
+            @Override
+            public Jedis answer() throws Throwable {
+                hedgeBorrowed.await(5, TimeUnit.SECONDS);
+                return jedis0;
+            }
+        });
+        replicaPool0.returnResource(jedis0);
+        expect(replicaPool1.getResource()).andAnswer(new IAnswer<Jedis>() {
+            @Override
+            public Jedis answer() throws Throwable {
+                hedgeBorrowed.countDown();
+                return jedis1;
+            }
+        });
+        replicaPool1.returnResource(jedis1);
+        replay(replicaPool0, replicaPool1);
+
+        ReplicaSelector alwaysFirst = new ReplicaSelector() {
+            @Override
+            public int select(int nbReplicas) {
+                return 0;
+            }
+
+            @Override
+            public void onReadStart(int replica) {
+            }
+
+            @Override
+            public void onReadEnd(int replica, long latencyNanos, boolean failed) {
+            }
+        };
+        List<JedisShardInfo> shards = Arrays.asList(new JedisShardInfo(HOST, PORT_0), new JedisShardInfo(HOST, PORT_1));
+        jedis.setReadPool(new ReplicaPool(shards, Arrays.asList(replicaPool0, replicaPool1), alwaysFirst));
+
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(10, TimeUnit.MILLISECONDS, 1, executor);
+        hedgingPolicy.onRead();
+        jedis.setHedgingPolicy(hedgingPolicy);
+
+        // when
+        Object result = jedis.doGet(SUCCESS_CALLBACK);
+
+        // then
+        assertThat(result, is(SUCCESS));
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        verify(replicaPool0, replicaPool1);
+    }
+
+    @Test
+    public void testDoGet_Hedged_NoBudgetWaitFirstRead() throws Exception {
+        // given
+        EasyMock.resetToNice(mockJedis);
+        expect(readPool.getResource()).andReturn(mockJedis).once();
+        readPool.returnResource(mockJedis);
+        expectLastCall().once();
+        expect(mockJedis.isConnected()).andReturn(true).anyTimes();
+        replayAll();
+
+        final Thread caller = Thread.currentThread();
+        JedisCallback<Jedis, Object> callback = new JedisCallback<Jedis, Object>() {
+            @Override
+            public Object doJedisAction(Jedis jedis) {
+                return Thread.currentThread() == caller ? SUCCESS : "executor";
+            }
+        };
+
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        jedis.setHedgingPolicy(new HedgingPolicy(0, TimeUnit.MILLISECONDS, 0, executor));
+
+        // when
+        Object result = jedis.doGet(callback);
+
+        // then
+        assertThat(result, is(SUCCESS));
+        executor.shutdown();
+        verifyAll();
+    }
+
     private void replayAll() {
         replay(mockJedis, readPool, writePool);
     }
@@ -204,4 +384,15 @@ public class TestRoundRobinJedisTemplate implements IJedisTestConstants {
     void verifyAll() {
         verify(mockJedis, readPool, writePool);
     }
+
+    private static Jedis replicaJedis(int port) {
+        Jedis replica = createNiceMock("replica" + port, Jedis.class);
+        Client client = createNiceMock("client" + port, Client.class);
+        expect(replica.getClient()).andReturn(client).anyTimes();
+        expect(replica.isConnected()).andReturn(true).anyTimes();
+        expect(client.getHost()).andReturn(HOST).anyTimes();
+        expect(client.getPort()).andReturn(port).anyTimes();
+        replay(replica, client);
+        return replica;
+    }
 }
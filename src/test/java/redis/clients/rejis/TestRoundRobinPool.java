@@ -0,0 +1,96 @@
+package redis.clients.rejis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+public class TestRoundRobinPool implements IJedisTestConstants {
+
+    private FakeRedis redis;
+    private JedisShardInfo up;
+    private JedisShardInfo down;
+
+    @Before
+    public void setUp() throws Exception {
+        redis = new FakeRedis();
+        up = new JedisShardInfo("localhost", redis.getPort());
+        ServerSocket closed = new ServerSocket(0);
+        closed.close();
+        down = new JedisShardInfo("localhost", closed.getLocalPort());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        redis.close();
+    }
+
+    @Test
+    public void testGetResource_DownShardSkipped() throws Exception {
+        // given
+        RoundRobinPool pool = new RoundRobinPool(new JedisPoolConfig(), Arrays.asList(down, up), null);
+
+        // when
+        Jedis first = pool.getResource();
+        Jedis second = pool.getResource();
+
+        // then
+        assertThat(first.getClient().getPort(), is(redis.getPort()));
+        assertThat(second.getClient().getPort(), is(redis.getPort()));
+        assertThat(pool.getDownShards(), is(Collections.singleton("localhost:" + down.getPort())));
+        pool.destroy();
+    }
+
+    @Test
+    public void testGetResource_NotRetriedBeforeDelay() throws Exception {
+        // given
+        RoundRobinPool pool = new RoundRobinPool(new JedisPoolConfig(), Collections.singletonList(down), null);
+        pool.setDownShardRetryDelay(1, TimeUnit.MINUTES);
+        getResourceFailure(pool);
+
+        // when
+        JedisConnectionException retour = getResourceFailure(pool);
+
+        // then
+        assertThat(retour.getCause().getMessage().startsWith("All shards are down"), is(true));
+        pool.destroy();
+    }
+
+    @Test
+    public void testGetResource_RetriedAfterDelay() throws Exception {
+        // given
+        RoundRobinPool pool = new RoundRobinPool(new JedisPoolConfig(), Collections.singletonList(down), null);
+        pool.setDownShardRetryDelay(0, TimeUnit.MILLISECONDS);
+        getResourceFailure(pool);
+
+        // when
+        JedisConnectionException retour = getResourceFailure(pool);
+
+        // then
+        assertThat(retour.getCause().getMessage().startsWith("All shards are down"), is(false));
+        pool.destroy();
+    }
+
+    private static JedisConnectionException getResourceFailure(RoundRobinPool pool) {
+        try {
+            pool.getResource();
+            fail();
+            return null;
+        } catch (JedisConnectionException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.pool.BasePoolableObjectFactory;
+import org.apache.commons.pool.PoolableObjectFactory;
+import org.apache.commons.pool.impl.GenericObjectPool;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+@SuppressWarnings("unchecked")
+public class TestSemaphorePool implements IJedisTestConstants {
+
+    private GenericObjectPool.Config config;
+
+    /* Mocks */
+    PoolableObjectFactory<Jedis> mockFactory = createMock(PoolableObjectFactory.class);
+    Jedis mockJedis1 = createMock("jedis1", Jedis.class);
+    Jedis mockJedis2 = createMock("jedis2", Jedis.class);
+
+    @Before
+    public void setUp() {
+        config = new GenericObjectPool.Config();
+        config.maxActive = 1;
+        config.maxWait = 50;
+        config.timeBetweenEvictionRunsMillis = -1;
+    }
+
+    @Test
+    public void testGetResource_IdleConnectionReused() throws Exception {
+        // given
+        expect(mockFactory.makeObject()).andReturn(mockJedis1);
+        mockFactory.activateObject(mockJedis1);
+        mockFactory.passivateObject(mockJedis1);
+        mockFactory.activateObject(mockJedis1);
+        replayAll();
+        SemaphorePool<Jedis> pool = new SemaphorePool<Jedis>(config, mockFactory);
+
+        // when
+        Jedis first = pool.getResource();
+        pool.returnResource(first);
+        Jedis second = pool.getResource();
+
+        // then
+        assertThat(second, is(sameInstance(mockJedis1)));
+        assertThat(pool.getNumActive(), is(1));
+        assertThat(pool.getNumIdle(), is(0));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetResource_TimeoutWhenExhausted() throws Exception {
+        // given
+        expect(mockFactory.makeObject()).andReturn(mockJedis1);
+        mockFactory.activateObject(mockJedis1);
+        replayAll();
+        SemaphorePool<Jedis> pool = new SemaphorePool<Jedis>(config, mockFactory);
+        pool.getResource();
+
+        // when
+        try {
+            pool.getResource();
+            fail();
+        } catch (JedisConnectionException e) {
+            // then
+            verifyAll();
+        }
+    }
+
+    @Test
+    public void testGetResource_ZeroMaxWaitBlocksUntilReturned() throws Exception {
+        // given
+        config.maxWait = 0;
+        expect(mockFactory.makeObject()).andReturn(mockJedis1);
+        mockFactory.activateObject(mockJedis1);
+        mockFactory.passivateObject(mockJedis1);
+        mockFactory.activateObject(mockJedis1);
+        replayAll();
+        final SemaphorePool<Jedis> pool = new SemaphorePool<Jedis>(config, mockFactory);
+        Jedis first = pool.getResource();
+        ExecutorService borrower = Executors.newSingleThreadExecutor();
+        Future<Jedis> second = borrower.submit(new Callable<Jedis>() {
+            @Override
+            public Jedis call() {
+                return pool.getResource();
+            }
+        });
+
+        Thread.sleep(100);
+        assertThat(second.isDone(), is(false));
+
+        // when
+        pool.returnResource(first);
+
+        // then
+        assertThat(second.get(1, TimeUnit.SECONDS), is(sameInstance(mockJedis1)));
+        borrower.shutdown();
+        verifyAll();
+    }
+
+    @Test
+    public void testReturnBrokenResource_PermitReleased() throws Exception {
+        // given
+        expect(mockFactory.makeObject()).andReturn(mockJedis1);
+        mockFactory.activateObject(mockJedis1);
+        mockFactory.destroyObject(mockJedis1);
+        expect(mockFactory.makeObject()).andReturn(mockJedis2);
+        mockFactory.activateObject(mockJedis2);
+        replayAll();
+        SemaphorePool<Jedis> pool = new SemaphorePool<Jedis>(config, mockFactory);
+
+        // when
+        pool.returnBrokenResource(pool.getResource());
+        Jedis jedis = pool.getResource();
+
+        // then
+        assertThat(jedis, is(sameInstance(mockJedis2)));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetResource_InvalidIdleConnectionReplaced() throws Exception {
+        // given
+        config.testOnBorrow = true;
+        expect(mockFactory.makeObject()).andReturn(mockJedis1);
+        mockFactory.activateObject(mockJedis1);
+        mockFactory.passivateObject(mockJedis1);
+        mockFactory.activateObject(mockJedis1);
+        expect(mockFactory.validateObject(mockJedis1)).andReturn(false);
+        mockFactory.destroyObject(mockJedis1);
+        expect(mockFactory.makeObject()).andReturn(mockJedis2);
+        mockFactory.activateObject(mockJedis2);
+        replayAll();
+        SemaphorePool<Jedis> pool = new SemaphorePool<Jedis>(config, mockFactory);
+        pool.returnResource(pool.getResource());
+
+        // when
+        Jedis jedis = pool.getResource();
+
+        // then
+        assertThat(jedis, is(sameInstance(mockJedis2)));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetResource_ConnectionFailure() throws Exception {
+        // given
+        expect(mockFactory.makeObject()).andThrow(CONNEXION_REDIS_IMPOSSIBLE);
+        expect(mockFactory.makeObject()).andReturn(mockJedis1);
+        mockFactory.activateObject(mockJedis1);
+        replayAll();
+        SemaphorePool<Jedis> pool = new SemaphorePool<Jedis>(config, mockFactory);
+
+        // when
+        try {
+            pool.getResource();
+            fail();
+        } catch (JedisConnectionException e) {
+            // then the permit is back
+            assertThat(pool.getResource(), is(sameInstance(mockJedis1)));
+            verifyAll();
+        }
+    }
+
+    @Test
+    public void testEvict_IdleTooLongClosedDownToMinIdle() throws Exception {
+        // given
+        config.maxActive = 2;
+        config.minIdle = 1;
+        config.minEvictableIdleTimeMillis = 1;
+        expect(mockFactory.makeObject()).andReturn(mockJedis1);
+        expect(mockFactory.makeObject()).andReturn(mockJedis2);
+        mockFactory.activateObject(mockJedis1);
+        mockFactory.activateObject(mockJedis2);
+        mockFactory.passivateObject(mockJedis1);
+        mockFactory.passivateObject(mockJedis2);
+        mockFactory.destroyObject(mockJedis1);
+        replayAll();
+        SemaphorePool<Jedis> pool = new SemaphorePool<Jedis>(config, mockFactory);
+        Jedis first = pool.getResource();
+        Jedis second = pool.getResource();
+        pool.returnResource(first);
+        pool.returnResource(second);
+        Thread.sleep(10);
+
+        // when
+        pool.evict();
+
+        // then
+        assertThat(pool.getNumIdle(), is(1));
+        verifyAll();
+    }
+
+    @Test
+    public void testEvict_MinIdleOpened() throws Exception {
+        // given
+        config.minIdle = 1;
+        expect(mockFactory.makeObject()).andReturn(mockJedis1);
+        mockFactory.passivateObject(mockJedis1);
+        replayAll();
+        SemaphorePool<Jedis> pool = new SemaphorePool<Jedis>(config, mockFactory);
+
+        // when
+        pool.evict();
+
+        // then
+        assertThat(pool.getNumIdle(), is(1));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetResource_ConcurrentBorrowsBounded() throws Exception {
+        // given
+        config.maxActive = 4;
+        config.maxWait = -1;
+        final AtomicInteger created = new AtomicInteger();
+        final SemaphorePool<Object> pool = new SemaphorePool<Object>(config, new BasePoolableObjectFactory<Object>() {
+            @Override
+            public Object makeObject() {
+                created.incrementAndGet();
+                return new Object();
+            }
+        });
+        final AtomicInteger maxActive = new AtomicInteger();
+        ExecutorService borrowers = Executors.newFixedThreadPool(16);
+        List<Future<Void>> results = new ArrayList<Future<Void>>();
+        for (int i = 0; i < 16; i++) {
+            results.add(borrowers.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int j = 0; j < 1000; j++) {
+                        Object resource = pool.getResource();
+                        int active = pool.getNumActive();
+                        if (active > maxActive.get()) {
+                            maxActive.set(active);
+                        }
+                        pool.returnResource(resource);
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        // when
+        try {
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            borrowers.shutdown();
+        }
+
+        // then
+        assertThat(maxActive.get() <= 4, is(true));
+        assertThat(created.get() <= 4, is(true));
+        assertThat(pool.getNumActive(), is(0));
+    }
+
+    private void replayAll() {
+        replay(mockFactory, mockJedis1, mockJedis2);
+    }
+
+    private void verifyAll() {
+        verify(mockFactory, mockJedis1, mockJedis2);
+    }
+}
@@ -0,0 +1,124 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.util.Pool;
+
+@SuppressWarnings("unchecked")
+public class TestShardedJedisTemplate implements IJedisTestConstants {
+
+    private static final JedisShardInfo MASTER_1 = new JedisShardInfo("master1", 6379);
+    private static final JedisShardInfo MASTER_2 = new JedisShardInfo("master2", 6379, 2000, 3);
+    private static final JedisShardInfo MASTER_3 = new JedisShardInfo("master3", 6379, 2000, "named");
+    private static final List<JedisShardInfo> MASTERS = Arrays.asList(MASTER_1, MASTER_2, MASTER_3);
+
+    @Test
+    public void testReadShards_ReplicasOnTheRingPositionOfTheirMaster() throws Exception {
+        // given
+        Map<JedisShardInfo, List<JedisShardInfo>> replicas = new HashMap<JedisShardInfo, List<JedisShardInfo>>();
+        replicas.put(MASTER_1, Arrays.asList(new JedisShardInfo("replica1a", 6379), new JedisShardInfo("replica1b", 6379)));
+        replicas.put(MASTER_2, Collections.singletonList(new JedisShardInfo("replica2a", 6379)));
+
+        ShardedJedis masterRing = new ShardedJedis(MASTERS);
+        ShardedJedis rank0Ring = new ShardedJedis(ShardedJedisTemplate.readShards(MASTERS, replicas, 0));
+        ShardedJedis rank1Ring = new ShardedJedis(ShardedJedisTemplate.readShards(MASTERS, replicas, 1));
+
+        for (int i = 0; i < 1000; i++) {
+            String key = "key" + i;
+
+            // when
+            String master = masterRing.getShardInfo(key).getHost();
+            String rank0 = rank0Ring.getShardInfo(key).getHost();
+            String rank1 = rank1Ring.getShardInfo(key).getHost();
+
+            // then
+            assertThat(key, copyOf(master, rank0), is(true));
+            assertThat(key, copyOf(master, rank1), is(true));
+        }
+    }
+
+    @Test
+    public void testReadShards_OneRankPerReplica() throws Exception {
+        // given
+        Map<JedisShardInfo, List<JedisShardInfo>> replicas = new HashMap<JedisShardInfo, List<JedisShardInfo>>();
+        replicas.put(MASTER_1, Arrays.asList(new JedisShardInfo("replica1a", 6379), new JedisShardInfo("replica1b", 6379)));
+
+        // when
+        List<JedisShardInfo> rank0 = ShardedJedisTemplate.readShards(MASTERS, replicas, 0);
+        List<JedisShardInfo> rank1 = ShardedJedisTemplate.readShards(MASTERS, replicas, 1);
+
+        // then
+        assertThat(rank0.get(0).getHost(), is("replica1a"));
+        assertThat(rank1.get(0).getHost(), is("replica1b"));
+        assertThat(rank0.get(1), is(MASTER_2));
+        assertThat(rank1.get(2), is(MASTER_3));
+    }
+
+    @Test
+    public void testGet_RetriedOnNextRank() throws Exception {
+        // given
+        Pool<ShardedJedis> masterPool = createMock("master", Pool.class);
+        Pool<ShardedJedis> rank0 = createMock("rank0", Pool.class);
+        Pool<ShardedJedis> rank1 = createMock("rank1", Pool.class);
+        ShardedJedis jedis0 = createMock("jedis0", ShardedJedis.class);
+        ShardedJedis jedis1 = createMock("jedis1", ShardedJedis.class);
+        ShardedJedisTemplate template = new ShardedJedisTemplate(masterPool, new ShardedReplicaPool(Arrays.asList(rank0, rank1)));
+        expect(rank0.getResource()).andReturn(jedis0);
+        // replica down, seen on the first command
+        expect(jedis0.get(KEY)).andThrow(CONNEXION_REDIS_IMPOSSIBLE);
+        rank0.returnBrokenResource(jedis0);
+        expect(rank1.getResource()).andReturn(jedis1);
+        expect(jedis1.get(KEY)).andReturn(VALUE);
+        rank1.returnResource(jedis1);
+        replay(masterPool, rank0, rank1, jedis0, jedis1);
+
+        // when
+        String retour = template.get(KEY);
+
+        // then
+        assertThat(retour, is(VALUE));
+        verify(masterPool, rank0, rank1, jedis0, jedis1);
+    }
+
+    @Test
+    public void testDel_PipelinedOverTheShards() throws Exception {
+        // given
+        FakeRedis redis1 = new FakeRedis();
+        FakeRedis redis2 = new FakeRedis();
+        ShardedJedisTemplate template = new ShardedJedisTemplate(new JedisPoolConfig(), Arrays.asList(new JedisShardInfo("localhost", redis1.getPort()),
+                new JedisShardInfo("localhost", redis2.getPort())));
+
+        // when
+        Long deleted;
+        try {
+            deleted = template.del("key1", "key2", "key3", "key1");
+        } finally {
+            template.destroyPools();
+            redis1.close();
+            redis2.close();
+        }
+
+        // then
+        assertThat(deleted, is(3L));
+    }
+
+    private static boolean copyOf(String master, String node) {
+        return node.equals(master) || node.startsWith(master.replace("master", "replica"));
+    }
+}
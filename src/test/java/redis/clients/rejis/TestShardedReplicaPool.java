@@ -0,0 +1,119 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+
+@SuppressWarnings("unchecked")
+public class TestShardedReplicaPool implements IJedisTestConstants {
+
+    private ShardedReplicaPool pool;
+
+    /* Mocks */
+    Pool<ShardedJedis> rank0 = createMock("rank0", Pool.class);
+    Pool<ShardedJedis> rank1 = createMock("rank1", Pool.class);
+    ShardedJedis jedis0 = createMock("jedis0", ShardedJedis.class);
+    ShardedJedis jedis1 = createMock("jedis1", ShardedJedis.class);
+
+    @Before
+    public void setUp() {
+        pool = new ShardedReplicaPool(Arrays.asList(rank0, rank1));
+    }
+
+    @Test
+    public void testGetResource_RoundRobinOverRanks() throws Exception {
+        // given
+        expect(rank0.getResource()).andReturn(jedis0);
+        expect(rank1.getResource()).andReturn(jedis1);
+        replayAll();
+
+        // when
+        ShardedJedis first = pool.getResource();
+        ShardedJedis second = pool.getResource();
+
+        // then
+        assertThat(first, is(sameInstance(jedis0)));
+        assertThat(second, is(sameInstance(jedis1)));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetResource_NextRankWhenPoolFails() throws Exception {
+        // given
+        expect(rank0.getResource()).andThrow(CONNEXION_REDIS_IMPOSSIBLE);
+        expect(rank1.getResource()).andReturn(jedis1);
+        rank1.returnResource(jedis1);
+        replayAll();
+
+        // when
+        ShardedJedis jedis = pool.getResource();
+        pool.returnResource(jedis);
+
+        // then
+        assertThat(jedis, is(sameInstance(jedis1)));
+        verifyAll();
+    }
+
+    @Test
+    public void testGetResource_AllRanksDown() throws Exception {
+        // given
+        expect(rank0.getResource()).andThrow(CONNEXION_REDIS_IMPOSSIBLE);
+        expect(rank1.getResource()).andThrow(CONNEXION_REDIS_IMPOSSIBLE);
+        replayAll();
+
+        // when
+        try {
+            pool.getResource();
+            fail();
+        } catch (JedisConnectionException e) {
+            // then
+            verifyAll();
+        }
+    }
+
+    @Test
+    public void testReturnBrokenResource_ToItsRank() throws Exception {
+        // given
+        expect(rank0.getResource()).andReturn(jedis0);
+        rank0.returnBrokenResource(jedis0);
+        replayAll();
+
+        // when
+        pool.returnBrokenResource(pool.getResource());
+
+        // then
+        verifyAll();
+    }
+
+    @Test(expected = JedisException.class)
+    public void testReturnResource_NotBorrowedHere() throws Exception {
+        // given
+        replayAll();
+
+        // when
+        pool.returnResource(jedis0);
+    }
+
+    private void replayAll() {
+        replay(rank0, rank1, jedis0, jedis1);
+    }
+
+    private void verifyAll() {
+        verify(rank0, rank1, jedis0, jedis1);
+    }
+}
@@ -1,6 +1,7 @@
 package redis.clients.rejis;
 
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.aryEq;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.createStrictMock;
 import static org.easymock.EasyMock.expect;
@@ -11,6 +12,8 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.nio.ByteBuffer;
+
 import org.easymock.EasyMock;
 import org.easymock.IMockBuilder;
 import org.junit.Before;
@@ -78,6 +81,24 @@ public class TestSimpleJedisTemplate implements IJedisTestConstants {
         verifyAll();
     }
 
+    @Test
+    public void testDoPut_NoValidationOnBorrow() throws Exception {
+        // given
+        jedis.setValidateOnBorrow(false);
+        expect(mockPool.getResource()).andReturn(mockJedis).once();
+        mockPool.returnResource(mockJedis);
+        expectLastCall();
+
+        replayAll();
+
+        // when
+        Object result = jedis.doPut(SUCCESS_CALLBACK);
+
+        // then
+        assertThat(result, is(SUCCESS));
+        verifyAll();
+    }
+
     @Test
     public void testDoPut_JedisLostConnection_RedisDown() throws Exception {
         // given
@@ -175,6 +196,51 @@ public class TestSimpleJedisTemplate implements IJedisTestConstants {
         verify(spyJedisTemplate);
     }
 
+    @Test
+    public void testMethod_GetBinary() throws Exception {
+        // given
+        byte[] key = KEY.getBytes("UTF-8");
+        byte[] value = VALUE.getBytes("UTF-8");
+        expect(mockPool.getResource()).andReturn(mockJedis).once();
+        mockPool.returnResource(mockJedis);
+        expectLastCall();
+
+        expect(mockJedis.isConnected()).andReturn(true).once();
+        expect(mockJedis.get(aryEq(key))).andReturn(value).once();
+        replayAll();
+
+        // when
+        byte[] retour = jedis.get(key);
+
+        // then
+        assertThat(retour, is(value));
+        verifyAll();
+    }
+
+    @Test
+    public void testMethod_SetByteBuffer_SendRemainingBytes() throws Exception {
+        // given
+        ByteBuffer key = ByteBuffer.allocateDirect(16);
+        key.put(KEY.getBytes("UTF-8")).flip();
+        ByteBuffer value = ByteBuffer.wrap(("xx" + VALUE).getBytes("UTF-8"));
+        value.position(2);
+        expect(mockPool.getResource()).andReturn(mockJedis).once();
+        mockPool.returnResource(mockJedis);
+        expectLastCall();
+
+        expect(mockJedis.isConnected()).andReturn(true).once();
+        expect(mockJedis.set(aryEq(KEY.getBytes("UTF-8")), aryEq(VALUE.getBytes("UTF-8")))).andReturn("OK").once();
+        replayAll();
+
+        // when
+        jedis.set(key, value);
+
+        // then
+        verifyAll();
+        assertThat(key.position(), is(0));
+        assertThat(value.position(), is(2));
+    }
+
     SimpleJedisTemplate createSpyJedisTemplate() {
         IMockBuilder<SimpleJedisTemplate> mockBuilder = EasyMock.createMockBuilder(SimpleJedisTemplate.class);
         mockBuilder.addMockedMethod("doPut");
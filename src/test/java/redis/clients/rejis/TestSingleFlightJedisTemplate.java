@@ -0,0 +1,158 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.makeThreadSafe;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+public class TestSingleFlightJedisTemplate implements IJedisTestConstants {
+
+    private SingleFlightJedisTemplate jedis;
+
+    /* Mocks */
+    IRejis mockTemplate = createMock(IRejis.class);
+
+    @Before
+    public void setUp() {
+        jedis = new SingleFlightJedisTemplate(mockTemplate);
+    }
+
+    @Test
+    public void testGet_ConcurrentReadsShareOneCall() throws Exception {
+        // given
+        final CountDownLatch leaderStarted = new CountDownLatch(1);
+        final CountDownLatch releaseLeader = new CountDownLatch(1);
+        expect(mockTemplate.get(KEY)).andAnswer(new IAnswer<String>() {
+            @Override
+            public String answer() throws Throwable {
+                leaderStarted.countDown();
+                releaseLeader.await();
+                return VALUE;
+            }
+        }).once();
+        replay(mockTemplate);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<String> leader = executor.submit(new GetTask());
+        leaderStarted.await(1, TimeUnit.SECONDS);
+
+        // when
+        final Thread[] follower = new Thread[1];
+        Future<String> waiter = executor.submit(new GetTask() {
+            @Override
+            public String call() {
+                follower[0] = Thread.currentThread();
+                return super.call();
+            }
+        });
+        waitUntilParked(follower);
+        releaseLeader.countDown();
+
+        // then
+        assertThat(leader.get(1, TimeUnit.SECONDS), is(VALUE));
+        assertThat(waiter.get(1, TimeUnit.SECONDS), is(VALUE));
+        executor.shutdown();
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testGet_ReadAfterWriteNotShared() throws Exception {
+        // given
+        final CountDownLatch leaderStarted = new CountDownLatch(1);
+        final CountDownLatch releaseLeader = new CountDownLatch(1);
+        expect(mockTemplate.get(KEY)).andAnswer(new IAnswer<String>() {
+            @Override
+            public String answer() throws Throwable {
+                leaderStarted.countDown();
+                releaseLeader.await();
+                return VALUE;
+            }
+        }).once();
+        expect(mockTemplate.set(KEY, "newValue")).andReturn("OK");
+        expect(mockTemplate.get(KEY)).andReturn("newValue");
+        // the read in flight blocks in the mock
+        makeThreadSafe(mockTemplate, false);
+        replay(mockTemplate);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<String> leader = executor.submit(new GetTask());
+        leaderStarted.await(1, TimeUnit.SECONDS);
+        jedis.set(KEY, "newValue");
+
+        // when
+        Future<String> reader = executor.submit(new GetTask());
+
+        // then
+        assertThat(reader.get(1, TimeUnit.SECONDS), is("newValue"));
+        releaseLeader.countDown();
+        assertThat(leader.get(1, TimeUnit.SECONDS), is(VALUE));
+        executor.shutdown();
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testGet_SequentialReadsNotCached() throws Exception {
+        // given
+        expect(mockTemplate.get(KEY)).andReturn(VALUE).times(2);
+        replay(mockTemplate);
+
+        // when
+        jedis.get(KEY);
+        jedis.get(KEY);
+
+        // then
+        verify(mockTemplate);
+    }
+
+    @Test
+    public void testExists_SameExceptionRethrown() throws Exception {
+        // given
+        expect(mockTemplate.exists(KEY)).andThrow(CONNEXION_REDIS_IMPOSSIBLE).once();
+        replay(mockTemplate);
+
+        // when
+        try {
+            jedis.exists(KEY);
+            fail();
+        } catch (JedisConnectionException e) {
+            // then
+            assertThat(e == CONNEXION_REDIS_IMPOSSIBLE, is(true));
+            verify(mockTemplate);
+        }
+    }
+
+    private void waitUntilParked(Thread[] thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (System.currentTimeMillis() < deadline) {
+            if (thread[0] != null && thread[0].getState() == Thread.State.WAITING) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("Follower never waited for the leader");
+    }
+
+    private class GetTask implements Callable<String> {
+        @Override
+        public String call() {
+            return jedis.get(KEY);
+        }
+    }
+}
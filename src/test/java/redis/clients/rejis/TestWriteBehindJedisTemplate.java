@@ -0,0 +1,164 @@
+package redis.clients.rejis;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.BuilderFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.RedisPipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.util.Pool;
+
+@SuppressWarnings("unchecked")
+public class TestWriteBehindJedisTemplate implements IJedisTestConstants {
+
+    private SimpleJedisTemplate template;
+
+    /* Mocks */
+    Pool<Jedis> mockPool = createMock(Pool.class);
+    Jedis mockJedis = createMock(Jedis.class);
+    RejisPipeline mockPipeline = createMock("pipeline", RejisPipeline.class);
+    RedisPipeline mockPipelineCommands = createMock("pipelineCommands", RedisPipeline.class);
+
+    @Before
+    public void setUp() {
+        template = EasyMock.createMockBuilder(SimpleJedisTemplate.class).addMockedMethod("openWritePipeline").createMock();
+        template.setWritePool(mockPool);
+        template.setReadPool(mockPool);
+    }
+
+    @Test
+    public void testSetexAsync_CoalescedInOnePipeline() throws Exception {
+        // given
+        expect(mockPool.getResource()).andReturn(mockJedis).once();
+        expect(mockJedis.isConnected()).andReturn(true).once();
+        mockPool.returnResource(mockJedis);
+        expectLastCall();
+        expect(template.openWritePipeline(mockJedis)).andReturn(mockPipeline).once();
+        expect(mockPipeline.commands()).andReturn(mockPipelineCommands).anyTimes();
+        expect(mockPipelineCommands.setex("k1", 100, VALUE)).andReturn(okResponse());
+        expect(mockPipelineCommands.setex("k2", 100, VALUE)).andReturn(okResponse());
+        mockPipeline.sync();
+        expectLastCall().once();
+        replayAll();
+
+        WriteBehindJedisTemplate jedis = new WriteBehindJedisTemplate(template, 2, TimeUnit.SECONDS.toMicros(10), 10,
+                WriteBehindJedisTemplate.OverflowPolicy.BLOCK);
+
+        // when
+        Future<String> reply1 = jedis.setexAsync("k1", 100, VALUE);
+        Future<String> reply2 = jedis.setexAsync("k2", 100, VALUE);
+
+        // then
+        assertThat(reply1.get(1, TimeUnit.SECONDS), is(JEDIS_STRING_OK));
+        assertThat(reply2.get(1, TimeUnit.SECONDS), is(JEDIS_STRING_OK));
+        verifyAll();
+    }
+
+    @Test
+    public void testSetAsync_ConnectionErrorInAllFutures() throws Exception {
+        // given
+        expect(mockPool.getResource()).andThrow(CONNEXION_REDIS_IMPOSSIBLE).once();
+        replayAll();
+
+        WriteBehindJedisTemplate jedis = new WriteBehindJedisTemplate(template, 10, 1000, 10, WriteBehindJedisTemplate.OverflowPolicy.BLOCK);
+
+        // when
+        Future<String> reply = jedis.setAsync(KEY, VALUE);
+
+        // then
+        try {
+            reply.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause() instanceof JedisConnectionException, is(true));
+            verifyAll();
+        }
+    }
+
+    @Test
+    public void testExpire_WaitForReply() throws Exception {
+        // given
+        expect(mockPool.getResource()).andReturn(mockJedis).once();
+        expect(mockJedis.isConnected()).andReturn(true).once();
+        mockPool.returnResource(mockJedis);
+        expectLastCall();
+        expect(template.openWritePipeline(anyObject(Jedis.class))).andReturn(mockPipeline).once();
+        expect(mockPipeline.commands()).andReturn(mockPipelineCommands).anyTimes();
+        Response<Long> response = new Response<Long>(BuilderFactory.LONG);
+        response.set(1L);
+        expect(mockPipelineCommands.expire(KEY, 100)).andReturn(response);
+        mockPipeline.sync();
+        expectLastCall().once();
+        replayAll();
+
+        WriteBehindJedisTemplate jedis = new WriteBehindJedisTemplate(template, 10, 1000, 10, WriteBehindJedisTemplate.OverflowPolicy.REJECT);
+
+        // when
+        Long retour = jedis.expire(KEY, 100);
+
+        // then
+        assertThat(retour, is(1L));
+        verifyAll();
+    }
+
+    @Test
+    public void testSet_RejectedOnceStopped() throws Exception {
+        // given
+        mockPool.destroy();
+        expectLastCall().times(2);
+        replayAll();
+
+        WriteBehindJedisTemplate jedis = new WriteBehindJedisTemplate(template, 10, 1000, 10, WriteBehindJedisTemplate.OverflowPolicy.BLOCK);
+        jedis.destroyPools();
+
+        // when
+        try {
+            jedis.set(KEY, VALUE);
+            fail();
+        } catch (RejectedExecutionException e) {
+            // then
+            assertThat(jedis.getQueueSize(), is(0));
+            verifyAll();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_EmptyBatch() throws Exception {
+        new WriteBehindJedisTemplate(template, 0, 1000, 10, WriteBehindJedisTemplate.OverflowPolicy.BLOCK);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_EmptyQueue() throws Exception {
+        new WriteBehindJedisTemplate(template, 10, 1000, 0, WriteBehindJedisTemplate.OverflowPolicy.REJECT);
+    }
+
+    private static Response<String> okResponse() {
+        return TestAbstractJedisTemplate.stringResponse(JEDIS_STRING_OK);
+    }
+
+    private void replayAll() {
+        replay(template, mockJedis, mockPool, mockPipeline, mockPipelineCommands);
+    }
+
+    void verifyAll() {
+        verify(template, mockJedis, mockPool, mockPipeline, mockPipelineCommands);
+    }
+}